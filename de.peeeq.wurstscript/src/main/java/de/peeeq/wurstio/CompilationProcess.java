@@ -11,6 +11,7 @@ import de.peeeq.wurstscript.gui.WurstGui;
 import de.peeeq.wurstscript.intermediatelang.interpreter.ILStackFrame;
 import de.peeeq.wurstscript.jassAst.JassProg;
 import de.peeeq.wurstscript.jassprinter.JassPrinter;
+import de.peeeq.wurstscript.translation.imoptimizer.CallProfile;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 import de.peeeq.wurstscript.utils.Utils;
 import org.eclipse.jdt.annotation.Nullable;
@@ -40,7 +41,7 @@ public class CompilationProcess {
         }
     }
 
-    @Nullable CharSequence doCompilation(@Nullable MpqEditor mpqEditor) throws IOException {
+    public @Nullable CharSequence doCompilation(@Nullable MpqEditor mpqEditor) throws IOException {
         return doCompilation(mpqEditor, null);
     }
 
@@ -164,8 +165,22 @@ public class CompilationProcess {
                 out.print(message);
             }
         };
+        String callProfileFile = runArgs.getCallProfileFile();
+        CallProfile callProfile = callProfileFile == null ? null : new CallProfile();
+        // the bytecode interpreter does not record calls
+        runTests.setUseBytecodeInterpreter(runArgs.isBytecodeInterpreter() && callProfile == null);
+        runTests.setParallel(runArgs.isParallelTests());
+        runTests.setCallProfile(callProfile);
         runTests.runTests(translator, compiler.getImProg(), Optional.empty(), Optional.empty());
 
+        if (callProfileFile != null && callProfile != null) {
+            try {
+                callProfile.writeTo(new File(callProfileFile));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         for (RunTests.TestFailure e : runTests.getFailTests()) {
             gui.sendError(new CompileError(e.getFunction(), e.getMessage()));
             if (runArgs.isGui()) {
@@ -482,4 +482,8 @@ public class CompiletimeFunctionRunner {
         interpreter.getGlobalState().setOutStream(printStream);
     }
 
+    public void setUseBytecodeInterpreter(boolean useBytecodeInterpreter) {
+        globalState.setUseBytecodeInterpreter(useBytecodeInterpreter);
+    }
+
 }
@@ -0,0 +1,130 @@
+package de.peeeq.wurstio;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.peeeq.wurstscript.WurstParser;
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.attributes.CompileError;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
+import de.peeeq.wurstscript.gui.WurstGui;
+import de.peeeq.wurstscript.gui.WurstGuiLogger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Parses compilation units on a bounded pool of worker threads.
+ * <p>
+ * Every task gets its own {@link WurstParser}, {@link ErrorHandler} and gui,
+ * so workers never share mutable state.
+ * The errors of a task are buffered and only sent to the real error handler
+ * when the result is taken with {@link #await(Future, ErrorHandler)}.
+ * Taking the results in the original file order therefore gives the same
+ * compilation units and the same error order as parsing sequentially.
+ */
+public class ParallelParser implements AutoCloseable {
+    private final ExecutorService pool;
+
+    public ParallelParser(int threads) {
+        if (threads <= 1) {
+            this.pool = MoreExecutors.newDirectExecutorService();
+        } else {
+            this.pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setNameFormat("Wurst Parser %d")
+                    .setDaemon(true)
+                    .build());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ParseTask {
+        CompilationUnit parse(WurstParser parser, WurstGui gui);
+    }
+
+    public Future<Result> submit(ParseTask task) {
+        FutureTask<Result> t = task(task);
+        start(t);
+        return t;
+    }
+
+    /**
+     * Creates a task which is not started yet.
+     * It can be run on the pool with {@link #start(FutureTask)} or in the current thread with {@link FutureTask#run()},
+     * so that it can be registered before it runs.
+     */
+    public FutureTask<Result> task(ParseTask task) {
+        return new FutureTask<>(() -> {
+            WurstGui gui = new WurstGuiLogger();
+            ErrorHandler errorHandler = new ErrorHandler(gui);
+            WurstParser parser = new WurstParser(errorHandler, gui);
+            CompilationUnit cu = task.parse(parser, gui);
+            return new Result(cu, errorHandler);
+        });
+    }
+
+    public void start(FutureTask<Result> task) {
+        pool.execute(task);
+    }
+
+    /**
+     * Waits for the given parse result and replays its buffered errors to the given error handler.
+     */
+    public static CompilationUnit await(Future<Result> future, ErrorHandler target) {
+        Result result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return result.replay(target);
+    }
+
+    @Override
+    public void close() {
+        // unused prefetched results are simply dropped
+        pool.shutdownNow();
+    }
+
+    public static class Result {
+        private final CompilationUnit cu;
+        private final ErrorHandler errorHandler;
+
+        private Result(CompilationUnit cu, ErrorHandler errorHandler) {
+            this.cu = cu;
+            this.errorHandler = errorHandler;
+        }
+
+        private CompilationUnit replay(ErrorHandler target) {
+            // errors reported via the error handler must go to the target error handler,
+            // errors which were only sent to the gui must only go to the target gui:
+            Set<CompileError> viaErrorHandler = Sets.newIdentityHashSet();
+            viaErrorHandler.addAll(errorHandler.getErrors());
+            viaErrorHandler.addAll(errorHandler.getWarnings());
+            List<CompileError> all = errorHandler.getGui().getErrorsAndWarnings();
+            for (CompileError err : all) {
+                if (viaErrorHandler.contains(err)) {
+                    target.sendError(err);
+                } else {
+                    target.getGui().sendError(err);
+                }
+            }
+            cu.getCuInfo().setCuErrorHandler(target);
+            return cu;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package de.peeeq.wurstio;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import de.peeeq.wurstscript.CompileTimeInfo;
+import de.peeeq.wurstscript.WLogger;
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
+import de.peeeq.wurstscript.parser.AstSerializer;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A persistent cache of parsed compilation units, stored in the _build folder of a project.
+ * <p>
+ * Entries are keyed by a hash of the file content, the file name and the compiler version,
+ * so changed files or a new compiler version never hit an old entry.
+ * Each entry has a checksum; entries which cannot be read are deleted and treated as a miss.
+ * When the cache grows larger than {@link #MAX_CACHE_SIZE} the least recently used entries are removed.
+ * <p>
+ * Only compilation units without errors or warnings should be stored, because errors are not cached.
+ */
+public class ParseCache {
+    private static final int MAGIC = 0x57505243; // "WPRC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".cu";
+    private static final long MAX_CACHE_SIZE = 256L * 1024 * 1024;
+
+    private final File cacheDir;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger corrupted = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    public ParseCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * the parse cache for the given project folder
+     */
+    public static ParseCache forProject(File projectFolder) {
+        return new ParseCache(new File(new File(projectFolder, "_build"), "parsecache"));
+    }
+
+    /**
+     * calculates the cache key for a file
+     */
+    public static String key(String fileName, String content, boolean hasCommonJ) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(CompileTimeInfo.version, StandardCharsets.UTF_8);
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putString(fileName, StandardCharsets.UTF_8);
+        hasher.putBoolean(hasCommonJ);
+        hasher.putString(content, StandardCharsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * loads the compilation unit stored under the given key
+     *
+     * @return the compilation unit or null, if it is not in the cache
+     */
+    public @Nullable CompilationUnit get(String key, ErrorHandler errorHandler) {
+        File f = entryFile(key);
+        if (!f.exists()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+                throw new IOException("Invalid header");
+            }
+            long checksum = in.readLong();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            if (checksum(data) != checksum) {
+                throw new IOException("Checksum mismatch");
+            }
+            CompilationUnit cu;
+            try (DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(data))))) {
+                cu = AstSerializer.read(dataIn, errorHandler);
+            }
+            //noinspection ResultOfMethodCallIgnored
+            f.setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+            return cu;
+        } catch (IOException | RuntimeException e) {
+            WLogger.info("Removing corrupted parse cache entry " + f + ": " + e);
+            corrupted.incrementAndGet();
+            misses.incrementAndGet();
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+            return null;
+        }
+    }
+
+    /**
+     * stores a compilation unit under the given key
+     */
+    public void put(String key, CompilationUnit cu) {
+        byte[] data;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes)))) {
+                AstSerializer.write(cu, dataOut);
+            }
+            data = bytes.toByteArray();
+        } catch (AstSerializer.AstSerializationException e) {
+            WLogger.warning("Could not store " + cu.getCuInfo().getFile() + " in the parse cache", e);
+            return;
+        } catch (IOException e) {
+            WLogger.info(e);
+            return;
+        }
+
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            // write to a temporary file first, so that other processes never see half written entries
+            File tempFile = File.createTempFile(key, ".tmp", cacheDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeLong(checksum(data));
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            Files.move(tempFile.toPath(), entryFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (writes.incrementAndGet() % 100 == 1) {
+                evict();
+            }
+        } catch (IOException e) {
+            WLogger.info(e);
+        }
+    }
+
+    /**
+     * removes the least recently used entries until the cache is smaller than the maximum size
+     */
+    public synchronized void evict() {
+        File[] entries = cacheDir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (entries == null) {
+            return;
+        }
+        long totalSize = Arrays.stream(entries).mapToLong(File::length).sum();
+        if (totalSize <= MAX_CACHE_SIZE) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (totalSize <= MAX_CACHE_SIZE / 2) {
+                break;
+            }
+            long size = entry.length();
+            if (entry.delete()) {
+                totalSize -= size;
+            }
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(cacheDir, key + SUFFIX);
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getCorrupted() {
+        return corrupted.get();
+    }
+
+    public String getStatistics() {
+        return "parse cache: " + getHits() + " hits, " + getMisses() + " misses, " + getCorrupted() + " corrupted, " + writes.get() + " writes";
+    }
+}
@@ -0,0 +1,48 @@
+package de.peeeq.wurstio;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cooperative cancellation of typechecks.
+ * <p>
+ * While a cancellable check runs on a thread, the checker calls {@link #checkpoint()} regularly.
+ * When the check was cancelled in the meantime, the checkpoint throws a {@link ModelChangedException},
+ * which aborts the check.
+ * <p>
+ * Checkpoints must only be placed between attribute evaluations and never inside of an attribute:
+ * an exception thrown while a cached attribute is computed leaves the attribute in the 'computing' state,
+ * so that the next check of the compilation unit would report a cyclic dependency.
+ */
+public class TypecheckCancellation {
+
+    private static final ThreadLocal<BooleanSupplier> isCancelled = new ThreadLocal<>();
+
+    /**
+     * runs the given action on the current thread, checks done by the action are aborted
+     * as soon as isCancelled returns true
+     */
+    public static void runCancellable(BooleanSupplier cancelled, Runnable action) {
+        BooleanSupplier previous = isCancelled.get();
+        isCancelled.set(cancelled);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                isCancelled.remove();
+            } else {
+                isCancelled.set(previous);
+            }
+        }
+    }
+
+    /**
+     * throws a {@link ModelChangedException}, if the check running on the current thread was cancelled
+     */
+    public static void checkpoint() {
+        BooleanSupplier cancelled = isCancelled.get();
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new ModelChangedException();
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package de.peeeq.wurstio;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
+import com.google.common.io.CharStreams;
 import com.google.common.io.Files;
 import de.peeeq.wurstio.languageserver.requests.RequestFailedException;
 import de.peeeq.wurstio.map.importer.ImportFile;
@@ -37,6 +38,10 @@ import org.jetbrains.annotations.NotNull;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static de.peeeq.wurstio.CompiletimeFunctionRunner.FunctionFlagToRun.CompiletimeFunctions;
@@ -61,6 +66,7 @@ public class WurstCompilerJassImpl implements WurstCompiler {
     private List<File> dependencies = Lists.newArrayList();
     private final @Nullable MpqEditor mapFileMpq;
     private TimeTaker timeTaker;
+    private @Nullable ParseCache parseCache;
 
     public WurstCompilerJassImpl(@Nullable File projectFolder, WurstGui gui, @Nullable MpqEditor mapFileMpq, RunArgs runArgs) {
         this(new TimeTaker.Default(), projectFolder, gui, mapFileMpq, runArgs);
@@ -106,6 +112,7 @@ public class WurstCompilerJassImpl implements WurstCompiler {
             CompiletimeFunctionRunner ctr = new CompiletimeFunctionRunner(imTranslator, getImProg(), getMapFile(), getMapfileMpqEditor(), gui,
                     CompiletimeFunctions);
             ctr.setInjectObjects(runArgs.isInjectObjects());
+            ctr.setUseBytecodeInterpreter(runArgs.isBytecodeInterpreter());
             ctr.setOutputStream(new PrintStream(System.err));
             ctr.run();
         }
@@ -220,34 +227,68 @@ public class WurstCompilerJassImpl implements WurstCompiler {
             loadWurstFilesInDir(dir);
         }
 
+        if (projectFolder != null && !runArgs.isNoParseCache()) {
+            parseCache = ParseCache.forProject(projectFolder);
+        }
+
         gui.sendProgress("Parsing Files");
         // parse all the files:
         List<CompilationUnit> compilationUnits = new NotNullList<>();
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                // ignore dirs
-            } else if (file.getName().endsWith(".w3x") || file.getName().endsWith(".w3m")) {
-                CompilationUnit r = processMap(file);
-                if (r != null) {
-                    compilationUnits.add(r);
+        try (ParallelParser parallelParser = new ParallelParser(getParseThreads())) {
+            // start parsing all files in parallel, results are collected in the original order below
+            List<@Nullable Future<ParallelParser.Result>> parseResults = new ArrayList<>();
+            boolean commonJSeen = hasCommonJ;
+            for (File file : files) {
+                if (file.isDirectory() || file.getName().endsWith(".w3x") || file.getName().endsWith(".w3m")) {
+                    parseResults.add(null);
+                } else {
+                    if (file.getName().endsWith("common.j")) {
+                        commonJSeen = true;
+                    }
+                    boolean fileHasCommonJ = commonJSeen;
+                    parseResults.add(parallelParser.submit((p, g) -> parseFile(file, p, g, fileHasCommonJ)));
                 }
-            } else {
-                if (file.getName().endsWith("common.j")) {
-                    hasCommonJ = true;
+            }
+            List<Future<ParallelParser.Result>> otherParseResults = new ArrayList<>();
+            for (Entry<String, Reader> in : otherInputs.entrySet()) {
+                boolean inputHasCommonJ = commonJSeen;
+                otherParseResults.add(parallelParser.submit((p, g) -> parse(p, in.getKey(), in.getValue(), inputHasCommonJ)));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                Future<ParallelParser.Result> parseResult = parseResults.get(i);
+                if (file.isDirectory()) {
+                    // ignore dirs
+                } else if (parseResult == null) {
+                    CompilationUnit r = processMap(file);
+                    if (r != null) {
+                        compilationUnits.add(r);
+                    }
+                } else {
+                    if (file.getName().endsWith("common.j")) {
+                        hasCommonJ = true;
+                    }
+                    parsedFiles.add(file);
+                    gui.sendProgress("Parsing File " + file.getName());
+                    compilationUnits.add(ParallelParser.await(parseResult, errorHandler));
                 }
-                compilationUnits.add(parseFile(file));
             }
-        }
-        for (Entry<String, Reader> in : otherInputs.entrySet()) {
-            compilationUnits.add(parse(in.getKey(), in.getValue()));
+            for (Future<ParallelParser.Result> parseResult : otherParseResults) {
+                compilationUnits.add(ParallelParser.await(parseResult, errorHandler));
+            }
+
+            try {
+                addImportedLibs(compilationUnits, parallelParser);
+            } catch (CompileError e) {
+                gui.sendError(e);
+                return null;
+            }
         }
 
-        try {
-            addImportedLibs(compilationUnits);
-        } catch (CompileError e) {
-            gui.sendError(e);
-            return null;
+        if (parseCache != null) {
+            WLogger.info(parseCache.getStatistics());
         }
 
         if (errorHandler.getErrorCount() > 0)
@@ -280,9 +321,73 @@ public class WurstCompilerJassImpl implements WurstCompiler {
         }
     }
 
-    private void addImportedLibs(List<CompilationUnit> compilationUnits) {
+    private int getParseThreads() {
+        int threads = runArgs.getParseThreads();
+        return threads > 0 ? threads : Utils.defaultThreadCount();
+    }
+
+    /**
+     * Resolves imports like {@link #addImportedLibs(List, Function)}, but the library files are
+     * parsed ahead of time on the given parser pool.
+     * Import resolution itself stays sequential, so the order of compilation units and errors does not change.
+     */
+    private void addImportedLibs(List<CompilationUnit> compilationUnits, ParallelParser parallelParser) {
+        Map<String, File> libs = getLibs();
+        Set<String> knownPackages = new HashSet<>();
+        for (CompilationUnit c : compilationUnits) {
+            for (WPackage p : c.getPackages()) {
+                knownPackages.add(p.getName());
+            }
+        }
+        boolean libHasCommonJ = hasCommonJ;
+        class LibParser implements Consumer<CompilationUnit> {
+            private final Map<File, Future<ParallelParser.Result>> parseResults = new ConcurrentHashMap<>();
+
+            /**
+             * prefetches the imported libraries of the given compilation unit
+             */
+            @Override
+            public void accept(CompilationUnit cu) {
+                for (WPackage p : cu.getPackages()) {
+                    for (WImport imp : p.getImports()) {
+                        File libFile = libs.get(imp.getPackagename());
+                        if (libFile != null && !knownPackages.contains(imp.getPackagename())) {
+                            parse(libFile, true);
+                        }
+                    }
+                }
+            }
+
+            /**
+             * returns the parse result of the given file, each file is parsed only once:
+             * a task is registered before it is started, so other threads wait for it instead of parsing the file again
+             */
+            Future<ParallelParser.Result> parse(File libFile, boolean inBackground) {
+                FutureTask<ParallelParser.Result> task = parallelParser.task((parser, g) -> {
+                    // the parse task prefetches the imports of the library itself
+                    CompilationUnit lib = parseFile(libFile, parser, g, libHasCommonJ);
+                    accept(lib);
+                    return lib;
+                });
+                Future<ParallelParser.Result> existing = parseResults.putIfAbsent(libFile, task);
+                if (existing != null) {
+                    return existing;
+                }
+                if (inBackground) {
+                    parallelParser.start(task);
+                } else {
+                    task.run();
+                }
+                return task;
+            }
+        }
+        LibParser libParser = new LibParser();
+        compilationUnits.forEach(libParser);
+
         addImportedLibs(compilationUnits, file -> {
-            CompilationUnit lib = parseFile(file);
+            parsedFiles.add(file);
+            gui.sendProgress("Parsing File " + file.getName());
+            CompilationUnit lib = ParallelParser.await(libParser.parse(file, false), errorHandler);
             lib.getCuInfo().setFile(file.getAbsolutePath());
             compilationUnits.add(lib);
             return lib;
@@ -689,30 +794,64 @@ public class WurstCompilerJassImpl implements WurstCompiler {
     }
 
     private CompilationUnit parseFile(File file) {
+        parsedFiles.add(file);
+        gui.sendProgress("Parsing File " + file.getName());
+        return parseFile(file, parser, gui, hasCommonJ);
+    }
+
+    /**
+     * parses a single file, only uses the given parser and gui so that it can be called from parser worker threads
+     */
+    private CompilationUnit parseFile(File file, WurstParser parser, WurstGui gui, boolean hasCommonJ) {
         if (file.isDirectory()) {
             throw new Error("Is a directory: " + file);
         }
-        parsedFiles.add(file);
-
-        gui.sendProgress("Parsing File " + file.getName());
         String source = file.getAbsolutePath();
         try (Reader reader = FileReading.getFileReader(file)) {
             // scanning
-            return parse(source, reader);
-
+            if (parseCache == null) {
+                return parse(parser, source, reader, hasCommonJ);
+            }
+            return parseCached(parser, gui, source, CharStreams.toString(reader), hasCommonJ, parseCache);
         } catch (CompileError e) {
             gui.sendError(e);
-            return emptyCompilationUnit();
+            return parser.emptyCompilationUnit();
         } catch (FileNotFoundException e) {
             gui.sendError(new CompileError(new WPos(source, LineOffsets.dummy, 0, 0), "File not found."));
-            return emptyCompilationUnit();
+            return parser.emptyCompilationUnit();
         } catch (IOException e) {
             gui.sendError(new CompileError(new WPos(source, LineOffsets.dummy, 0, 0), "Could not read file."));
-            return emptyCompilationUnit();
+            return parser.emptyCompilationUnit();
+        }
+    }
+
+    /**
+     * parses the given contents, but first tries to load the result from the given parse cache
+     */
+    public CompilationUnit parseCached(String fileName, String contents, ParseCache cache) {
+        return parseCached(parser, gui, fileName, contents, hasCommonJ, cache);
+    }
+
+    private static CompilationUnit parseCached(WurstParser parser, WurstGui gui, String fileName, String contents, boolean hasCommonJ, ParseCache cache) {
+        String key = ParseCache.key(fileName, contents, hasCommonJ);
+        CompilationUnit cu = cache.get(key, parser.getErrorHandler());
+        if (cu != null) {
+            return cu;
+        }
+        int errorCount = gui.getErrorsAndWarnings().size();
+        cu = parse(parser, fileName, new StringReader(contents), hasCommonJ);
+        if (gui.getErrorsAndWarnings().size() == errorCount) {
+            // errors are not stored in the cache, so only cache files without errors
+            cache.put(key, cu);
         }
+        return cu;
     }
 
     public CompilationUnit parse(String fileName, Reader reader) {
+        return parse(parser, fileName, reader, hasCommonJ);
+    }
+
+    private static CompilationUnit parse(WurstParser parser, String fileName, Reader reader, boolean hasCommonJ) {
         if (fileName.endsWith(".j")) {
             return parser.parseJass(reader, fileName, hasCommonJ);
         }
@@ -722,10 +861,6 @@ public class WurstCompilerJassImpl implements WurstCompiler {
         return parser.parse(reader, fileName, hasCommonJ);
     }
 
-    private CompilationUnit emptyCompilationUnit() {
-        return parser.emptyCompilationUnit();
-    }
-
     public @Nullable JassProg getProg() {
         return prog;
     }
@@ -788,6 +923,10 @@ public class WurstCompilerJassImpl implements WurstCompiler {
         return sb.toString();
     }
 
+    public RunArgs getRunArgs() {
+        return runArgs;
+    }
+
     public void setRunArgs(RunArgs runArgs) {
         this.runArgs = runArgs;
     }
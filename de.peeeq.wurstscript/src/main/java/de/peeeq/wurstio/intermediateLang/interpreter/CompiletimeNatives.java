@@ -15,9 +15,20 @@ import de.peeeq.wurstscript.intermediatelang.interpreter.VariableType;
 @SuppressWarnings("ucd") // ignore unused code detector warnings, because this class uses reflection
 public class CompiletimeNatives extends ReflectionBasedNativeProvider implements NativesProvider {
     private ProgramStateIO globalState;
+    // the state of the running interpreter, which reports errors
+    private ProgramState state;
 
     public CompiletimeNatives(ProgramStateIO globalState) {
+        this(globalState, globalState);
+    }
+
+    /**
+     * natives for a fork of globalState, which share the object definitions with globalState
+     * (like tests running one after another on the same state)
+     */
+    public CompiletimeNatives(ProgramStateIO globalState, ProgramState fork) {
         this.globalState = globalState;
+        this.state = fork;
     }
 
 
@@ -26,18 +37,21 @@ public class CompiletimeNatives extends ReflectionBasedNativeProvider implements
     }
 
     public ILconstTuple createObjectDefinition(ILconstString fileType, ILconstInt newUnitId, ILconstInt deriveFrom) {
-        ObjectFile unitStore = globalState.getDataStore(fileType.getVal());
-        ObjectTable modifiedTable = unitStore.getModifiedTable();
+        // forks running on other threads might create object definitions at the same time
+        synchronized (globalState) {
+            ObjectFile unitStore = globalState.getDataStore(fileType.getVal());
+            ObjectTable modifiedTable = unitStore.getModifiedTable();
 
-        if (modifiedTable.getObjectDefinitions().containsKey(newUnitId.getVal())) {
-            globalState.compilationError("Object definition with id " + ObjectHelper.objectIdIntToString(newUnitId.getVal()) + " already exists.");
+            if (modifiedTable.getObjectDefinitions().containsKey(newUnitId.getVal())) {
+                state.compilationError("Object definition with id " + ObjectHelper.objectIdIntToString(newUnitId.getVal()) + " already exists.");
+            }
+            ObjectDefinition objDef = new ObjectDefinition(modifiedTable, deriveFrom.getVal(), newUnitId.getVal());
+            // mark object with special field
+            objDef.add(new ObjectModificationInt(objDef, "wurs", 0, 0, ProgramState.GENERATED_BY_WURST));
+            String key = globalState.addObjectDefinition(objDef);
+            modifiedTable.add(objDef);
+            return makeKey(key);
         }
-        ObjectDefinition objDef = new ObjectDefinition(modifiedTable, deriveFrom.getVal(), newUnitId.getVal());
-        // mark object with special field
-        objDef.add(new ObjectModificationInt(objDef, "wurs", 0, 0, ProgramState.GENERATED_BY_WURST));
-        String key = globalState.addObjectDefinition(objDef);
-        modifiedTable.add(objDef);
-        return makeKey(key);
     }
 
 
@@ -114,15 +128,17 @@ public class CompiletimeNatives extends ReflectionBasedNativeProvider implements
 
     private <T> void modifyObject(ObjectDefinition od, ILconstString modification, VariableType<T> variableType, int level, int datapointer, T value) {
         String modificationId = modification.getVal();
-        for (ObjectModification<?> m : od.getModifications()) {
-            if (m.getModificationId().equals(modificationId) && m.getLevelCount() == level) {
-                ObjectModification<T> m2 = m.castTo(value);
-                m2.setData(value);
-                return;
+        synchronized (globalState) {
+            for (ObjectModification<?> m : od.getModifications()) {
+                if (m.getModificationId().equals(modificationId) && m.getLevelCount() == level) {
+                    ObjectModification<T> m2 = m.castTo(value);
+                    m2.setData(value);
+                    return;
+                }
             }
+            // create new modification:
+            od.add(ObjectModification.create(od, modificationId, variableType, level, datapointer, value));
         }
-        // create new modification:
-        od.add(ObjectModification.create(od, modificationId, variableType, level, datapointer, value));
     }
 
     private String getKey(ILconstTuple unitType) {
@@ -168,7 +168,7 @@ public class ProgramStateIO extends ProgramState {
         return key;
     }
 
-    ObjectDefinition getObjectDefinition(String key) {
+    synchronized ObjectDefinition getObjectDefinition(String key) {
         return objDefinitions.get(key);
     }
 
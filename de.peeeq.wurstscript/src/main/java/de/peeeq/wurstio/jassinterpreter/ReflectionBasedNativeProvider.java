@@ -2,54 +2,85 @@ package de.peeeq.wurstio.jassinterpreter;
 
 import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.intermediatelang.ILconst;
+import de.peeeq.wurstscript.intermediatelang.interpreter.NativeFunction;
 import de.peeeq.wurstscript.intermediatelang.interpreter.NativesProvider;
 import de.peeeq.wurstscript.intermediatelang.interpreter.NoSuchNativeException;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public abstract class ReflectionBasedNativeProvider implements NativesProvider {
 
     protected PrintStream outStream = System.err;
+    private final Map<String, NativeFunction> boundFunctions = new HashMap<>();
 
     @Override
     public ILconst invoke(String funcname, ILconst[] args) throws NoSuchNativeException {
-        Method candidate = null;
+        NativeFunction f = bind(funcname);
+        if (f == null) {
+            throw noSuchNative(funcname, args, null);
+        }
+        return f.invoke(args);
+    }
+
+    /**
+     * resolves the methods with the given name once, the matching overload is selected on each call
+     */
+    @Override
+    public @Nullable NativeFunction bind(String funcname) {
+        NativeFunction f = boundFunctions.get(funcname);
+        if (f == null) {
+            Method[] candidates = Arrays.stream(this.getClass().getMethods())
+                    .filter(m -> m.getName().equals(funcname))
+                    .toArray(Method[]::new);
+            if (candidates.length == 0) {
+                return null;
+            }
+            f = args -> invokeCandidates(funcname, candidates, args);
+            boundFunctions.put(funcname, f);
+        }
+        return f;
+    }
+
+    private ILconst invokeCandidates(String funcname, Method[] candidates, ILconst[] args) throws NoSuchNativeException {
         nextMethod:
-        for (Method method : this.getClass().getMethods()) {
-            if (method.getName().equals(funcname)) {
-                // this is a candidate as it has the correct name
-                candidate = method;
-                Object r;
-                try {
-                    if (args.length != method.getParameterTypes().length) {
-                        continue;
-                    }
-                    int i = 0;
-                    for (Class<?> paramType : method.getParameterTypes()) {
-                        if (!paramType.isAssignableFrom(args[i].getClass())) {
-                            continue nextMethod;
-                        }
-                        i++;
-                    }
-                    r = method.invoke(this, (Object[]) args);
-                } catch (IllegalAccessException | IllegalArgumentException e) {
-                    WLogger.severe(e);
-                    throw new Error(e);
-                } catch (InvocationTargetException e) {
-                    if (e.getCause() instanceof InterpreterException) {
-                        throw (InterpreterException) e.getCause();
-                    } if (e.getCause() instanceof Error) {
-                        throw (Error) e.getCause();
+        for (Method method : candidates) {
+            Object r;
+            try {
+                if (args.length != method.getParameterTypes().length) {
+                    continue;
+                }
+                int i = 0;
+                for (Class<?> paramType : method.getParameterTypes()) {
+                    if (!paramType.isAssignableFrom(args[i].getClass())) {
+                        continue nextMethod;
                     }
-                    throw new Error(e.getCause());
+                    i++;
                 }
-                return (ILconst) r;
+                r = method.invoke(this, (Object[]) args);
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                WLogger.severe(e);
+                throw new Error(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof InterpreterException) {
+                    throw (InterpreterException) e.getCause();
+                } if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new Error(e.getCause());
             }
+            return (ILconst) r;
         }
+        throw noSuchNative(funcname, args, candidates[candidates.length - 1]);
+    }
+
+    private static NoSuchNativeException noSuchNative(String funcname, ILconst[] args, @Nullable Method candidate) {
         String msg = "Calling method " + funcname + "(" +
                 Arrays.stream(args).map(Object::toString).collect(Collectors.joining(", ")) + ")";
         msg += "\nwith types " + funcname + "(" +
@@ -58,7 +89,7 @@ public abstract class ReflectionBasedNativeProvider implements NativesProvider {
             msg += "\nDid you mean " + funcname + "(" +
                     Arrays.stream(candidate.getParameterTypes()).map(Class::getSimpleName).collect(Collectors.joining(", ")) + ")?";
         }
-        throw new NoSuchNativeException(msg);
+        return new NoSuchNativeException(msg);
     }
 
     @Override
@@ -5,17 +5,22 @@ import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstNull;
 import de.peeeq.wurstscript.intermediatelang.interpreter.AbstractInterpreter;
+import de.peeeq.wurstscript.intermediatelang.interpreter.NativeFunction;
 import de.peeeq.wurstscript.intermediatelang.interpreter.NativesProvider;
 import de.peeeq.wurstscript.intermediatelang.interpreter.NoSuchNativeException;
 import de.peeeq.wurstscript.utils.Utils;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.PrintStream;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 
 public class ReflectionNativeProvider implements NativesProvider {
     private HashMap<String, NativeJassFunction> methodMap = new HashMap<>();
+    private final HashMap<String, NativeFunction> boundFunctions = new HashMap<>();
 
     public ReflectionNativeProvider(AbstractInterpreter interpreter) {
         addProvider(new GamecacheProvider(interpreter));
@@ -67,39 +72,77 @@ public class ReflectionNativeProvider implements NativesProvider {
 
     @Override
     public ILconst invoke(String funcname, ILconst[] args) throws NoSuchNativeException {
-        String msg = "Calling method " + funcname + "(" +
-            Utils.printSep(", ", args) + ")";
-        WLogger.trace(msg);
-
-        NativeJassFunction candidate = methodMap.get(funcname);
-        if (candidate == null) {
+        NativeFunction f = bind(funcname);
+        if (f == null) {
             throw new NoSuchNativeException("");
         }
+        return f.invoke(args);
+    }
+
+    @Override
+    public @Nullable NativeFunction bind(String funcname) {
+        NativeFunction f = boundFunctions.get(funcname);
+        if (f == null) {
+            NativeJassFunction candidate = methodMap.get(funcname);
+            if (candidate == null) {
+                return null;
+            }
+            f = new BoundNative(funcname, candidate);
+            boundFunctions.put(funcname, f);
+        }
+        return f;
+    }
 
-        if (candidate.getMethod().getParameterCount() == args.length) {
-            String[] parameterTypes = new String[args.length];
-            for (int i = 0; i < args.length; i++) {
-                parameterTypes[i] = "" + args[i];
-                if (!candidate.getMethod().getParameterTypes()[i].isAssignableFrom(args[i].getClass())) {
-                    if (args[i] instanceof ILconstNull) {
-                        // handle null as a special case and pass it to the native as a Java null
-                        args[i] = null;
-                        continue;
+    /**
+     * a native function bound to a method handle, which is much faster to call than a reflective method
+     */
+    private static class BoundNative implements NativeFunction {
+        private final String funcname;
+        private final Class<?>[] parameterTypes;
+        private final MethodHandle handle;
+
+        BoundNative(String funcname, NativeJassFunction f) {
+            Method method = f.getMethod();
+            this.funcname = funcname;
+            this.parameterTypes = method.getParameterTypes();
+            try {
+                this.handle = MethodHandles.publicLookup()
+                    .unreflect(method)
+                    .bindTo(f.getProvider())
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (IllegalAccessException e) {
+                throw new Error(e);
+            }
+        }
+
+        @Override
+        public ILconst invoke(ILconst[] args) {
+            if (WLogger.isTraceEnabled()) {
+                WLogger.trace("Calling method " + funcname + "(" + Utils.printSep(", ", args) + ")");
+            }
+            if (parameterTypes.length == args.length) {
+                for (int i = 0; i < args.length; i++) {
+                    if (!parameterTypes[i].isInstance(args[i])) {
+                        if (args[i] instanceof ILconstNull) {
+                            // handle null as a special case and pass it to the native as a Java null
+                            args[i] = null;
+                            continue;
+                        }
+                        throw new Error("The native <" + funcname + "> expects different parameter " + i + "!" +
+                                "\n\tExpected: " + parameterTypes[i].getSimpleName() + " Actual: " + args[i]);
                     }
-                    throw new Error("The native <" + funcname + "> expects different parameter " + i + "!" +
-                            "\n\tExpected: " + candidate.getMethod().getParameterTypes()[i].getSimpleName() + " Actual: " + parameterTypes[i]);
                 }
             }
-        }
-        try {
-            return (ILconst) candidate.getMethod().invoke(candidate.getProvider(), (Object[]) args);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            if (e.getCause() instanceof Error) {
-                throw (Error) e.getCause();
-            } else if (e.getCause() instanceof InterpreterException) {
-                throw (InterpreterException) e.getCause();
+            try {
+                // the call site must have exactly the type of the handle: (Object[])Object
+                Object r = handle.invokeExact((Object[]) args);
+                return (ILconst) r;
+            } catch (Error | InterpreterException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new Error(e);
             }
-            throw new Error(e.getCause());
         }
     }
 
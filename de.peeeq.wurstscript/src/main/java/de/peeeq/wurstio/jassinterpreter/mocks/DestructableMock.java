@@ -1,9 +1,13 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstInt;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 
-public class DestructableMock {
+import java.util.function.Function;
+
+public class DestructableMock implements ForkableHandleObject {
     public ILconstInt objectId;
     public ILconstReal x;
     public ILconstReal y;
@@ -19,4 +23,9 @@ public class DestructableMock {
         this.scale = scale;
         this.variation = variation;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        return new DestructableMock(objectId, x, y, face, scale, variation);
+    }
 }
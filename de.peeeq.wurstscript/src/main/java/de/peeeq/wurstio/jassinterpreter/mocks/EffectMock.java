@@ -1,9 +1,13 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 import de.peeeq.wurstscript.intermediatelang.ILconstString;
 
-public class EffectMock {
+import java.util.function.Function;
+
+public class EffectMock implements ForkableHandleObject {
     public ILconstString modelPath;
     public ILconstReal x;
     public ILconstReal y;
@@ -14,4 +18,11 @@ public class EffectMock {
         this.x = x;
         this.y = y;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        EffectMock copy = new EffectMock(modelPath, x, y);
+        copy.z = z;
+        return copy;
+    }
 }
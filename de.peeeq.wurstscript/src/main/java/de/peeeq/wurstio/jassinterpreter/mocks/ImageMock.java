@@ -1,11 +1,15 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstBool;
 import de.peeeq.wurstscript.intermediatelang.ILconstInt;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 import de.peeeq.wurstscript.intermediatelang.ILconstString;
 
-public class ImageMock {
+import java.util.function.Function;
+
+public class ImageMock implements ForkableHandleObject {
     private final ILconstString file;
     private final ILconstReal sizeX;
     private final ILconstReal sizeY;
@@ -93,4 +97,11 @@ public class ImageMock {
         this.posY = y;
         this.posZ = z;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        ImageMock copy = new ImageMock(file, sizeX, sizeY, sizeZ, posX, posY, posZ, originX, originY, originZ, imageType);
+        copy.shown = shown;
+        return copy;
+    }
 }
@@ -1,10 +1,14 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstBool;
 import de.peeeq.wurstscript.intermediatelang.ILconstInt;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 
-public class ItemMock {
+import java.util.function.Function;
+
+public class ItemMock implements ForkableHandleObject {
     public ILconstInt id;
     public ILconstReal x;
     public ILconstReal y;
@@ -19,4 +23,11 @@ public class ItemMock {
     public void setVisible(ILconstBool visible) {
         this.visible = visible;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        ItemMock copy = new ItemMock(id, x, y);
+        copy.visible = visible;
+        return copy;
+    }
 }
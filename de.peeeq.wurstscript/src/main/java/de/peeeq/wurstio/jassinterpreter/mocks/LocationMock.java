@@ -1,8 +1,12 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 
-public class LocationMock {
+import java.util.function.Function;
+
+public class LocationMock implements ForkableHandleObject {
     public ILconstReal x;
     public ILconstReal y;
 
@@ -14,4 +18,9 @@ public class LocationMock {
     public void move(ILconstReal x, ILconstReal y) {
         // TODO
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        return new LocationMock(x, y);
+    }
 }
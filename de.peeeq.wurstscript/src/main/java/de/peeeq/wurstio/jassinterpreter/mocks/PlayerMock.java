@@ -1,14 +1,24 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
 import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstInt;
 import de.peeeq.wurstscript.intermediatelang.ILconstNull;
 
-public class PlayerMock {
+import java.util.function.Function;
+
+public class PlayerMock implements ForkableHandleObject {
     public final ILconstInt id;
     public ILconst playerColor = ILconstNull.instance();
 
     public PlayerMock(ILconstInt p) {
         this.id = p;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        PlayerMock copy = new PlayerMock(id);
+        copy.playerColor = forkValue.apply(playerColor);
+        return copy;
+    }
 }
@@ -1,8 +1,12 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 
-public class RectMock {
+import java.util.function.Function;
+
+public class RectMock implements ForkableHandleObject {
     public ILconstReal minx;
     public ILconstReal miny;
     public ILconstReal maxx;
@@ -22,4 +26,9 @@ public class RectMock {
     public double getHeight() {
         return maxy.getVal() - miny.getVal();
     }
+
+    @Override
+    public RectMock fork(Function<ILconst, ILconst> forkValue) {
+        return new RectMock(minx, miny, maxx, maxy);
+    }
 }
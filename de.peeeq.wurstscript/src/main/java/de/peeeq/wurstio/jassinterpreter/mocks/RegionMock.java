@@ -1,8 +1,20 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
+
 import java.util.ArrayList;
+import java.util.function.Function;
 
-public class RegionMock {
+public class RegionMock implements ForkableHandleObject {
     public ArrayList<RectMock> cells = new ArrayList<>();
 
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        RegionMock copy = new RegionMock();
+        for (RectMock cell : cells) {
+            copy.cells.add(cell.fork(forkValue));
+        }
+        return copy;
+    }
 }
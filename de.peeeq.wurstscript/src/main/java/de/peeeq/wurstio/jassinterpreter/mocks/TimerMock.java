@@ -2,6 +2,8 @@ package de.peeeq.wurstio.jassinterpreter.mocks;
 
 import de.peeeq.wurstio.jassinterpreter.InterpreterException;
 import de.peeeq.wurstio.jassinterpreter.providers.TimerProvider;
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstBool;
 import de.peeeq.wurstscript.intermediatelang.ILconstFuncRef;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
@@ -9,10 +11,12 @@ import de.peeeq.wurstscript.intermediatelang.IlConstHandle;
 import de.peeeq.wurstscript.intermediatelang.interpreter.AbstractInterpreter;
 import de.peeeq.wurstscript.intermediatelang.interpreter.TimerMockHandler;
 
-public class TimerMock {
+import java.util.function.Function;
+
+public class TimerMock implements ForkableHandleObject {
     private AbstractInterpreter interpreter;
     private TimerMockHandler timerMockHandler;
-    private final TimerProvider timerProvider;
+    private TimerProvider timerProvider;
     private IlConstHandle timerHandle;
     private TimerMockHandler.RunTask runTask;
     private TimerMockHandler.PausedTask pausedTask;
@@ -58,6 +62,29 @@ public class TimerMock {
         this.timerMockHandler = interpreter.getTimerMockHandler();
     }
 
+    private TimerMock() {
+    }
+
+    /**
+     * The started timer belongs to the timer handler of the interpreter of the parent state,
+     * so the copy is not running. It is bound to the interpreter of the fork, when it is first used there.
+     */
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        return new TimerMock();
+    }
+
+    public boolean isBound() {
+        return timerProvider != null;
+    }
+
+    public void bind(AbstractInterpreter interpreter, TimerProvider timerProvider, IlConstHandle handle) {
+        this.interpreter = interpreter;
+        this.timerProvider = timerProvider;
+        this.timerMockHandler = interpreter.getTimerMockHandler();
+        this.timerHandle = handle;
+    }
+
     public void start(ILconstReal timeout, ILconstBool periodic, ILconstFuncRef handlerFunc) {
         if (runTask != null) {
             timerMockHandler.cancelTask(runTask);
@@ -1,14 +1,17 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
 import com.google.common.collect.Lists;
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstBool;
 import de.peeeq.wurstscript.intermediatelang.ILconstFuncRef;
 import de.peeeq.wurstscript.intermediatelang.IlConstHandle;
 import de.peeeq.wurstscript.intermediatelang.interpreter.AbstractInterpreter;
 
 import java.util.ArrayList;
+import java.util.function.Function;
 
-public class TriggerMock {
+public class TriggerMock implements ForkableHandleObject {
 
     private ArrayList<IlConstHandle> conditions = Lists.newArrayList();
     private ArrayList<ILconstFuncRef> actions = Lists.newArrayList();
@@ -36,4 +39,14 @@ public class TriggerMock {
     public void clearConditions() {
         conditions.clear();
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        TriggerMock copy = new TriggerMock();
+        for (IlConstHandle condition : conditions) {
+            copy.conditions.add((IlConstHandle) forkValue.apply(condition));
+        }
+        copy.actions.addAll(actions);
+        return copy;
+    }
 }
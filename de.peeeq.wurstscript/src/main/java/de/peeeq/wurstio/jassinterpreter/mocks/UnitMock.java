@@ -1,10 +1,14 @@
 package de.peeeq.wurstio.jassinterpreter.mocks;
 
+import de.peeeq.wurstscript.intermediatelang.ForkableHandleObject;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
 import de.peeeq.wurstscript.intermediatelang.ILconstInt;
 import de.peeeq.wurstscript.intermediatelang.ILconstReal;
 import de.peeeq.wurstscript.intermediatelang.IlConstHandle;
 
-public class UnitMock {
+import java.util.function.Function;
+
+public class UnitMock implements ForkableHandleObject {
     public IlConstHandle owner;
     public ILconstInt unitid;
     public ILconstReal x;
@@ -18,4 +22,9 @@ public class UnitMock {
         this.y = y;
         this.face = face;
     }
+
+    @Override
+    public Object fork(Function<ILconst, ILconst> forkValue) {
+        return new UnitMock((IlConstHandle) forkValue.apply(owner), unitid, x, y, face);
+    }
 }
@@ -19,12 +19,12 @@ public class TimerProvider extends Provider {
     }
 
     public void DestroyTimer(IlConstHandle timer) {
-        TimerMock timerMock = (TimerMock) timer.getObj();
+        TimerMock timerMock = getTimerMock(timer);
         timerMock.destroy();
     }
 
     public void PauseTimer(IlConstHandle timer) {
-        TimerMock timerMock = (TimerMock) timer.getObj();
+        TimerMock timerMock = getTimerMock(timer);
         timerMock.pause();
     }
 
@@ -33,12 +33,21 @@ public class TimerProvider extends Provider {
     }
 
     public void TimerStart(IlConstHandle whichTimer, ILconstReal timeout, ILconstBool periodic, ILconstAbstract handlerFunc) {
-        TimerMock timerMock = (TimerMock) whichTimer.getObj();
+        TimerMock timerMock = getTimerMock(whichTimer);
         if (handlerFunc instanceof ILconstFuncRef) {
             timerMock.start(timeout, periodic, (ILconstFuncRef) handlerFunc);
         }
     }
 
+    private TimerMock getTimerMock(IlConstHandle timer) {
+        TimerMock timerMock = (TimerMock) timer.getObj();
+        if (!timerMock.isBound()) {
+            // a copy of a timer from the state, which the state of this interpreter was forked from
+            timerMock.bind(interpreter, this, timer);
+        }
+        return timerMock;
+    }
+
     public void setLastExpiredMock(IlConstHandle lastExpiredMock) {
         this.lastExpiredMock = lastExpiredMock;
     }
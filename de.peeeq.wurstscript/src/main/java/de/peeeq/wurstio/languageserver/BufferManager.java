@@ -12,10 +12,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * Keeps the current content of the open documents.
+ * <p>
+ * Changes are applied incrementally (see {@link TextBuffer}) and requests get the content as an immutable string.
  */
 public class BufferManager {
-    private Map<WFile, StringBuilder> currentBuffer = new HashMap<>();
+    private Map<WFile, TextBuffer> currentBuffer = new HashMap<>();
     private Map<WFile, Integer> latestVersion = new HashMap<>();
 
     public synchronized String getBuffer(TextDocumentIdentifier textDocument) {
@@ -23,16 +25,17 @@ public class BufferManager {
         return getBuffer(uri);
     }
 
-    public String getBuffer(WFile uri) {
-        StringBuilder sb = currentBuffer.get(uri);
-        if (sb == null) {
+    public synchronized String getBuffer(WFile uri) {
+        TextBuffer buffer = currentBuffer.get(uri);
+        if (buffer == null) {
             return readFileFromDisk(uri);
         }
-        return sb.toString();
+        // the content is immutable, so no copy is necessary
+        return buffer.getContent();
     }
 
-    private StringBuilder buffer(WFile uri) {
-        return currentBuffer.computeIfAbsent(uri, k -> new StringBuilder());
+    private TextBuffer buffer(WFile uri) {
+        return currentBuffer.computeIfAbsent(uri, k -> new TextBuffer(""));
     }
 
     synchronized void handleFileChange(FileEvent fileEvent) {
@@ -57,9 +60,8 @@ public class BufferManager {
                 return "";
             }
             String str = Files.toString(file, StandardCharsets.UTF_8);
-            StringBuilder sb = buffer(uri);
-            sb.replace(0, sb.length(), str);
-            return sb.toString();
+            buffer(uri).setContent(str);
+            return str;
         } catch (IOException e) {
             WLogger.severe("Could not read file " + uri);
             WLogger.severe(e);
@@ -67,7 +69,7 @@ public class BufferManager {
         }
     }
 
-    synchronized void handleChange(DidChangeTextDocumentParams params) {
+    public synchronized void handleChange(DidChangeTextDocumentParams params) {
         WFile uri = WFile.create(params.getTextDocument().getUri());
         int version = params.getTextDocument().getVersion();
         if (version < getTextDocumentVersion(uri)) {
@@ -76,38 +78,14 @@ public class BufferManager {
         }
         latestVersion.put(uri, version);
 
-        StringBuilder sb = buffer(uri);
-        for (TextDocumentContentChangeEvent contentChange : params.getContentChanges()) {
-            if (contentChange.getRange() == null) {
-                // replace whole buffer
-                sb.replace(0, sb.length(), contentChange.getText());
-            } else {
-                int start = getOffset(sb, contentChange.getRange().getStart());
-                int end = getOffset(sb, contentChange.getRange().getEnd());
-                sb.replace(start, end - start, contentChange.getText());
-            }
-        }
+        buffer(uri).applyChanges(params.getContentChanges());
     }
 
     public synchronized int getTextDocumentVersion(WFile uri) {
         return latestVersion.getOrDefault(uri, -1);
     }
 
-    private int getOffset(StringBuilder sb, Position position) {
-        int pos = 0;
-        int line = 1;
-        while (pos < sb.length() && line < position.getLine()) {
-            if (sb.charAt(pos) == '\n') {
-                line++;
-            }
-            pos++;
-        }
-        pos += position.getCharacter();
-        return Math.min(pos, sb.length() - 1);
-    }
-
     synchronized public void updateFile(WFile wFile, String contents) {
-        StringBuilder sb = buffer(wFile);
-        sb.replace(0, sb.length(), contents);
+        buffer(wFile).setContent(contents);
     }
 }
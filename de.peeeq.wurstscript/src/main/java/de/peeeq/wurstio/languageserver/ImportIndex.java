@@ -0,0 +1,89 @@
+package de.peeeq.wurstio.languageserver;
+
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.WImport;
+import de.peeeq.wurstscript.ast.WPackage;
+
+import java.util.*;
+
+/**
+ * Reverse import graph of a model: maps each package name to the packages importing it.
+ * <p>
+ * The index is updated when compilation units are added to or removed from the model,
+ * so that the compilation units depending on a package can be found without looking at the whole model.
+ */
+class ImportIndex {
+
+    private static class Importer {
+        private final CompilationUnit cu;
+        private final String packageName;
+        private final boolean isPublic;
+
+        Importer(CompilationUnit cu, String packageName, boolean isPublic) {
+            this.cu = cu;
+            this.packageName = packageName;
+            this.isPublic = isPublic;
+        }
+    }
+
+    private final Map<String, List<Importer>> importers = new HashMap<>();
+    /**
+     * the imported package names of each indexed compilation unit
+     */
+    private final Map<CompilationUnit, Set<String>> importedPackages = new IdentityHashMap<>();
+
+    void add(CompilationUnit cu) {
+        remove(cu);
+        Set<String> imported = new HashSet<>();
+        for (WPackage p : cu.getPackages()) {
+            for (WImport imp : p.getImports()) {
+                String name = imp.getPackagenameId().getName();
+                importers.computeIfAbsent(name, n -> new ArrayList<>())
+                    .add(new Importer(cu, p.getName(), imp.getIsPublic()));
+                imported.add(name);
+            }
+        }
+        importedPackages.put(cu, imported);
+    }
+
+    void remove(CompilationUnit cu) {
+        Set<String> imported = importedPackages.remove(cu);
+        if (imported == null) {
+            return;
+        }
+        for (String name : imported) {
+            List<Importer> list = importers.get(name);
+            if (list != null) {
+                list.removeIf(i -> i.cu == cu);
+                if (list.isEmpty()) {
+                    importers.remove(name);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        importers.clear();
+        importedPackages.clear();
+    }
+
+    /**
+     * Adds all compilation units importing one of the given packages to the result.
+     * Packages importing one of the packages with a public import are handled like the package itself,
+     * because they make its definitions visible to their importers.
+     */
+    void addImportingUnits(Collection<String> packageNames, Set<CompilationUnit> result) {
+        Set<String> visited = new HashSet<>(packageNames);
+        Deque<String> todo = new ArrayDeque<>(packageNames);
+        while (!todo.isEmpty()) {
+            String name = todo.pop();
+            for (Importer i : importers.getOrDefault(name, Collections.emptyList())) {
+                result.add(i.cu);
+                if (i.isPublic && visited.add(i.packageName)) {
+                    todo.push(i.packageName);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package de.peeeq.wurstio.languageserver;
+
+import de.peeeq.wurstscript.WurstParser;
+import de.peeeq.wurstscript.ast.*;
+import de.peeeq.wurstscript.attributes.CompileError;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
+import de.peeeq.wurstscript.gui.WurstGui;
+import de.peeeq.wurstscript.gui.WurstGuiLogger;
+import de.peeeq.wurstscript.parser.WPos;
+import de.peeeq.wurstscript.utils.LineOffsets;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses only the top-level entity of a compilation unit which was changed by an edit.
+ * <p>
+ * The changed range is found by comparing the old and the new content of the file.
+ * When it lies within the region of a single entity of the package (from the start of the line of the entity
+ * to the start of the line of the next entity), only this region is parsed again.
+ * The parser gets the package header followed by the region, so the lexer reaches the region
+ * in the same indentation state as in the full file. The positions of the parsed entities are then moved
+ * to their positions in the full file.
+ * The parsed entities replace the old entity in the compilation unit and the positions of the following
+ * entities are moved, all other elements of the compilation unit are kept.
+ * <p>
+ * This is only done for compilation units without syntax errors. When the region has syntax errors,
+ * the whole file must be parsed to get the same errors as with a full parse.
+ */
+class IncrementalParser {
+
+    private IncrementalParser() {
+    }
+
+    /**
+     * tries to update the compilation unit to the new content by parsing only the entity changed from the old content
+     *
+     * @return false if the whole file has to be parsed, the compilation unit is not changed in this case
+     */
+    static boolean reparse(CompilationUnit cu, String oldContent, String newContent) {
+        if (!cu.getJassDecls().isEmpty() || cu.getPackages().size() != 1) {
+            return false;
+        }
+        WPackage p = cu.getPackages().get(0);
+        WEntities entities = p.getElements();
+        if (entities.isEmpty()) {
+            return false;
+        }
+
+        // the changed range is [changeStart, oldChangeEnd) in the old content:
+        int changeStart = commonPrefixLength(oldContent, newContent);
+        int oldChangeEnd = oldContent.length()
+                - commonSuffixLength(oldContent, newContent, Math.min(oldContent.length(), newContent.length()) - changeStart);
+        int delta = newContent.length() - oldContent.length();
+
+        int[] regionStarts = new int[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            int start = entityStart(entities.get(i));
+            if (start < 0 || start > oldContent.length()) {
+                return false;
+            }
+            int lineStart = lineStart(oldContent, start);
+            if ((i > 0 && lineStart <= regionStarts[i - 1])
+                    || !oldContent.substring(lineStart, start).trim().isEmpty()) {
+                // entities must start on their own lines
+                return false;
+            }
+            regionStarts[i] = lineStart;
+        }
+        int index = -1;
+        for (int i = 0; i < entities.size(); i++) {
+            int regionEnd = i + 1 < entities.size() ? regionStarts[i + 1] : oldContent.length();
+            if (regionStarts[i] <= changeStart && oldChangeEnd <= regionEnd) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            // the change is in the package header or spans several entities
+            return false;
+        }
+        int headerEnd = regionStarts[0];
+        int regionStart = regionStarts[index];
+        int newRegionEnd = index + 1 < entities.size() ? regionStarts[index + 1] + delta : newContent.length();
+
+        // parse only the package header and the region:
+        String input = newContent.substring(0, headerEnd) + newContent.substring(regionStart, newRegionEnd);
+        String file = cu.getCuInfo().getFile();
+        WurstGui gui = new WurstGuiLogger();
+        CompilationUnit parsed;
+        try {
+            parsed = new WurstParser(new ErrorHandler(gui), gui).parse(new StringReader(input), file, true);
+        } catch (CompileError e) {
+            return false;
+        }
+        if (!gui.getErrorsAndWarnings().isEmpty() || parsed.getPackages().size() != 1
+                || !parsed.getCuInfo().getIndentationMode().getIndent().equals(cu.getCuInfo().getIndentationMode().getIndent())) {
+            return false;
+        }
+        WPackage parsedPackage = parsed.getPackages().get(0);
+        LineOffsets lineOffsets = lineOffsets(newContent);
+        int regionDelta = regionStart - headerEnd;
+
+        List<WEntity> parsedEntities = new ArrayList<>(parsedPackage.getElements().removeAll());
+        for (WEntity e : parsedEntities) {
+            movePositions(e, lineOffsets, regionDelta);
+        }
+        for (int i = index + 1; i < entities.size(); i++) {
+            movePositions(entities.get(i), lineOffsets, delta);
+        }
+        entities.remove(index);
+        entities.addAll(index, parsedEntities);
+
+        // module instantiations are expanded again by the type checker, since the changed entity might be a used module
+        cu.accept(new WurstModel.DefaultVisitor() {
+            @Override
+            public void visit(ModuleInstanciations mis) {
+                super.visit(mis);
+                mis.clear();
+            }
+        });
+
+        WPos packageSource = p.getSource();
+        int packageEnd = packageSource.getRightPos() >= oldChangeEnd
+                ? packageSource.getRightPos() + delta
+                : parsedPackage.getSource().getRightPos() + regionDelta;
+        p.setSource(new WPos(packageSource.getFile(), lineOffsets, packageSource.getLeftPos(), packageEnd));
+        return true;
+    }
+
+    /**
+     * the line offsets of the content, as the lexer would compute them for the whole file
+     */
+    private static LineOffsets lineOffsets(String content) {
+        LineOffsets lineOffsets = new LineOffsets();
+        int line = 1;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                lineOffsets.set(line, i);
+                line++;
+            }
+        }
+        lineOffsets.set(line, content.length());
+        return lineOffsets;
+    }
+
+    /**
+     * the start of the entity including its modifiers and hotdoc comment, or -1 for artificial positions
+     */
+    private static int entityStart(WEntity e) {
+        WPos source = e.getSource();
+        if (source.isArtificial()) {
+            return -1;
+        }
+        int start = source.getLeftPos();
+        if (e instanceof HasModifier) {
+            for (Modifier m : ((HasModifier) e).getModifiers()) {
+                start = Math.min(start, m.getSource().getLeftPos());
+            }
+        }
+        return start;
+    }
+
+    private static void movePositions(Element e, LineOffsets lineOffsets, int delta) {
+        if (e instanceof AstElementWithSource) {
+            AstElementWithSource ws = (AstElementWithSource) e;
+            WPos source = ws.getSource();
+            ws.setSource(new WPos(source.getFile(), lineOffsets, source.getLeftPos() + delta, source.getRightPos() + delta));
+        }
+        for (int i = 0; i < e.size(); i++) {
+            movePositions(e.get(i), lineOffsets, delta);
+        }
+    }
+
+    private static int lineStart(String s, int offset) {
+        return s.lastIndexOf('\n', offset - 1) + 1;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int commonSuffixLength(String a, String b, int max) {
+        int i = 0;
+        while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+            i++;
+        }
+        return i;
+    }
+
+}
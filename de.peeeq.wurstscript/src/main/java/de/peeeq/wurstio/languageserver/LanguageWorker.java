@@ -1,13 +1,18 @@
 package de.peeeq.wurstio.languageserver;
 
+import de.peeeq.wurstio.ModelChangedException;
+import de.peeeq.wurstio.TypecheckCancellation;
 import de.peeeq.wurstio.languageserver.requests.HoverInfo;
 import de.peeeq.wurstio.languageserver.requests.UserRequest;
 import de.peeeq.wurstscript.WLogger;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.services.LanguageClient;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -18,10 +23,17 @@ public class LanguageWorker implements Runnable {
     private static class Workitem {
         private String description;
         private Runnable runnable;
+        // false for work items, which only read the model
+        private boolean changesModel;
 
         public Workitem(String description, Runnable runnable) {
+            this(description, runnable, true);
+        }
+
+        public Workitem(String description, Runnable runnable, boolean changesModel) {
             this.description = description;
             this.runnable = runnable;
+            this.changesModel = changesModel;
         }
 
         void run() {
@@ -35,6 +47,26 @@ public class LanguageWorker implements Runnable {
     }
 
     private final Map<WFile, PendingChange> changes = new LinkedHashMap<>();
+    // the files of the changes which are currently processed
+    private volatile Set<WFile> filesInProgress = Collections.emptySet();
+    // set when a newer change arrives for one of the files in progress, which aborts the running typecheck
+    private volatile boolean changesOutdated = false;
+    // copy of the model for answering read only requests while the worker is busy
+    private volatile @Nullable ModelManager snapshot;
+    // the number of finished work items which changed the model, when the snapshot was taken
+    private long snapshotVersion = -1;
+    // the number of finished work items which changed the model
+    private long modelVersion = 0;
+    // set when a read only request arrived while the worker was busy,
+    // copying the model is expensive, so snapshots are only taken when they are needed
+    private boolean snapshotWanted = false;
+    private volatile boolean busy = false;
+    // attributes are computed lazily and are not synchronized, so only one request at a time can use the snapshot
+    private final ExecutorService readOnlyRequestExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Wurst read only requests");
+        t.setDaemon(true);
+        return t;
+    });
     private final AtomicLong currentTime = new AtomicLong();
     private final Queue<UserRequest<?>> userRequests = new LinkedList<>();
     private final Thread thread;
@@ -68,6 +100,7 @@ public class LanguageWorker implements Runnable {
 
     public void stop() {
         thread.interrupt();
+        readOnlyRequestExecutor.shutdownNow();
     }
 
     abstract class PendingChange {
@@ -131,12 +164,20 @@ public class LanguageWorker implements Runnable {
                 if (work != null) {
                     // actual work is not synchronized, so that requests can
                     // come in while the work is done
+                    busy = true;
                     try {
                         work.run();
                     } catch (Throwable e) {
                         languageClient.showMessage(new MessageParams(MessageType.Error, "Request '" + work + "' could not be processed (see log for details): " + e.toString()));
                         WLogger.severe(e);
                         System.err.println("Error in request '" + work + "' (see log for details): " + e.getMessage());
+                    } finally {
+                        synchronized (lock) {
+                            if (work.changesModel) {
+                                modelVersion++;
+                            }
+                            busy = false;
+                        }
                     }
                 }
             }
@@ -157,39 +198,80 @@ public class LanguageWorker implements Runnable {
             }
         } else if (!userRequests.isEmpty()) {
             UserRequest<?> req = userRequests.remove();
-            return new Workitem(req.toString(), () -> req.run(modelManager));
+            return new Workitem(req.toString(), () -> req.run(modelManager), !req.isReadOnly());
         } else if (!changes.isEmpty()) {
-            // TODO this can be done more efficiently than doing one at a time
-            PendingChange change = removeFirst(changes);
-            return new Workitem(change.toString(), () -> {
-                if (isWurstDependencyFile(change)) {
-                    if (!(change instanceof FileReconcile)) {
-                        modelManager.clean();
-                    }
-                } else if (change instanceof FileDeleted) {
-                    modelManager.removeCompilationUnit(change.getFilename());
-                } else if (change instanceof FileUpdated) {
-                    modelManager.syncCompilationUnit(change.getFilename());
-                } else if (change instanceof FileReconcile) {
-                    FileReconcile fr = (FileReconcile) change;
-                    modelManager.syncCompilationUnitContent(fr.getFilename(), fr.getContents());
-                } else {
-                    WLogger.info("unhandled change request: " + change);
+            // take all pending changes, so that the affected compilation units are only checked once
+            List<PendingChange> batch = new ArrayList<>(changes.values());
+            filesInProgress = new HashSet<>(changes.keySet());
+            changesOutdated = false;
+            changes.clear();
+            return new Workitem("sync " + batch.size() + " changed files", () -> applyChanges(batch));
+        } else if (snapshotWanted && snapshotVersion != modelVersion) {
+            // nothing else to do and read only requests had to wait, so take a new snapshot
+            snapshotWanted = false;
+            long version = modelVersion;
+            return new Workitem("snapshot", () -> {
+                ModelManager newSnapshot = modelManager.snapshot();
+                synchronized (lock) {
+                    snapshot = newSnapshot;
+                    snapshotVersion = version;
                 }
-            });
+            }, false);
         }
         return null;
     }
 
-    private boolean isWurstDependencyFile(PendingChange change) {
-        return change.getFilename().getUriString().endsWith("wurst.dependencies");
+    private void applyChanges(List<PendingChange> batch) {
+        List<WFile> updatedFiles = new ArrayList<>();
+        Map<WFile, String> newContents = new LinkedHashMap<>();
+        List<WFile> deletedFiles = new ArrayList<>();
+        for (PendingChange change : batch) {
+            if (isWurstDependencyFile(change)) {
+                if (!(change instanceof FileReconcile)) {
+                    modelManager.clean();
+                }
+            } else if (change instanceof FileDeleted) {
+                deletedFiles.add(change.getFilename());
+            } else if (change instanceof FileUpdated) {
+                updatedFiles.add(change.getFilename());
+            } else if (change instanceof FileReconcile) {
+                FileReconcile fr = (FileReconcile) change;
+                newContents.put(fr.getFilename(), fr.getContents());
+            } else {
+                WLogger.info("unhandled change request: " + change);
+            }
+        }
+        try {
+            TypecheckCancellation.runCancellable(() -> changesOutdated,
+                () -> modelManager.syncCompilationUnits(updatedFiles, newContents, deletedFiles));
+        } catch (ModelChangedException e) {
+            // handled below
+        } finally {
+            synchronized (lock) {
+                if (changesOutdated) {
+                    // the check was aborted without reporting errors,
+                    // so the other files have to be checked again together with the newer changes
+                    WLogger.info("Typecheck aborted because of newer changes.");
+                    for (PendingChange change : batch) {
+                        if (!isWurstDependencyFile(change)) {
+                            changes.putIfAbsent(change.getFilename(), change);
+                        }
+                    }
+                }
+                filesInProgress = Collections.emptySet();
+            }
+        }
+    }
+
+    private void addChange(PendingChange change) {
+        changes.put(change.getFilename(), change);
+        if (filesInProgress.contains(change.getFilename())) {
+            changesOutdated = true;
+        }
     }
 
-    private PendingChange removeFirst(Map<WFile, PendingChange> changes) {
-        Iterator<Map.Entry<WFile, PendingChange>> it = changes.entrySet().iterator();
-        Map.Entry<WFile, PendingChange> e = it.next();
-        it.remove();
-        return e.getValue();
+    private boolean isWurstDependencyFile(PendingChange change) {
+        return change.getFilename().getUriString().endsWith("wurst.dependencies");
     }
 
     private void doInit(WFile rootPath) {
@@ -224,9 +306,9 @@ public class LanguageWorker implements Runnable {
 
                 WFile file = WFile.create(fileEvent.getUri());
                 if (fileEvent.getType() == FileChangeType.Deleted) {
-                    changes.put(file, new FileDeleted(file));
+                    addChange(new FileDeleted(file));
                 } else {
-                    changes.put(file, new FileUpdated(file));
+                    addChange(new FileUpdated(file));
                 }
             }
             lock.notifyAll();
@@ -238,25 +320,47 @@ public class LanguageWorker implements Runnable {
             bufferManager.handleChange(params);
             WFile file = WFile.create(params.getTextDocument().getUri());
 
-            changes.put(file, new FileReconcile(file, bufferManager.getBuffer(params.getTextDocument())));
+            addChange(new FileReconcile(file, bufferManager.getBuffer(params.getTextDocument())));
             lock.notifyAll();
         }
     }
 
+    private void addUserRequest(UserRequest<?> request) {
+        if (!request.keepDuplicateRequests()) {
+            Iterator<UserRequest<?>> it = userRequests.iterator();
+            while (it.hasNext()) {
+                UserRequest<?> o = it.next();
+                if (o.getClass().equals(request.getClass())) {
+                    o.cancel();
+                    it.remove();
+                }
+            }
+        }
+        userRequests.add(request);
+        lock.notifyAll();
+    }
+
     public <Res> CompletableFuture<Res> handle(UserRequest<Res> request) {
         synchronized (lock) {
-            if (!request.keepDuplicateRequests()) {
-                Iterator<UserRequest<?>> it = userRequests.iterator();
-                while (it.hasNext()) {
-                    UserRequest<?> o = it.next();
-                    if (o.getClass().equals(request.getClass())) {
-                        o.cancel();
-                        it.remove();
+            ModelManager snapshot = this.snapshot;
+            if (request.isReadOnly() && busy) {
+                // keep the snapshot up to date, while read only requests arrive during longer work
+                snapshotWanted = true;
+            }
+            if (request.isReadOnly() && busy && snapshot != null && snapshotVersion == modelVersion) {
+                // do not wait for the worker, answer the request using the snapshot of the model
+                // as it was before the current work item
+                readOnlyRequestExecutor.execute(() -> {
+                    if (!request.runOnSnapshot(snapshot)) {
+                        // the compilation unit of the request changed since the snapshot was taken
+                        synchronized (lock) {
+                            addUserRequest(request);
+                        }
                     }
-                }
+                });
+            } else {
+                addUserRequest(request);
             }
-            userRequests.add(request);
-            lock.notifyAll();
             CompletableFuture<Res> fut = request.getFuture();
             CompletableFuture<Res> resFut = new CompletableFuture<>();
             fut.whenComplete((res, err) -> {
@@ -1,14 +1,19 @@
 package de.peeeq.wurstio.languageserver;
 
 import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.Element;
 import de.peeeq.wurstscript.ast.ModuleInstanciations;
+import de.peeeq.wurstscript.ast.NameDef;
 import de.peeeq.wurstscript.ast.WurstModel;
 import de.peeeq.wurstscript.attributes.CompileError;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.SymbolInformation;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -31,6 +36,17 @@ public interface ModelManager {
 
     void syncCompilationUnitContent(WFile filename, String contents);
 
+    /**
+     * Applies the changes to several files at once.
+     * All changed compilation units and the ones depending on them are typechecked together
+     * and the errors are reported once for each affected file.
+     *
+     * @param updatedFiles files which changed on disk
+     * @param newContents  files with new contents, which are not yet saved to disk
+     * @param deletedFiles files which were deleted
+     */
+    void syncCompilationUnits(Collection<WFile> updatedFiles, Map<WFile, String> newContents, Collection<WFile> deletedFiles);
+
     CompilationUnit replaceCompilationUnitContent(WFile filename, String buffer, boolean reportErrors);
 
     /**
@@ -42,6 +58,16 @@ public interface ModelManager {
 
     WurstModel getModel();
 
+    /**
+     * returns all elements in the model referencing the given definition, including the definition itself
+     */
+    List<Element> findReferences(NameDef def);
+
+    /**
+     * returns at most limit symbols of the workspace matching the query, best matches first
+     */
+    List<SymbolInformation> searchSymbols(String query, int limit);
+
     boolean hasErrors();
 
     static WurstModel copy(WurstModel model) {
@@ -58,4 +84,11 @@ public interface ModelManager {
     }
 
     File getProjectPath();
+
+    /**
+     * Creates a copy of the current state, which can be used from another thread while this model manager is changed.
+     * The snapshot is never changed: {@link #replaceCompilationUnitContent(WFile, String, boolean)} only returns
+     * unchanged compilation units and throws a {@link SnapshotOutdatedException} for changed contents.
+     */
+    ModelManager snapshot();
 }
\ No newline at end of file
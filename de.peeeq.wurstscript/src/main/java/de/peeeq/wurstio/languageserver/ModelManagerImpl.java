@@ -4,12 +4,16 @@ import com.google.common.base.Charsets;
 import com.google.common.collect.*;
 import com.google.common.io.Files;
 import de.peeeq.wurstio.ModelChangedException;
+import de.peeeq.wurstio.ParseCache;
 import de.peeeq.wurstio.WurstCompilerJassImpl;
 import de.peeeq.wurstio.utils.FileUtils;
+import de.peeeq.wurstscript.ModuleExpander;
 import de.peeeq.wurstscript.RunArgs;
 import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.ast.*;
+import de.peeeq.wurstscript.attributes.CompilationUnitInfo;
 import de.peeeq.wurstscript.attributes.CompileError;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
 import de.peeeq.wurstscript.gui.WurstGui;
 import de.peeeq.wurstscript.gui.WurstGuiLogger;
 import de.peeeq.wurstscript.parser.WPos;
@@ -17,12 +21,14 @@ import de.peeeq.wurstscript.utils.LineOffsets;
 import de.peeeq.wurstscript.utils.Utils;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.SymbolInformation;
 
 import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,15 +51,77 @@ public class ModelManagerImpl implements ModelManager {
     // other errors for each file
     private Map<WFile, List<CompileError>> otherErrors = new LinkedHashMap<>();
 
+    // snapshots are only read, see #snapshot()
+    private final boolean isSnapshot;
+
     // hashcode for each compilation unit content as string
     private Map<WFile, Integer> fileHashcodes = new HashMap<>();
 
+    // last parsed content of each project file, for parsing only the changed parts
+    private Map<WFile, String> projectFileContents = new HashMap<>();
+
     // file for each compilation unit
     private WeakHashMap<CompilationUnit, WFile> compilationunitFile = new WeakHashMap<>();
 
+    // cache for parsed dependency files
+    private final ParseCache parseCache;
+
+    // reverse import graph of the compilation units in the model
+    private final ImportIndex importIndex = new ImportIndex();
+
+    // references to each definition, for finding usages
+    private final ReferenceIndex referenceIndex = new ReferenceIndex();
+
+    // symbols of each file, for the workspace symbol search
+    private final SymbolIndex symbolIndex;
+
     public ModelManagerImpl(File projectPath, BufferManager bufferManager) {
         this.projectPath = projectPath;
         this.bufferManager = bufferManager;
+        this.parseCache = ParseCache.forProject(projectPath);
+        this.symbolIndex = new SymbolIndex();
+        this.isSnapshot = false;
+    }
+
+    /**
+     * creates a snapshot with the given copy of the model, see {@link #snapshot()}
+     */
+    private ModelManagerImpl(ModelManagerImpl other, @Nullable WurstModel model) {
+        this.projectPath = other.projectPath;
+        this.bufferManager = other.bufferManager;
+        this.parseCache = other.parseCache;
+        this.dependencies.addAll(other.dependencies);
+        this.parseErrors = new LinkedHashMap<>(other.parseErrors);
+        this.otherErrors = new LinkedHashMap<>(other.otherErrors);
+        this.fileHashcodes = new HashMap<>(other.fileHashcodes);
+        this.projectFileContents = new HashMap<>(other.projectFileContents);
+        this.symbolIndex = new SymbolIndex(other.symbolIndex);
+        this.model = model;
+        this.isSnapshot = true;
+        if (model != null) {
+            // the copied compilation units still share the compilation unit infos with the original model
+            ErrorHandler errorHandler = new ErrorHandler(new WurstGuiLogger());
+            for (CompilationUnit cu : model) {
+                CompilationUnitInfo info = new CompilationUnitInfo(errorHandler);
+                info.setFile(cu.getCuInfo().getFile());
+                info.setIndentationMode(cu.getCuInfo().getIndentationMode());
+                cu.setCuInfo(info);
+                importIndex.add(cu);
+            }
+            try {
+                for (CompilationUnit cu : model) {
+                    ModuleExpander.expandModules(cu);
+                }
+            } catch (CompileError e) {
+                WLogger.info("Could not expand modules in snapshot: " + e);
+            }
+        }
+    }
+
+    @Override
+    public ModelManager snapshot() {
+        WurstModel model2 = model;
+        return new ModelManagerImpl(this, model2 == null ? null : ModelManager.copy(model2));
     }
 
     private WurstModel newModel(CompilationUnit cu, WurstGui gui) {
@@ -95,14 +163,18 @@ public class ModelManagerImpl implements ModelManager {
         }
 
         syncCompilationUnitContent(resource, "");
-        return model2.removeIf(cu -> wFile(cu).equals(resource));
+        return removeFromModel(model2, cu -> wFile(cu).equals(resource));
     }
 
     @Override
     public void clean() {
         fileHashcodes.clear();
+        projectFileContents.clear();
         parseErrors.clear();
         model = null;
+        importIndex.clear();
+        referenceIndex.clear();
+        symbolIndex.clear();
         dependencies.clear();
         WLogger.info("Clean done.");
     }
@@ -128,6 +200,7 @@ public class ModelManagerImpl implements ModelManager {
             processWurstFiles(wurstFolder);
 
             resolveImports(gui);
+            WLogger.info(parseCache.getStatistics());
 
             doTypeCheck(gui);
         } catch (IOException e) {
@@ -239,13 +312,17 @@ public class ModelManagerImpl implements ModelManager {
         Set<String> packageNames = Sets.newHashSet();
         for (CompilationUnit cu : toCheck) {
             cu.clearAttributes();
+            referenceIndex.invalidate(cu);
             for (WPackage p : cu.getPackages()) {
                 packageNames.add(p.getName());
             }
         }
-        for (CompilationUnit cu : model2) {
-            if (imports(cu, packageNames)) {
+        Set<CompilationUnit> importing = Collections.newSetFromMap(new IdentityHashMap<>());
+        importIndex.addImportingUnits(packageNames, importing);
+        for (CompilationUnit cu : importing) {
+            if (!cleared.contains(cu)) {
                 cu.clearAttributes();
+                referenceIndex.invalidate(cu);
                 cleared.add(cu);
             }
         }
@@ -253,39 +330,19 @@ public class ModelManagerImpl implements ModelManager {
     }
 
     /**
-     * check whether cu imports something from 'toCheck'
+     * removes the matching compilation units from the model
      */
-    private boolean imports(CompilationUnit cu, Set<String> packageNames) {
-        for (WPackage p : cu.getPackages()) {
-            if (imports(p, packageNames, false, Sets.newHashSet())) {
+    private boolean removeFromModel(WurstModel model, Predicate<CompilationUnit> filter) {
+        return model.removeIf(cu -> {
+            if (filter.test(cu)) {
+                importIndex.remove(cu);
+                referenceIndex.invalidate(cu);
+                symbolIndex.remove(wFile(cu));
+                projectFileContents.remove(wFile(cu));
                 return true;
             }
-        }
-
-        return false;
-    }
-
-    /**
-     * check whether p imports something from 'toCheck'
-     */
-    private boolean imports(WPackage p, Set<String> packageNames, boolean onlyPublic, HashSet<WPackage> visited) {
-        if (visited.contains(p)) {
             return false;
-        }
-        visited.add(p);
-        for (WImport imp : p.getImports()) {
-            if ((!onlyPublic || imp.getIsPublic()) && packageNames.contains(imp.getPackagename())) {
-                return true;
-            } else {
-                WPackage importedPackage = imp.attrImportedPackage();
-                if ((!onlyPublic || imp.getIsPublic())
-                        && importedPackage != null
-                        && imports(importedPackage, packageNames, true, visited)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        });
     }
 
     private void doTypeCheck(WurstGui gui) {
@@ -304,6 +361,7 @@ public class ModelManagerImpl implements ModelManager {
 
         try {
             model2.clearAttributes();
+            referenceIndex.clear();
             comp.addImportedLibs(model2, this::addCompilationUnit);
             comp.checkProg(model2);
         } catch (CompileError e) {
@@ -373,6 +431,13 @@ public class ModelManagerImpl implements ModelManager {
         WurstModel model2 = model;
         if (model2 == null) {
             model = newModel(cu, gui);
+            importIndex.clear();
+            referenceIndex.clear();
+            symbolIndex.clear();
+            for (CompilationUnit c : model) {
+                importIndex.add(c);
+                symbolIndex.update(wFile(c), c);
+            }
         } else {
             ListIterator<CompilationUnit> it = model2.listIterator();
             boolean updated = false;
@@ -380,14 +445,22 @@ public class ModelManagerImpl implements ModelManager {
                 CompilationUnit c = it.next();
                 if (wFile(c).equals(wFile(cu))) {
                     clearAttributes(Collections.singletonList(cu));
-                    // replace old compilationunit with new one:
-                    it.set(cu);
+                    if (c != cu) {
+                        // replace old compilationunit with new one:
+                        it.set(cu);
+                    }
+                    importIndex.remove(c);
+                    importIndex.add(cu);
+                    referenceIndex.invalidate(c);
+                    symbolIndex.update(wFile(cu), cu);
                     updated = true;
                     break;
                 }
             }
             if (!updated) {
                 model2.add(cu);
+                importIndex.add(cu);
+                symbolIndex.update(wFile(cu), cu);
             }
         }
         //doTypeCheckPartial(gui, false, ImmutableList.of(cu.getFile()));
@@ -435,6 +508,7 @@ public class ModelManagerImpl implements ModelManager {
                 return;
             }
             m.clearAttributes();
+            referenceIndex.clear();
             comp.addImportedLibs(m, this::addCompilationUnit);
         } catch (CompileError e) {
             gui.sendError(e);
@@ -474,6 +548,58 @@ public class ModelManagerImpl implements ModelManager {
         doTypeCheckPartial(gui, ImmutableList.of(filename), oldPackages);
     }
 
+    @Override
+    public void syncCompilationUnits(Collection<WFile> updatedFiles, Map<WFile, String> newContents, Collection<WFile> deletedFiles) {
+        WLogger.info("sync files " + updatedFiles + ", contents for " + newContents.keySet() + ", deleted " + deletedFiles);
+        Map<WFile, String> contents = new LinkedHashMap<>(newContents);
+        Set<WFile> deleted = new LinkedHashSet<>(deletedFiles);
+        for (WFile filename : updatedFiles) {
+            if (contents.containsKey(filename) || deleted.contains(filename)) {
+                continue;
+            }
+            try {
+                File f = filename.getFile();
+                if (!f.exists()) {
+                    deleted.add(filename);
+                    continue;
+                }
+                String fileContents = Files.toString(f, Charsets.UTF_8);
+                bufferManager.updateFile(WFile.create(f), fileContents);
+                contents.put(filename, fileContents);
+            } catch (FileNotFoundException e) {
+                WLogger.info("Cannot sync " + filename + "\n" + e);
+            } catch (IOException e) {
+                WLogger.severe(e);
+                throw new ModelManagerException(e);
+            }
+        }
+        for (WFile filename : deleted) {
+            // deleted files are checked with empty contents first, so that errors are reported in the files using them
+            contents.put(filename, "");
+        }
+
+        List<WFile> changed = new ArrayList<>();
+        Set<String> oldPackages = new HashSet<>();
+        for (Map.Entry<WFile, String> e : contents.entrySet()) {
+            oldPackages.addAll(declaredPackages(e.getKey()));
+            // errors are reported after the typecheck, together with the type errors
+            replaceCompilationUnit(e.getKey(), e.getValue(), false);
+            changed.add(e.getKey());
+        }
+        if (!changed.isEmpty()) {
+            WurstGui gui = new WurstGuiLogger();
+            doTypeCheckPartial(gui, changed, oldPackages);
+        }
+
+        WurstModel model2 = model;
+        if (model2 != null && !deleted.isEmpty()) {
+            removeFromModel(model2, cu -> deleted.contains(wFile(cu)));
+            for (WFile filename : deleted) {
+                parseErrors.remove(filename);
+            }
+        }
+    }
+
     private Set<String> declaredPackages(WFile f) {
         WurstModel model = this.model;
         if (model == null) {
@@ -520,11 +646,24 @@ public class ModelManagerImpl implements ModelManager {
                 WLogger.info("CU changed. oldHash = " + oldHash + " == " + contents.hashCode());
             }
         }
+        if (isSnapshot) {
+            throw new SnapshotOutdatedException(filename);
+        }
 
         WLogger.trace("replace CU " + filename);
         WurstGui gui = new WurstGuiLogger();
         WurstCompilerJassImpl c = getCompiler(gui);
-        CompilationUnit cu = c.parse(filename.toString(), new StringReader(contents));
+        CompilationUnit cu;
+        if (isInProjectWurstFolder(filename)) {
+            // project files change all the time, so they are not worth caching
+            cu = reparseChangedEntity(filename, contents);
+            if (cu == null) {
+                cu = c.parse(filename.toString(), new StringReader(contents));
+            }
+            projectFileContents.put(filename, contents);
+        } else {
+            cu = c.parseCached(filename.toString(), contents, parseCache);
+        }
         cu.getCuInfo().setFile(filename.toString());
         updateModel(cu, gui);
         fileHashcodes.put(filename, contents.hashCode());
@@ -537,6 +676,31 @@ public class ModelManagerImpl implements ModelManager {
         return cu;
     }
 
+    /**
+     * parses only the changed top-level entity of a file, see {@link IncrementalParser}
+     *
+     * @return the changed compilation unit or null, if the whole file has to be parsed
+     */
+    private @Nullable CompilationUnit reparseChangedEntity(WFile filename, String contents) {
+        String oldContents = projectFileContents.get(filename);
+        List<CompileError> oldErrors = parseErrors.get(filename);
+        if (oldContents == null || oldErrors == null || !oldErrors.isEmpty()
+                || !filename.toString().endsWith(".wurst")) {
+            return null;
+        }
+        CompilationUnit cu = getCompilationUnit(filename);
+        if (cu == null) {
+            return null;
+        }
+        // the removed entity is not part of the compilation unit afterwards, so it cannot be invalidated later
+        referenceIndex.invalidate(cu);
+        if (!IncrementalParser.reparse(cu, oldContents, contents)) {
+            return null;
+        }
+        WLogger.trace("reparsed changed entity in " + filename);
+        return cu;
+    }
+
     @Override
     public CompilationUnit getCompilationUnit(WFile filename) {
         List<CompilationUnit> matches = getCompilationUnits(Collections.singletonList(filename));
@@ -547,6 +711,20 @@ public class ModelManagerImpl implements ModelManager {
         return matches.get(0);
     }
 
+    @Override
+    public List<Element> findReferences(NameDef def) {
+        WurstModel model2 = model;
+        if (model2 == null) {
+            return Collections.emptyList();
+        }
+        return referenceIndex.getReferences(def, model2);
+    }
+
+    @Override
+    public List<SymbolInformation> searchSymbols(String query, int limit) {
+        return symbolIndex.search(query, limit);
+    }
+
     @Override
     public WurstModel getModel() {
         return model;
@@ -629,33 +807,11 @@ public class ModelManagerImpl implements ModelManager {
         Set<String> affectedPackages = Stream.concat(providedPackages, oldPackages.stream())
                 .collect(Collectors.toSet());
 
-        addImportingPackages(affectedPackages, model, result);
+        importIndex.addImportingUnits(affectedPackages, result);
 
         return result;
     }
 
-    private void addImportingPackages(Collection<String> providedPackages, WurstModel model2, Set<CompilationUnit> result) {
-        nextCu:
-        for (CompilationUnit compilationUnit : model2) {
-            if (result.contains(compilationUnit)) {
-                continue;
-            }
-            for (WPackage p : compilationUnit.getPackages()) {
-                for (WImport imp : p.getImports()) {
-                    String importedPackage = imp.getPackagenameId().getName();
-                    if (providedPackages.contains(importedPackage)) {
-                        result.add(compilationUnit);
-                        if (imp.getIsPublic()) {
-                            // recursive call terminates, because it is only called for packages not yet in result
-                            addImportingPackages(Collections.singletonList(p.getName()), model2, result);
-                        }
-                        continue nextCu;
-                    }
-                }
-            }
-        }
-    }
-
     @Override
     public synchronized Set<File> getDependencyWurstFiles() {
         Set<File> result = Sets.newHashSet();
@@ -679,6 +835,10 @@ public class ModelManagerImpl implements ModelManager {
         return compilationunitFile.computeIfAbsent(cu, c -> WFile.create(cu.getCuInfo().getFile()));
     }
 
+    private boolean isInProjectWurstFolder(WFile file) {
+        return FileUtils.isInDirectoryTrans(file, WFile.create(new File(projectPath, "wurst")));
+    }
+
     /**
      * checks if the given file is in the wurst folder or inside a dependency
      */
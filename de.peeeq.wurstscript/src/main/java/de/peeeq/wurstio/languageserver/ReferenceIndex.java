@@ -0,0 +1,75 @@
+package de.peeeq.wurstio.languageserver;
+
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.ast.NameDef;
+
+import java.util.*;
+
+/**
+ * Maps each definition to the elements referencing it (including the definition itself).
+ * <p>
+ * Compilation units are indexed lazily, when references are requested.
+ * A compilation unit must be invalidated whenever its attributes are cleared,
+ * because its references might resolve to different definitions afterwards.
+ */
+class ReferenceIndex {
+
+    private final Map<NameDef, List<Element>> references = new IdentityHashMap<>();
+    /**
+     * the referenced definitions of each indexed compilation unit
+     */
+    private final Map<CompilationUnit, Set<NameDef>> referencedDefs = new IdentityHashMap<>();
+
+    /**
+     * returns all elements referencing the given definition, after indexing all compilation units not indexed yet
+     */
+    List<Element> getReferences(NameDef def, Iterable<CompilationUnit> model) {
+        for (CompilationUnit cu : model) {
+            if (!referencedDefs.containsKey(cu)) {
+                index(cu);
+            }
+        }
+        return Collections.unmodifiableList(references.getOrDefault(def, Collections.emptyList()));
+    }
+
+    private void index(CompilationUnit cu) {
+        Set<NameDef> defs = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Element> todo = new ArrayDeque<>();
+        todo.push(cu);
+        while (!todo.isEmpty()) {
+            Element e = todo.pop();
+            for (int i = 0; i < e.size(); i++) {
+                todo.push(e.get(i));
+            }
+            NameDef def = e.tryGetNameDef();
+            if (def != null) {
+                references.computeIfAbsent(def, d -> new ArrayList<>()).add(e);
+                defs.add(def);
+            }
+        }
+        referencedDefs.put(cu, defs);
+    }
+
+    void invalidate(CompilationUnit cu) {
+        Set<NameDef> defs = referencedDefs.remove(cu);
+        if (defs == null) {
+            return;
+        }
+        for (NameDef def : defs) {
+            List<Element> list = references.get(def);
+            if (list != null) {
+                list.removeIf(e -> e.attrCompilationUnit() == cu);
+                if (list.isEmpty()) {
+                    references.remove(def);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        references.clear();
+        referencedDefs.clear();
+    }
+
+}
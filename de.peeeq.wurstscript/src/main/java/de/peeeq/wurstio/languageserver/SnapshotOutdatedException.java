@@ -0,0 +1,13 @@
+package de.peeeq.wurstio.languageserver;
+
+/**
+ * thrown when a request on a snapshot of the model needs a compilation unit, which changed after the snapshot was taken
+ */
+public class SnapshotOutdatedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SnapshotOutdatedException(WFile file) {
+        super("The snapshot of the model is outdated for file " + file);
+    }
+
+}
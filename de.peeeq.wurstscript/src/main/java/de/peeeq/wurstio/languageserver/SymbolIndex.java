@@ -0,0 +1,306 @@
+package de.peeeq.wurstio.languageserver;
+
+import de.peeeq.wurstscript.ast.*;
+import de.peeeq.wurstscript.utils.Utils;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.SymbolKind;
+
+import java.util.*;
+
+/**
+ * Index of the symbols in the workspace, for the workspace symbol search.
+ * <p>
+ * The symbols are stored per file and are updated when a compilation unit is added to or removed from the model.
+ * A search compares the query with the names of all symbols, but most symbols are rejected
+ * by comparing a bit mask of the characters in the query with the characters in the name.
+ */
+class SymbolIndex {
+
+    private static final int SCORE_EXACT = 100;
+    private static final int SCORE_PREFIX = 80;
+    private static final int SCORE_CAMEL_CASE = 60;
+    private static final int SCORE_SUBSTRING = 50;
+    private static final int SCORE_QUALIFIED_SUBSTRING = 40;
+    private static final int SCORE_SUBSEQUENCE = 20;
+    private static final int NO_MATCH = -1;
+
+    private static class Entry {
+        private final SymbolInformation symbol;
+        private final String name;
+        private final String lowerName;
+        private final String lowerQualifiedName;
+        private final long charMask;
+
+        Entry(SymbolInformation symbol) {
+            this.symbol = symbol;
+            this.name = symbol.getName();
+            this.lowerName = name.toLowerCase();
+            this.lowerQualifiedName = (symbol.getContainerName() + "." + name).toLowerCase();
+            this.charMask = Utils.charMask(lowerQualifiedName);
+        }
+    }
+
+    private static class Match {
+        private final Entry entry;
+        private final int score;
+
+        Match(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Match> BEST_FIRST = Comparator.<Match>comparingInt(m -> -m.score)
+            .thenComparingInt(m -> m.entry.name.length())
+            .thenComparing(m -> m.entry.name)
+            .thenComparing(m -> m.entry.lowerQualifiedName);
+
+    private final Map<WFile, List<Entry>> symbolsByFile;
+
+    SymbolIndex() {
+        symbolsByFile = new HashMap<>();
+    }
+
+    /**
+     * creates a copy of the given index
+     */
+    SymbolIndex(SymbolIndex other) {
+        // the lists of entries are never modified, so they can be shared
+        symbolsByFile = new HashMap<>(other.symbolsByFile);
+    }
+
+    /**
+     * adds the symbols of the compilation unit, replacing the previous symbols of the file
+     */
+    void update(WFile file, CompilationUnit cu) {
+        List<Entry> entries = new ArrayList<>();
+        for (SymbolInformation s : symbolsFromCu(cu)) {
+            entries.add(new Entry(s));
+        }
+        symbolsByFile.put(file, entries);
+    }
+
+    void remove(WFile file) {
+        symbolsByFile.remove(file);
+    }
+
+    void clear() {
+        symbolsByFile.clear();
+    }
+
+    /**
+     * returns the symbols matching the query, best matches first
+     * <p>
+     * A symbol matches when the query is a prefix, a substring or a subsequence of its name
+     * (ignoring case), when it matches the initials of the camel case words in the name,
+     * or when it is a substring of the qualified name.
+     */
+    List<SymbolInformation> search(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        String lowerQuery = query.toLowerCase();
+        long queryMask = Utils.charMask(lowerQuery);
+        // keep the best matches in a heap, the worst match on top:
+        PriorityQueue<Match> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (List<Entry> entries : symbolsByFile.values()) {
+            for (Entry e : entries) {
+                if ((e.charMask & queryMask) != queryMask) {
+                    continue;
+                }
+                int score = score(e, query, lowerQuery);
+                if (score == NO_MATCH) {
+                    continue;
+                }
+                Match m = new Match(e, score);
+                if (best.size() < limit) {
+                    best.add(m);
+                } else if (BEST_FIRST.compare(m, best.peek()) < 0) {
+                    best.poll();
+                    best.add(m);
+                }
+            }
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(BEST_FIRST);
+        List<SymbolInformation> result = new ArrayList<>(matches.size());
+        for (Match m : matches) {
+            result.add(m.entry.symbol);
+        }
+        return result;
+    }
+
+    private static int score(Entry e, String query, String lowerQuery) {
+        if (lowerQuery.isEmpty()) {
+            return SCORE_SUBSEQUENCE;
+        }
+        if (e.lowerName.equals(lowerQuery)) {
+            return SCORE_EXACT;
+        } else if (e.lowerName.startsWith(lowerQuery)) {
+            return SCORE_PREFIX;
+        } else if (matchesCamelCase(e.name, query)) {
+            return SCORE_CAMEL_CASE;
+        } else if (e.lowerName.contains(lowerQuery)) {
+            return SCORE_SUBSTRING;
+        } else if (e.lowerQualifiedName.contains(lowerQuery)) {
+            return SCORE_QUALIFIED_SUBSTRING;
+        } else if (Utils.isSubsequence(lowerQuery, e.lowerName)) {
+            return SCORE_SUBSEQUENCE;
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * checks whether the characters of the query are the starts of the words in the name,
+     * for example "gud" and "GUData" match "getUnitData"
+     */
+    static boolean matchesCamelCase(String name, String query) {
+        int n = 0;
+        for (int q = 0; q < query.length(); q++) {
+            char c = Character.toLowerCase(query.charAt(q));
+            // continue the current word or skip to the next word starting with c:
+            if (q > 0 && n < name.length() && Character.toLowerCase(name.charAt(n)) == c) {
+                n++;
+                continue;
+            }
+            while (n < name.length() && !(isWordStart(name, n) && Character.toLowerCase(name.charAt(n)) == c)) {
+                n++;
+            }
+            if (n >= name.length()) {
+                return false;
+            }
+            n++;
+        }
+        return true;
+    }
+
+    private static boolean isWordStart(String name, int i) {
+        if (i == 0) {
+            return true;
+        }
+        char prev = name.charAt(i - 1);
+        char c = name.charAt(i);
+        return prev == '_'
+                || (Character.isUpperCase(c) && !Character.isUpperCase(prev))
+                || (Character.isDigit(c) && !Character.isDigit(prev));
+    }
+
+    private static List<SymbolInformation> symbolsFromCu(CompilationUnit cu) {
+        List<SymbolInformation> result = new ArrayList<>();
+        for (WPackage p : cu.getPackages()) {
+            addSymbolsForPackage(result, p);
+        }
+        return result;
+    }
+
+    private static void addSymbolsForPackage(List<SymbolInformation> result, WPackage p) {
+        result.add(new SymbolInformation(p.getName(), SymbolKind.Package, Convert.errorLocation(p), ""));
+        for (WEntity e : p.getElements()) {
+            addSymbolsForEntity(result, p.getName(), e);
+        }
+    }
+
+    private static void addSymbolsForEntity(List<SymbolInformation> result, String containerName, WEntity e) {
+        e.match(new WEntity.MatcherVoid() {
+            private void add(String name, SymbolKind kind) {
+                result.add(new SymbolInformation(name, kind, Convert.errorLocation(e), containerName));
+            }
+
+            @Override
+            public void case_ExtensionFuncDef(ExtensionFuncDef extensionFuncDef) {
+                add(extensionFuncDef.getName(), SymbolKind.Function);
+            }
+
+            @Override
+            public void case_ClassDef(ClassDef classDef) {
+                String name = classDef.getName();
+                add(name, SymbolKind.Class);
+                for (ClassDef c : classDef.getInnerClasses()) {
+                    addSymbolsForEntity(result, containerName + "." + name, c);
+                }
+                for (FuncDef f : classDef.getMethods()) {
+                    addSymbolsForEntity(result, containerName + "." + name, f);
+                }
+                for (GlobalVarDef v : classDef.getVars()) {
+                    addSymbolsForEntity(result, containerName + "." + name, v);
+                }
+            }
+
+            @Override
+            public void case_InterfaceDef(InterfaceDef interfaceDef) {
+                String name = interfaceDef.getName();
+                add(name, SymbolKind.Interface);
+                for (FuncDef f : interfaceDef.getMethods()) {
+                    addSymbolsForEntity(result, containerName + "." + name, f);
+                }
+                for (GlobalVarDef v : interfaceDef.getVars()) {
+                    addSymbolsForEntity(result, containerName + "." + name, v);
+                }
+            }
+
+            @Override
+            public void case_ModuleInstanciation(ModuleInstanciation moduleInstanciation) {
+
+            }
+
+            @Override
+            public void case_NativeType(NativeType nativeType) {
+                add(nativeType.getName(), SymbolKind.Class);
+            }
+
+            @Override
+            public void case_InitBlock(InitBlock initBlock) {
+                add("init", SymbolKind.Function);
+            }
+
+            @Override
+            public void case_TupleDef(TupleDef tupleDef) {
+                add(tupleDef.getName(), SymbolKind.Class);
+            }
+
+            @Override
+            public void case_FuncDef(FuncDef funcDef) {
+                SymbolKind kind = funcDef.attrIsDynamicClassMember() ? SymbolKind.Method : SymbolKind.Function;
+                add(funcDef.getName(), kind);
+            }
+
+            @Override
+            public void case_NativeFunc(NativeFunc nativeFunc) {
+                add(nativeFunc.getName(), SymbolKind.Function);
+            }
+
+            @Override
+            public void case_GlobalVarDef(GlobalVarDef g) {
+                SymbolKind kind = g.attrIsDynamicClassMember() ? SymbolKind.Field : SymbolKind.Variable;
+                add(g.getName(), kind);
+            }
+
+            @Override
+            public void case_EnumDef(EnumDef enumDef) {
+                add(enumDef.getName(), SymbolKind.Class);
+            }
+
+            @Override
+            public void case_TypeParamDef(TypeParamDef typeParamDef) {
+                add(typeParamDef.getName(), SymbolKind.Class);
+            }
+
+            @Override
+            public void case_ModuleDef(ModuleDef moduleDef) {
+                String name = moduleDef.getName();
+                add(name, SymbolKind.Class);
+                for (ClassDef c : moduleDef.getInnerClasses()) {
+                    addSymbolsForEntity(result, containerName + "." + name, c);
+                }
+                for (FuncDef f : moduleDef.getMethods()) {
+                    addSymbolsForEntity(result, containerName + "." + name, f);
+                }
+                for (GlobalVarDef v : moduleDef.getVars()) {
+                    addSymbolsForEntity(result, containerName + "." + name, v);
+                }
+            }
+
+
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package de.peeeq.wurstio.languageserver;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The content of an open document.
+ * <p>
+ * The content is kept as an immutable string, so it can be handed out to requests without copying it.
+ * An index of the line start offsets is updated with every edit,
+ * so that positions of incremental changes can be converted to offsets without scanning the document.
+ */
+class TextBuffer {
+    private String content;
+    // lineStarts[i] is the offset of the first character in line i
+    private int[] lineStarts;
+    private int lineCount;
+
+    TextBuffer(String content) {
+        setContent(content);
+    }
+
+    String getContent() {
+        return content;
+    }
+
+    void setContent(String content) {
+        this.content = content;
+        this.lineStarts = new int[16];
+        this.lineCount = 0;
+        addLineStart(0);
+        addLineStarts(content, 0);
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * applies the changes in the given order
+     */
+    void applyChanges(List<TextDocumentContentChangeEvent> changes) {
+        StringBuilder sb = null;
+        for (TextDocumentContentChangeEvent change : changes) {
+            Range range = change.getRange();
+            if (range == null) {
+                // replace whole buffer
+                setContent(change.getText());
+                sb = null;
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(content);
+            }
+            int start = getOffset(range.getStart(), sb.length());
+            int end = Math.max(start, getOffset(range.getEnd(), sb.length()));
+            sb.replace(start, end, change.getText());
+            updateLineStarts(start, end, change.getText());
+        }
+        if (sb != null) {
+            content = sb.toString();
+        }
+    }
+
+    /**
+     * converts a position (line and character starting at 0) to an offset,
+     * positions after the end of a line are moved to the end of the line
+     */
+    int getOffset(Position position) {
+        return getOffset(position, content.length());
+    }
+
+    private int getOffset(Position position, int length) {
+        int line = position.getLine();
+        if (line < 0) {
+            return 0;
+        } else if (line >= lineCount) {
+            return length;
+        }
+        int lineEnd = line + 1 < lineCount ? lineStarts[line + 1] - 1 : length;
+        return Math.min(lineStarts[line] + Math.max(0, position.getCharacter()), lineEnd);
+    }
+
+    /**
+     * updates the line starts after replacing the text between start and end
+     */
+    private void updateLineStarts(int start, int end, String text) {
+        int startLine = lineOf(start);
+        int endLine = lineOf(end);
+        int delta = text.length() - (end - start);
+        // keep the lines up to startLine, the line starts inside the replaced text are removed:
+        int[] following = Arrays.copyOfRange(lineStarts, endLine + 1, lineCount);
+        lineCount = startLine + 1;
+        addLineStarts(text, start);
+        for (int s : following) {
+            addLineStart(s + delta);
+        }
+    }
+
+    /**
+     * returns the line containing the given offset
+     */
+    private int lineOf(int offset) {
+        int lo = 0;
+        int hi = lineCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    private void addLineStarts(String text, int offset) {
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            addLineStart(offset + i + 1);
+        }
+    }
+
+    private void addLineStart(int offset) {
+        if (lineCount >= lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[lineCount++] = offset;
+    }
+}
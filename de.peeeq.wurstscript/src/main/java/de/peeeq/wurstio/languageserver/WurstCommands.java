@@ -72,8 +72,11 @@ public class WurstCommands {
         int column = options.has("column") ? options.get("column").getAsInt() : -1;
         int testTimeout = options.has("testTimeout") ? options.get("testTimeout").getAsInt() : 20;
         Optional<String> testName = getString(options, "testName");
+        boolean parallel = options.has("parallel") && options.get("parallel").getAsBoolean();
 
-        return server.worker().handle(new RunTests(filename, line, column, testName, testTimeout));
+        RunTests runTests = new RunTests(filename, line, column, testName, testTimeout);
+        runTests.setParallel(parallel);
+        return server.worker().handle(runTests);
     }
 
     private static CompletableFuture<Object> buildmap(WurstLanguageServer server, ExecuteCommandParams params) {
@@ -23,6 +23,11 @@ public class FoldingRangeRequest extends UserRequest<List<FoldingRange>> {
         textDocument = params.getTextDocument();
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     @Override
     public List<FoldingRange> execute(ModelManager modelManager) {
         CompilationUnit cu = modelManager.getCompilationUnit(WFile.create(textDocument));
@@ -1,8 +1,6 @@
 package de.peeeq.wurstio.languageserver.requests;
 
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import de.peeeq.wurstio.languageserver.BufferManager;
 import de.peeeq.wurstio.languageserver.ModelManager;
@@ -22,7 +20,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +36,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
     private final int column;
     private String alreadyEntered;
     private String alreadyEnteredLower;
-    private SearchMode searchMode;
+    private NameTable.SearchMode searchMode;
     private Element elem;
     private WurstType expectedType;
     private ModelManager modelManager;
@@ -88,10 +85,6 @@ public class GetCompletions extends UserRequest<CompletionList> {
                 .thenComparing(CompletionItem::getLabel);
     }
 
-    private enum SearchMode {
-        PREFIX, INFIX, SUBSEQENCE
-    }
-
     /**
      * computes completions at the current position
      */
@@ -105,7 +98,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
         alreadyEnteredLower = alreadyEntered.toLowerCase();
         WLogger.info("already entered = " + alreadyEntered);
 
-        for (SearchMode mode : SearchMode.values()) {
+        for (NameTable.SearchMode mode : NameTable.SearchMode.values()) {
             searchMode = mode;
             List<CompletionItem> completions = Lists.newArrayList();
 
@@ -148,7 +141,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
 
             if (leftType instanceof WurstTypeNamedScope) {
                 WurstTypeNamedScope ct = (WurstTypeNamedScope) leftType;
-                for (DefLink nameLink : ct.nameLinks().values()) {
+                for (DefLink nameLink : ct.nameLinksMatching(alreadyEntered, searchMode)) {
                     if (isSuitableCompletion(nameLink.getName())
                             && (nameLink.getReceiverType() != null || nameLink instanceof TypeDefLink)
                             && nameLink.getVisibility() == Visibility.PUBLIC) {
@@ -162,7 +155,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
             WScope scope = elem.attrNearestScope();
             // add member vars
             while (scope != null) {
-                ImmutableMultimap<String, DefLink> visibleNames = scope.attrNameLinks();
+                List<DefLink> visibleNames = scope.attrNameTable().lookup(alreadyEntered, searchMode);
                 completionsAddVisibleNames(alreadyEntered, completions, visibleNames, leftType, isMemberAccess, elem);
                 completionsAddVisibleExtensionFunctions(completions, visibleNames, leftType);
                 scope = scope.attrNextScope();
@@ -183,8 +176,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
             }
             WScope scope = elem.attrNearestScope();
             while (scope != null) {
-                Multimap<String, DefLink> visibleNames = scope.attrNameLinks();
-                for (NameLink n : visibleNames.values()) {
+                for (NameLink n : scope.attrNameTable().lookup(alreadyEntered, searchMode)) {
                     if (n.getDef() instanceof ClassDef && isSuitableCompletion(n.getName())) {
                         ClassDef c = (ClassDef) n.getDef();
                         for (ConstructorDef constr : c.getConstructors()) {
@@ -295,7 +287,7 @@ public class GetCompletions extends UserRequest<CompletionList> {
         }
         WScope scope = elem.attrNearestScope();
         while (scope != null) {
-            Multimap<String, DefLink> visibleNames = scope.attrNameLinks();
+            List<DefLink> visibleNames = scope.attrNameTable().lookup(alreadyEntered, searchMode);
             completionsAddVisibleNames(alreadyEntered, completions, visibleNames, leftType, isMemberAccess, elem);
             scope = scope.attrNextScope();
         }
@@ -393,14 +385,10 @@ public class GetCompletions extends UserRequest<CompletionList> {
     }
 
     private void removeDuplicates(List<CompletionItem> completions) {
-        for (int i = 0; i < completions.size() - 1; i++) {
-            for (int j = completions.size() - 1; j > i; j--) {
-                if (completions.get(i).equals(completions.get(j))) {
-                    completions.remove(j);
-                }
-            }
-        }
-
+        // keeps the first occurrence of each completion
+        Set<CompletionItem> unique = new LinkedHashSet<>(completions);
+        completions.clear();
+        completions.addAll(unique);
     }
 
     /**
@@ -424,14 +412,15 @@ public class GetCompletions extends UserRequest<CompletionList> {
         }
     }
 
-    private void completionsAddVisibleNames(String alreadyEntered, List<CompletionItem> completions, Multimap<String, DefLink> visibleNames,
+    /**
+     * adds completions for the given names, which already match the entered text
+     */
+    private void completionsAddVisibleNames(String alreadyEntered, List<CompletionItem> completions, List<DefLink> visibleNames,
                                             @Nullable WurstType leftType, boolean isMemberAccess, Element pos) {
-        Collection<Entry<String, DefLink>> entries = visibleNames.entries();
-        for (Entry<String, DefLink> e : entries) {
-            if (!isSuitableCompletion(e.getKey())) {
+        for (DefLink defLink : visibleNames) {
+            if (!isSuitableCompletion(defLink.getName())) {
                 continue;
             }
-            DefLink defLink = e.getValue();
 
             // remove invisible functions
             if (defLink.getVisibility() == Visibility.PRIVATE_OTHER || defLink.getVisibility() == Visibility.PROTECTED_OTHER) {
@@ -679,14 +668,14 @@ public class GetCompletions extends UserRequest<CompletionList> {
         return completion;
     }
 
-    private void completionsAddVisibleExtensionFunctions(List<CompletionItem> completions, Multimap<String, DefLink> visibleNames,
+    private void completionsAddVisibleExtensionFunctions(List<CompletionItem> completions, List<DefLink> visibleNames,
                                                          WurstType leftType) {
-        for (Entry<String, DefLink> e : visibleNames.entries()) {
-            if (!isSuitableCompletion(e.getKey())) {
+        for (DefLink defLink : visibleNames) {
+            if (!isSuitableCompletion(defLink.getName())) {
                 continue;
             }
-            if (e.getValue() instanceof FuncLink && e.getValue().getVisibility().isPublic()) {
-                FuncLink ef = (FuncLink) e.getValue();
+            if (defLink instanceof FuncLink && defLink.getVisibility().isPublic()) {
+                FuncLink ef = (FuncLink) defLink;
                 FuncLink ef2 = ef.adaptToReceiverType(leftType);
                 if (ef2 != null) {
                     completions.add(makeFunctionCompletion(ef2));
@@ -32,6 +32,11 @@ public class GetDefinition extends UserRequest<Either<List<? extends Location>,
     }
 
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     @Override
     public Either<List<? extends Location>, List<? extends LocationLink>> execute(ModelManager modelManager) {
         return Either.forLeft(execute2(modelManager));
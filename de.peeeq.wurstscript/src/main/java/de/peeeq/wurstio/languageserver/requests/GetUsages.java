@@ -47,22 +47,25 @@ public class GetUsages extends UserRequest<List<GetUsages.UsagesData>> {
                 usages.add(
                     new UsagesData(Convert.posToLocation(nameDef.get().attrErrorPos()), DocumentHighlightKind.Write));
             }
-            Deque<Element> todo = new ArrayDeque<>();
             if (global) {
-                todo.push(modelManager.getModel());
+                // use the reference index instead of resolving all names in the project
+                for (Element e : modelManager.findReferences(nameDef.get())) {
+                    usages.add(new UsagesData(Convert.posToLocation(e.attrErrorPos()), DocumentHighlightKind.Read));
+                }
             } else {
+                Deque<Element> todo = new ArrayDeque<>();
                 todo.push(cu);
-            }
-            while (!todo.isEmpty()) {
-                Element e = todo.pop();
-                // visit children:
-                for (int i = 0; i < e.size(); i++) {
-                    todo.push(e.get(i));
-                }
-                NameDef e_def = e.tryGetNameDef();
-                if (e_def == nameDef.get()) {
-                    UsagesData usagesData = new UsagesData(Convert.posToLocation(e.attrErrorPos()), DocumentHighlightKind.Read);
-                    usages.add(usagesData);
+                while (!todo.isEmpty()) {
+                    Element e = todo.pop();
+                    // visit children:
+                    for (int i = 0; i < e.size(); i++) {
+                        todo.push(e.get(i));
+                    }
+                    NameDef e_def = e.tryGetNameDef();
+                    if (e_def == nameDef.get()) {
+                        UsagesData usagesData = new UsagesData(Convert.posToLocation(e.attrErrorPos()), DocumentHighlightKind.Read);
+                        usages.add(usagesData);
+                    }
                 }
             }
         }
@@ -37,6 +37,11 @@ public class HoverInfo extends UserRequest<Hover> {
         this.column = position.getPosition().getCharacter() + 1;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     @Override
     public Hover execute(ModelManager modelManager) {
         CompilationUnit cu = modelManager.replaceCompilationUnitContent(filename, buffer, false);
@@ -3,6 +3,8 @@ package de.peeeq.wurstio.languageserver.requests;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import de.peeeq.wurstio.CompiletimeFunctionRunner;
+import de.peeeq.wurstio.intermediateLang.interpreter.CompiletimeNatives;
+import de.peeeq.wurstio.intermediateLang.interpreter.ProgramStateIO;
 import de.peeeq.wurstio.jassinterpreter.InterpreterException;
 import de.peeeq.wurstio.jassinterpreter.ReflectionNativeProvider;
 import de.peeeq.wurstio.languageserver.ModelManager;
@@ -19,6 +21,7 @@ import de.peeeq.wurstscript.jassIm.ImFunction;
 import de.peeeq.wurstscript.jassIm.ImProg;
 import de.peeeq.wurstscript.jassinterpreter.TestFailException;
 import de.peeeq.wurstscript.jassinterpreter.TestSuccessException;
+import de.peeeq.wurstscript.translation.imoptimizer.CallProfile;
 import de.peeeq.wurstscript.translation.imtranslation.FunctionFlagEnum;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 import de.peeeq.wurstscript.utils.Utils;
@@ -26,9 +29,12 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.lsp4j.MessageType;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static de.peeeq.wurstio.CompiletimeFunctionRunner.FunctionFlagToRun.CompiletimeFunctions;
 
@@ -42,6 +48,9 @@ public class RunTests extends UserRequest<Object> {
     private final int column;
     private final Optional<String> testName;
     private final int timeoutSeconds;
+    private boolean useBytecodeInterpreter = false;
+    private boolean parallel = false;
+    private @Nullable CallProfile callProfile;
 
     private List<ImFunction> successTests = Lists.newArrayList();
     private List<TestFailure> failTests = Lists.newArrayList();
@@ -97,6 +106,25 @@ public class RunTests extends UserRequest<Object> {
     }
 
 
+    public void setUseBytecodeInterpreter(boolean useBytecodeInterpreter) {
+        this.useBytecodeInterpreter = useBytecodeInterpreter;
+    }
+
+    /**
+     * run the tests on several threads, each test gets its own copy of the state after running the compiletime functions
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * records how often the calls are executed when running the tests
+     * (calls in functions run by the bytecode interpreter are not recorded)
+     */
+    public void setCallProfile(@Nullable CallProfile callProfile) {
+        this.callProfile = callProfile;
+    }
+
     @Override
     public Object execute(ModelManager modelManager) {
         if (modelManager.hasErrors()) {
@@ -148,10 +176,12 @@ public class RunTests extends UserRequest<Object> {
 
         CompiletimeFunctionRunner cfr = new CompiletimeFunctionRunner(translator, imProg, Optional.empty(), null, gui,
             CompiletimeFunctions);
+        cfr.setUseBytecodeInterpreter(useBytecodeInterpreter);
         ILInterpreter interpreter = cfr.getInterpreter();
         ProgramState globalState = cfr.getGlobalState();
         if (globalState == null) {
             globalState = new ProgramState(gui, imProg, true);
+            globalState.setUseBytecodeInterpreter(useBytecodeInterpreter);
         }
         if (interpreter == null) {
             interpreter = new ILInterpreter(imProg, gui, Optional.empty(), globalState);
@@ -172,8 +202,10 @@ public class RunTests extends UserRequest<Object> {
         }
 
         WLogger.info("Ran compiletime functions");
+        // only the tests are profiled, forked states use the same profile
+        globalState.setCallProfile(callProfile);
 
-
+        List<ImFunction> tests = new ArrayList<>();
         for (ImFunction f : imProg.getFunctions()) {
             if (f.hasFlag(FunctionFlagEnum.IS_TEST)) {
                 Element trace = f.attrTrace();
@@ -184,78 +216,19 @@ public class RunTests extends UserRequest<Object> {
                 if (funcToTest.isPresent() && trace != funcToTest.get()) {
                     continue;
                 }
+                tests.add(f);
+            }
+        }
 
-
-                String message = "Running <" + f.attrTrace().attrNearestPackage().tryGetNameDef().getName() + ":"
-                        + f.attrTrace().attrErrorPos().getLine() + " - " + f.getName() + ">..";
-                println(message);
-                WLogger.info(message);
-                try {
-                    @Nullable ILInterpreter finalInterpreter = interpreter;
-                    Callable<Void> run = () -> {
-                        finalInterpreter.runVoidFunc(f, null);
-                        // each test must finish it's own timers (otherwise, we would get strange results)
-                        finalInterpreter.completeTimers();
-                        return null;
-                    };
-                    RunnableFuture<Void> future = new FutureTask<>(run);
-                    if (service != null && !service.isShutdown()) {
-                        service.shutdownNow();
-                    }
-                    service = Executors.newSingleThreadScheduledExecutor();
-                    service.execute(future);
-                    try {
-                        future.get(timeoutSeconds, TimeUnit.SECONDS); // Wait 20 seconds for test to complete
-                    } catch (TimeoutException ex) {
-                        future.cancel(true);
-                        throw new TestTimeOutException();
-                    } catch (ExecutionException e) {
-                        throw e.getCause();
-                    }
-                    service.shutdown();
-                    service.awaitTermination(10, TimeUnit.SECONDS);
-                    service = Executors.newSingleThreadScheduledExecutor();
-                    if (gui.getErrorCount() > 0) {
-                        StringBuilder sb = new StringBuilder();
-                        for (CompileError error : gui.getErrorList()) {
-                            sb.append(error.toString()).append("\n");
-                            println(error.getMessage());
-                        }
-                        gui.clearErrors();
-                        TestFailure failure = new TestFailure(f, interpreter.getStackFrames(), sb.toString());
-                        failTests.add(failure);
-                    } else {
-                        successTests.add(f);
-                        println("\tOK!");
-                    }
-                } catch (TestSuccessException e) {
-                    successTests.add(f);
-                    println("\tOK!");
-                } catch (TestFailException e) {
-                    TestFailure failure = new TestFailure(f, interpreter.getStackFrames(), e.getMessage());
-                    failTests.add(failure);
-                    println("\tFAILED assertion:");
-                    println("\t" + failure.getMessageWithStackFrame());
-                } catch (TestTimeOutException e) {
-                    failTests.add(new TestFailure(f, interpreter.getStackFrames(), e.getMessage()));
-                    println("\tFAILED - TIMEOUT (This test did not complete in " + timeoutSeconds + " seconds, it might contain an endless loop)");
-                    println(interpreter.getStackFrames().toString());
-                } catch (InterpreterException e) {
-                    TestFailure failure = new TestFailure(f, interpreter.getStackFrames(), e.getMessage());
-                    failTests.add(failure);
-                    println("\t" + failure.getMessageWithStackFrame());
-                } catch (Throwable e) {
-                    failTests.add(new TestFailure(f, interpreter.getStackFrames(), e.toString()));
-                    println("\tFAILED with exception: " + e.getClass() + " " + e.getLocalizedMessage());
-                    println(interpreter.getStackFrames().toString());
-                    println("Here are some compiler internals, that might help Wurst developers to debug this issue:");
-                    StringWriter sw = new StringWriter();
-                    PrintWriter pw = new PrintWriter(sw);
-                    e.printStackTrace(pw);
-                    String sStackTrace = sw.toString();
-                    println("\t" + e.getLocalizedMessage());
-                    println("\t" + sStackTrace);
-                }
+        if (parallel && tests.size() > 1) {
+            runTestsInParallel(tests, globalState);
+        } else {
+            for (ImFunction f : tests) {
+                String startMessage = testStartMessage(f);
+                println(startMessage);
+                WLogger.info(startMessage);
+                TestFailure failure = runTest(f, interpreter, gui, this::runWithTimeout, this::println);
+                addResult(f, failure);
             }
         }
         println("Tests succeeded: " + successTests.size() + "/" + (successTests.size() + failTests.size()));
@@ -275,20 +248,203 @@ public class RunTests extends UserRequest<Object> {
         return new TestResult(successTests.size(), successTests.size() + failTests.size());
     }
 
+    private String testStartMessage(ImFunction f) {
+        return "Running <" + f.attrTrace().attrNearestPackage().tryGetNameDef().getName() + ":"
+                + f.attrTrace().attrErrorPos().getLine() + " - " + f.getName() + ">..";
+    }
+
+    private void addResult(ImFunction f, @Nullable TestFailure failure) {
+        if (failure == null) {
+            successTests.add(f);
+        } else {
+            failTests.add(failure);
+        }
+    }
+
+    /**
+     * runs all tests in parallel, each test runs on its own fork of the state after running the compiletime functions.
+     * The output and results are reported in the order of the tests.
+     * The start messages and the forks are created on this thread before the tests are submitted,
+     * so that the workers do not compute any attributes of the shared program.
+     */
+    private void runTestsInParallel(List<ImFunction> tests, ProgramState globalState) {
+        int threads = Math.min(tests.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        try {
+            List<String> startMessages = new ArrayList<>();
+            List<StringBuilder> outputs = new ArrayList<>();
+            List<Future<TestFailure>> runs = new ArrayList<>();
+            for (ImFunction f : tests) {
+                startMessages.add(testStartMessage(f));
+                StringBuilder output = new StringBuilder();
+                outputs.add(output);
+                Consumer<String> println = message -> output.append(message).append(System.lineSeparator());
+                WurstGui gui = new TestGui(println);
+                ProgramState state = globalState.fork(gui);
+                runs.add(pool.submit(() -> runForkedTest(f, globalState, state, gui, println, watchdog)));
+            }
+            for (int i = 0; i < tests.size(); i++) {
+                @Nullable TestFailure failure;
+                try {
+                    failure = runs.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+                println(startMessages.get(i));
+                WLogger.info(startMessages.get(i));
+                print(outputs.get(i).toString());
+                addResult(tests.get(i), failure);
+            }
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    private @Nullable TestFailure runForkedTest(ImFunction f, ProgramState globalState, ProgramState state, WurstGui gui,
+                                                Consumer<String> println, ScheduledExecutorService watchdog) {
+        ILInterpreter interpreter = new ILInterpreter(state.getProg(), gui, Optional.empty(), state);
+        // the same natives as in the CompiletimeFunctionRunner
+        if (globalState instanceof ProgramStateIO) {
+            interpreter.addNativeProvider(new CompiletimeNatives((ProgramStateIO) globalState, state));
+        }
+        interpreter.addNativeProvider(new ReflectionNativeProvider(interpreter));
+        redirectInterpreterOutput(state, println);
+        return runTest(f, interpreter, gui, test -> runWithWatchdog(test, watchdog), println);
+    }
+
+    private interface TestExecutor {
+        void execute(Callable<Void> test) throws Throwable;
+    }
+
+    /**
+     * runs a single test and prints its result
+     *
+     * @return the failure or null, if the test succeeded
+     */
+    private @Nullable TestFailure runTest(ImFunction f, ILInterpreter interpreter, WurstGui gui, TestExecutor executor, Consumer<String> println) {
+        try {
+            executor.execute(() -> {
+                interpreter.runVoidFunc(f, null);
+                // each test must finish it's own timers (otherwise, we would get strange results)
+                interpreter.completeTimers();
+                return null;
+            });
+            if (gui.getErrorCount() > 0) {
+                StringBuilder sb = new StringBuilder();
+                for (CompileError error : gui.getErrorList()) {
+                    sb.append(error.toString()).append("\n");
+                    println.accept(error.getMessage());
+                }
+                gui.clearErrors();
+                return new TestFailure(f, interpreter.getStackFrames(), sb.toString());
+            }
+            println.accept("\tOK!");
+            return null;
+        } catch (TestSuccessException e) {
+            println.accept("\tOK!");
+            return null;
+        } catch (TestFailException e) {
+            TestFailure failure = new TestFailure(f, interpreter.getStackFrames(), e.getMessage());
+            println.accept("\tFAILED assertion:");
+            println.accept("\t" + failure.getMessageWithStackFrame());
+            return failure;
+        } catch (TestTimeOutException e) {
+            println.accept("\tFAILED - TIMEOUT (This test did not complete in " + timeoutSeconds + " seconds, it might contain an endless loop)");
+            println.accept(interpreter.getStackFrames().toString());
+            return new TestFailure(f, interpreter.getStackFrames(), e.getMessage());
+        } catch (InterpreterException e) {
+            TestFailure failure = new TestFailure(f, interpreter.getStackFrames(), e.getMessage());
+            println.accept("\t" + failure.getMessageWithStackFrame());
+            return failure;
+        } catch (Throwable e) {
+            println.accept("\tFAILED with exception: " + e.getClass() + " " + e.getLocalizedMessage());
+            println.accept(interpreter.getStackFrames().toString());
+            println.accept("Here are some compiler internals, that might help Wurst developers to debug this issue:");
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            e.printStackTrace(pw);
+            String sStackTrace = sw.toString();
+            println.accept("\t" + e.getLocalizedMessage());
+            println.accept("\t" + sStackTrace);
+            return new TestFailure(f, interpreter.getStackFrames(), e.toString());
+        }
+    }
+
+    private void runWithTimeout(Callable<Void> run) throws Throwable {
+        RunnableFuture<Void> future = new FutureTask<>(run);
+        if (service != null && !service.isShutdown()) {
+            service.shutdownNow();
+        }
+        service = Executors.newSingleThreadScheduledExecutor();
+        service.execute(future);
+        try {
+            future.get(timeoutSeconds, TimeUnit.SECONDS); // Wait 20 seconds for test to complete
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new TestTimeOutException();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+        service.shutdown();
+        service.awaitTermination(10, TimeUnit.SECONDS);
+        service = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * runs the test on the current thread, the watchdog interrupts the interpreter when the test takes too long
+     */
+    private void runWithWatchdog(Callable<Void> run, ScheduledExecutorService watchdog) throws Throwable {
+        Thread worker = Thread.currentThread();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            synchronized (finished) {
+                if (!finished.get()) {
+                    timedOut.set(true);
+                    worker.interrupt();
+                }
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
+        try {
+            run.call();
+        } catch (Throwable e) {
+            if (timedOut.get()) {
+                throw new TestTimeOutException();
+            }
+            throw e;
+        } finally {
+            timeout.cancel(false);
+            synchronized (finished) {
+                finished.set(true);
+            }
+            // clear the interrupt, so that it does not affect the next test on this thread
+            Thread.interrupted();
+        }
+    }
+
 
     private void redirectInterpreterOutput(ProgramState globalState) {
+        redirectInterpreterOutput(globalState, this::println);
+    }
+
+    private void redirectInterpreterOutput(ProgramState globalState, Consumer<String> println) {
         OutputStream os = new OutputStream() {
 
             @Override
             public void write(int b) throws IOException {
                 if (b > 0) {
-                    println("" + (char) b);
+                    println.accept("" + (char) b);
                 }
             }
 
             @Override
             public void write(byte b[], int off, int len) throws IOException {
-                println(new String(b, off, len));
+                println.accept(new String(b, off, len));
             }
 
 
@@ -356,6 +512,16 @@ public class RunTests extends UserRequest<Object> {
 
     public class TestGui extends WurstGui {
 
+        private final Consumer<String> println;
+
+        public TestGui() {
+            this(RunTests.this::println);
+        }
+
+        TestGui(Consumer<String> println) {
+            this.println = println;
+        }
+
         @Override
         public void sendProgress(String whatsRunningNow) {
             // ignore
@@ -368,7 +534,7 @@ public class RunTests extends UserRequest<Object> {
 
         @Override
         public void showInfoMessage(String message) {
-            println(message + "\n");
+            println.accept(message + "\n");
         }
 
 
@@ -29,6 +29,11 @@ public class SignatureInfo extends UserRequest<SignatureHelp> {
 	}
 
 
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     @Override
 	public SignatureHelp execute(ModelManager modelManager) {
 		CompilationUnit cu = modelManager.getCompilationUnit(filename);
@@ -1,6 +1,7 @@
 package de.peeeq.wurstio.languageserver.requests;
 
 import de.peeeq.wurstio.languageserver.ModelManager;
+import de.peeeq.wurstio.languageserver.SnapshotOutdatedException;
 import org.eclipse.lsp4j.MessageParams;
 import org.eclipse.lsp4j.MessageType;
 import org.eclipse.lsp4j.services.LanguageClient;
@@ -18,6 +19,16 @@ public abstract class UserRequest<Res> {
         return false;
     }
 
+    /**
+     * Read only requests do not change the model, except for updating the compilation unit
+     * of the request with the current buffer contents.
+     * They can run on a snapshot of the model, while the language worker is busy with other work,
+     * as long as the compilation unit of the request did not change, see {@link #runOnSnapshot(ModelManager)}.
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
     public void cancel() {
         fut.cancel(true);
     }
@@ -35,6 +46,23 @@ public abstract class UserRequest<Res> {
         }
     }
 
+    /**
+     * runs the request on a snapshot of the model
+     *
+     * @return false, if the snapshot is outdated for this request and the request was not completed
+     */
+    public boolean runOnSnapshot(ModelManager snapshot) {
+        try {
+            Res res = execute(snapshot);
+            fut.complete(res);
+        } catch (SnapshotOutdatedException e) {
+            return false;
+        } catch (Exception e) {
+            fut.completeExceptionally(e);
+        }
+        return true;
+    }
+
     public void handleException(LanguageClient languageClient, Throwable err, CompletableFuture<Res> resFut) {
         languageClient.showMessage(new MessageParams(MessageType.Error, err.getMessage()));
         resFut.completeExceptionally(err);
@@ -18,6 +18,8 @@ public class RunArgs {
     private List<String> files = Lists.newArrayList();
     private @Nullable String mapFile = null;
     private @Nullable String outFile = null;
+    private @Nullable String callProfileFile = null;
+    private @Nullable String inlineProfileFile = null;
     private @Nullable String workspaceroot = null;
     private @Nullable String inputmap = null;
     private @Nullable int testTimeout = 20;
@@ -49,7 +51,12 @@ public class RunArgs {
     private RunOption optionHotStartmap;
     private RunOption optionHotReload;
     private RunOption optionTestTimeout;
+    private RunOption optionNoParseCache;
+    private RunOption optionBytecodeInterpreter;
+    private RunOption optionParallelTests;
     private int functionSplitLimit = 10000;
+    private int parseThreads = 0;
+    private int optimizeThreads = 0;
 
     private RunOption optionBuild;
 
@@ -89,6 +96,12 @@ public class RunArgs {
         optionTestTimeout = addOptionWithArg("testTimeout", "Timeout in seconds after which tests will be cancelled and considered failed, if they did not yet succeed.", arg -> testTimeout = Integer.parseInt(arg));
         optionRunCompileTimeFunctions = addOption("runcompiletimefunctions", "Run all compiletime functions found in the scripts.");
         optionInjectCompiletimeObjects = addOption("injectobjects", "Injects the objects generated by compiletime functions into the map.");
+        optionParallelTests = addOption("parallelTests", "Run the test functions in parallel, each test starts with its own copy of the state after the compiletime functions.");
+        optionBytecodeInterpreter = addOption("bytecodeInterpreter", "Compiles functions to bytecode before running them in compiletime functions and tests (experimental, faster).");
+        addOptionWithArg("callProfile", "Records how often each call is executed when running the tests (-runtests) and writes the counts to this file.",
+            arg -> callProfileFile = arg);
+        addOptionWithArg("inlineProfile", "Uses the call counts from this file (recorded with -callProfile) to inline frequently executed calls and to keep rarely executed calls out of line.",
+            arg -> inlineProfileFile = arg);
         // optimization
         optionOpt = addOption("opt", "Enables identifier name compression and whitespace removal.");
         optionInline = addOption("inline", "Enables function inlining.");
@@ -112,6 +125,7 @@ public class RunArgs {
 
         // other
         optionNoExtractMapScript = addOption("noExtractMapScript", "Do not extract the map script from the map and use the one from the Wurst folder instead.");
+        optionNoParseCache = addOption("noParseCache", "Do not use the cache of parsed files in the _build folder.");
         optionGui = addOption("gui", "Show a graphical user interface (progress bar and error window).");
         addOptionWithArg("lib", "The next argument should be a library folder which is lazily added to the build.", arg -> libDirs.add(new File(arg)));
         addOptionWithArg("out", "Outputs the compiled script to this file.", arg -> outFile = arg);
@@ -131,6 +145,10 @@ public class RunArgs {
 
         addOptionWithArg("functionSplitLimit", "The maximum number of operations in a function before it is split by the function splitter (used for compiletime functions)",
             s -> functionSplitLimit = Integer.parseInt(s, 10));
+        addOptionWithArg("parseThreads", "The number of threads used for parsing files (1 disables parallel parsing, default: number of processors)",
+            s -> parseThreads = Integer.parseInt(s, 10));
+        addOptionWithArg("optimizeThreads", "The number of threads used for the local optimizations (1 disables parallel optimization, default: number of processors)",
+            s -> optimizeThreads = Integer.parseInt(s, 10));
 
         nextArg:
         for (int i = 0; i < args.length; i++) {
@@ -223,6 +241,14 @@ public class RunArgs {
         return outFile;
     }
 
+    public @Nullable String getCallProfileFile() {
+        return callProfileFile;
+    }
+
+    public @Nullable String getInlineProfileFile() {
+        return inlineProfileFile;
+    }
+
     public boolean showAbout() {
         return optionAbout.isSet;
     }
@@ -359,4 +385,24 @@ public class RunArgs {
         return functionSplitLimit;
     }
 
+    public boolean isNoParseCache() {
+        return optionNoParseCache.isSet;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public int getOptimizeThreads() {
+        return optimizeThreads;
+    }
+
+    public boolean isBytecodeInterpreter() {
+        return optionBytecodeInterpreter.isSet;
+    }
+
+    public boolean isParallelTests() {
+        return optionParallelTests.isSet;
+    }
+
 }
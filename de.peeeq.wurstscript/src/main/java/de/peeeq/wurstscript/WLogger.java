@@ -28,6 +28,13 @@ public abstract class WLogger {
         instance.trace(msg);
     }
 
+    /**
+     * can be used to avoid building expensive trace messages, which would not be logged anyway
+     */
+    public static boolean isTraceEnabled() {
+        return instance.isTraceEnabled();
+    }
+
     public static void info(String msg) {
         instance.info(msg);
     }
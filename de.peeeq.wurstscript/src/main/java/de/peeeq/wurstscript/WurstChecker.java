@@ -1,6 +1,7 @@
 package de.peeeq.wurstscript;
 
 import com.google.common.base.Preconditions;
+import de.peeeq.wurstio.TypecheckCancellation;
 import de.peeeq.wurstscript.ast.CompilationUnit;
 import de.peeeq.wurstscript.ast.WurstModel;
 import de.peeeq.wurstscript.attributes.ErrorHandler;
@@ -37,6 +38,7 @@ public class WurstChecker {
 
         // compute the flow attributes
         for (CompilationUnit cu : toCheck) {
+            TypecheckCancellation.checkpoint();
             WurstValidator.computeFlowAttributes(cu);
         }
 
@@ -55,6 +57,7 @@ public class WurstChecker {
 
     private void expandModules(WurstModel root) {
         for (CompilationUnit cu : root) {
+            TypecheckCancellation.checkpoint();
             ModuleExpander.expandModules(cu);
         }
     }
@@ -133,7 +133,7 @@ public enum WurstOperator {
             case OR:
                 return ILconstBool.instance(((ILconstBool) left).getVal() || ((ILconstBool) right.get()).getVal());
             case DIV_INT:
-                return new ILconstInt(((ILconstInt) left).getVal() / ((ILconstInt) right.get()).getVal());
+                return ILconstInt.create(((ILconstInt) left).getVal() / ((ILconstInt) right.get()).getVal());
             case DIV_REAL:
                 return new ILconstReal(getReal(left) / getReal(right.get()));
             case EQ:
@@ -154,7 +154,7 @@ public enum WurstOperator {
                 if (r < 0) {
                     r += right2;
                 }
-                return new ILconstInt(r);
+                return ILconstInt.create(r);
             }
             case MOD_REAL: {
                 float right2 = getReal(right.get());
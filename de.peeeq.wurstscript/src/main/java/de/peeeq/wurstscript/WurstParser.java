@@ -23,7 +23,6 @@ import org.antlr.v4.runtime.misc.Interval;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
 public class WurstParser {
     private static final int MAX_SYNTAX_ERRORS = 15;
@@ -35,12 +34,12 @@ public class WurstParser {
         this.gui = gui;
     }
 
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
     public CompilationUnit parse(Reader reader, String source, boolean hasCommonJ) {
-        try (java.util.Scanner s = new java.util.Scanner(reader)) {
-            s.useDelimiter("\\A");
-            String input = s.hasNext() ? s.next() : "";
-            return parseWithAntlr(new StringReader(input), source, hasCommonJ);
-        }
+        return parseWithAntlr(reader, source, hasCommonJ);
     }
 
 
@@ -2,9 +2,13 @@ package de.peeeq.wurstscript.attributes;
 
 import de.peeeq.wurstscript.attributes.CompileError.ErrorType;
 import de.peeeq.wurstscript.gui.WurstGui;
+import de.peeeq.wurstscript.parser.WPos;
 import de.peeeq.wurstscript.utils.NotNullList;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.ListIterator;
 
 public class ErrorHandler {
 
@@ -17,16 +21,22 @@ public class ErrorHandler {
         this.gui = gui;
     }
 
-    public int getErrorCount() {
-        return getErrors().size();
+    public synchronized int getErrorCount() {
+        return errors.size();
     }
 
-    public List<CompileError> getWarnings() {
-        return warnings;
+    /**
+     * returns a copy of the warnings reported so far
+     */
+    public synchronized List<CompileError> getWarnings() {
+        return Collections.unmodifiableList(new ArrayList<>(warnings));
     }
 
-    public List<CompileError> getErrors() {
-        return errors;
+    /**
+     * returns a copy of the errors reported so far
+     */
+    public synchronized List<CompileError> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
     }
 
     public void setProgress(String message, double percent) {
@@ -37,7 +47,7 @@ public class ErrorHandler {
         return gui;
     }
 
-    public void sendError(CompileError err) {
+    public synchronized void sendError(CompileError err) {
         if (err.getErrorType() == ErrorType.ERROR) {
             errors.add(err);
         } else {
@@ -46,6 +56,37 @@ public class ErrorHandler {
         gui.sendError(err);
     }
 
+    /**
+     * like {@link #sendError(CompileError)}, but ignores the error when there already is an error
+     * at a smaller or equal position in the same file, and removes errors at bigger positions
+     */
+    public synchronized void sendErrorAtSmallestPosition(CompileError err) {
+        WPos pos = err.getSource();
+        ListIterator<CompileError> it = errors.listIterator();
+        while (it.hasNext()) {
+            CompileError other = it.next();
+            if (other.getSource().getFile().equals(pos.getFile())) {
+                if (bigger(other.getSource(), pos)) {
+                    // remove bigger errors
+                    it.remove();
+                } else if (bigger(pos, other.getSource()) || equal(pos, other.getSource())) {
+                    // do not add smaller or equal errors
+                    return;
+                }
+            }
+        }
+        sendError(err);
+    }
+
+    private static boolean equal(WPos a, WPos b) {
+        return a.getLeftPos() == b.getLeftPos() && a.getRightPos() == b.getRightPos();
+    }
+
+    private static boolean bigger(WPos a, WPos b) {
+        return a.getLeftPos() <= b.getLeftPos() && a.getRightPos() > b.getRightPos()
+                || a.getLeftPos() < b.getLeftPos() && a.getRightPos() >= b.getRightPos();
+    }
+
     public void enableUnitTestMode() {
         unitTestMode = true;
     }
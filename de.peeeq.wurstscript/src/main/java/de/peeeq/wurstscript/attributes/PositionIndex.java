@@ -0,0 +1,171 @@
+package de.peeeq.wurstscript.attributes;
+
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.ast.Identifier;
+import de.peeeq.wurstscript.ast.ModuleInstanciation;
+import de.peeeq.wurstscript.parser.WPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An index of the source positions of the elements in a compilation unit,
+ * for finding the innermost element at a line and column.
+ * <p>
+ * The elements are sorted by their start position. To find the element at a position,
+ * the last element starting before the position is found with a binary search,
+ * then the enclosing elements are checked by following the parent links.
+ * Elements with artificial positions are not indexed, but their children are.
+ */
+public class PositionIndex {
+
+    private final CompilationUnit root;
+    // the indexed elements, sorted by start position:
+    private final Element[] elements;
+    private final long[] startKeys;
+    private final long[] endKeys;
+    private final int[] sizes;
+    // index of the nearest indexed ancestor, or -1:
+    private final int[] parents;
+    private final int[] depths;
+
+    private PositionIndex(CompilationUnit root, List<Element> preorder, int[] preorderParents) {
+        this.root = root;
+        int n = preorder.size();
+        long[] preorderStartKeys = new long[n];
+        int[] preorderDepths = new int[n];
+        for (int i = 0; i < n; i++) {
+            WPos pos = preorder.get(i).attrSource();
+            preorderStartKeys[i] = key(pos.getLine(), pos.getStartColumn());
+            preorderDepths[i] = preorderParents[i] < 0 ? 0 : preorderDepths[preorderParents[i]] + 1;
+        }
+        // sort by start position, ancestors before their descendants:
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> preorderStartKeys[a] != preorderStartKeys[b]
+                ? Long.compare(preorderStartKeys[a], preorderStartKeys[b])
+                : Integer.compare(a, b));
+        int[] sortedIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIndex[order[i]] = i;
+        }
+        elements = new Element[n];
+        startKeys = new long[n];
+        endKeys = new long[n];
+        sizes = new int[n];
+        parents = new int[n];
+        depths = new int[n];
+        for (int i = 0; i < n; i++) {
+            int p = order[i];
+            Element e = preorder.get(p);
+            WPos pos = e.attrSource();
+            elements[i] = e;
+            startKeys[i] = preorderStartKeys[p];
+            endKeys[i] = key(pos.getEndLine(), pos.getEndColumn());
+            sizes[i] = pos.getRightPos() - pos.getLeftPos();
+            parents[i] = preorderParents[p] < 0 ? -1 : sortedIndex[preorderParents[p]];
+            depths[i] = preorderDepths[p];
+        }
+    }
+
+    public static PositionIndex calculate(CompilationUnit cu) {
+        List<Element> preorder = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        for (int i = 0; i < cu.size(); i++) {
+            collect(cu.get(i), -1, preorder, parents);
+        }
+        int[] preorderParents = new int[parents.size()];
+        for (int i = 0; i < preorderParents.length; i++) {
+            preorderParents[i] = parents.get(i);
+        }
+        return new PositionIndex(cu, preorder, preorderParents);
+    }
+
+    private static void collect(Element e, int parent, List<Element> preorder, List<Integer> parents) {
+        int childParent = parent;
+        if (!e.attrSource().isArtificial()) {
+            childParent = preorder.size();
+            preorder.add(e);
+            parents.add(parent);
+        }
+        if (e instanceof ModuleInstanciation) {
+            // do not helicopter into module instantiations
+            return;
+        }
+        for (int i = 0; i < e.size(); i++) {
+            collect(e.get(i), childParent, preorder, parents);
+        }
+    }
+
+    /**
+     * returns the innermost element containing the given position (line and column start at 1),
+     * or the compilation unit if no element contains the position
+     */
+    public Optional<Element> elementAt(int line, int column) {
+        long key = key(line, column);
+        int last = lastStartingAt(key);
+        int best = -1;
+        // the last element starting before the position might end just before the position,
+        // while the element before it ends exactly at the position, so check both:
+        for (int start = last; start >= 0 && start >= last - 1; start--) {
+            best = bestContaining(start, key, best);
+        }
+        if (best < 0) {
+            return Optional.of(root);
+        }
+        Element result = elements[best];
+        if (result instanceof Identifier) {
+            return Optional.ofNullable(result.getParent());
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * checks the given element and its ancestors, starting with the outermost ancestor,
+     * and returns the smallest element containing the position, preferring deeper elements
+     */
+    private int bestContaining(int start, long key, int best) {
+        List<Integer> chain = new ArrayList<>();
+        for (int i = start; i >= 0; i = parents[i]) {
+            chain.add(i);
+        }
+        for (int c = chain.size() - 1; c >= 0; c--) {
+            int i = chain.get(c);
+            if (startKeys[i] > key || endKeys[i] < key) {
+                // elements are only found, when all their ancestors contain the position
+                break;
+            }
+            if (best < 0 || sizes[i] < sizes[best] || (sizes[i] == sizes[best] && depths[i] > depths[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * returns the last index with a start position before or at the given position, or -1
+     */
+    private int lastStartingAt(long key) {
+        int lo = 0;
+        int hi = startKeys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (startKeys[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    private static long key(int line, int column) {
+        return ((long) line << 32) | (column & 0xffffffffL);
+    }
+
+}
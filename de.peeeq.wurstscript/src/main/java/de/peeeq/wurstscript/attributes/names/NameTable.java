@@ -0,0 +1,96 @@
+package de.peeeq.wurstscript.attributes.names;
+
+import de.peeeq.wurstscript.ast.WScope;
+import de.peeeq.wurstscript.utils.Utils;
+
+import java.util.*;
+
+/**
+ * The names visible in a scope (see {@link WScope#attrNameLinks()}), sorted by name for fast lookup of names
+ * matching a partially entered name.
+ * <p>
+ * Prefix lookups use a binary search. For infix and subsequence lookups, names not containing
+ * all the letters of the entered text are rejected by comparing bit masks before comparing the strings.
+ */
+public class NameTable {
+
+    public enum SearchMode {
+        PREFIX, INFIX, SUBSEQENCE
+    }
+
+    private final String[] names;
+    private final String[] lowerNames;
+    private final long[] charMasks;
+    private final DefLink[] links;
+
+    private NameTable(List<Map.Entry<String, DefLink>> entries) {
+        int size = entries.size();
+        names = new String[size];
+        lowerNames = new String[size];
+        charMasks = new long[size];
+        links = new DefLink[size];
+        for (int i = 0; i < size; i++) {
+            Map.Entry<String, DefLink> e = entries.get(i);
+            names[i] = e.getKey();
+            lowerNames[i] = e.getKey().toLowerCase();
+            charMasks[i] = Utils.charMask(lowerNames[i]);
+            links[i] = e.getValue();
+        }
+    }
+
+    public static NameTable calculate(WScope scope) {
+        List<Map.Entry<String, DefLink>> entries = new ArrayList<>(scope.attrNameLinks().entries());
+        // stable sort, so that links with the same name keep their order
+        entries.sort(Comparator.comparing(e -> e.getKey().toLowerCase()));
+        return new NameTable(entries);
+    }
+
+    /**
+     * returns the links with names matching the entered text, ignoring case, sorted by name
+     */
+    public List<DefLink> lookup(String entered, SearchMode mode) {
+        String enteredLower = entered.toLowerCase();
+        List<DefLink> result = new ArrayList<>();
+        if (mode == SearchMode.PREFIX) {
+            for (int i = lowerBound(enteredLower); i < lowerNames.length && lowerNames[i].startsWith(enteredLower); i++) {
+                result.add(links[i]);
+            }
+            return result;
+        }
+        long mask = Utils.charMask(enteredLower);
+        for (int i = 0; i < lowerNames.length; i++) {
+            if ((charMasks[i] & mask) != mask) {
+                continue;
+            }
+            boolean matches = mode == SearchMode.INFIX
+                    ? lowerNames[i].contains(enteredLower)
+                    : Utils.isSubsequenceIgnoreCase(entered, names[i]);
+            if (matches) {
+                result.add(links[i]);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return links.length;
+    }
+
+    /**
+     * returns the first index with a name not smaller than the given name
+     */
+    private int lowerBound(String lowerName) {
+        int lo = 0;
+        int hi = lowerNames.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lowerNames[mid].compareTo(lowerName) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
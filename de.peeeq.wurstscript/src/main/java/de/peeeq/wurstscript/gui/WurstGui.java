@@ -5,6 +5,7 @@ import de.peeeq.wurstscript.attributes.CompileError;
 import de.peeeq.wurstscript.attributes.CompileError.ErrorType;
 import de.peeeq.wurstscript.utils.Utils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,11 +21,11 @@ public abstract class WurstGui {
 
     public abstract void showInfoMessage(String message);
 
-    public void sendError(CompileError err) {
+    public synchronized void sendError(CompileError err) {
         errors.add(err);
     }
 
-    public void clearErrors() {
+    public synchronized void clearErrors() {
         errors.clear();
     }
 
@@ -32,24 +33,24 @@ public abstract class WurstGui {
         return getErrorList().size();
     }
 
-    public final String getErrors() {
+    public final synchronized String getErrors() {
         return Utils.join(errors, "\n");
     }
 
-    public final List<CompileError> getErrorList() {
+    public final synchronized List<CompileError> getErrorList() {
         return errors.stream()
                 .filter(e -> e.getErrorType() == ErrorType.ERROR)
                 .collect(Collectors.toList());
     }
 
-    public final List<CompileError> getWarningList() {
+    public final synchronized List<CompileError> getWarningList() {
         return errors.stream()
                 .filter(e -> e.getErrorType() == ErrorType.WARNING)
                 .collect(Collectors.toList());
     }
 
-    public final List<CompileError> getErrorsAndWarnings() {
-        return Collections.unmodifiableList(errors);
+    public final synchronized List<CompileError> getErrorsAndWarnings() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
     }
 
 }
@@ -0,0 +1,18 @@
+package de.peeeq.wurstscript.intermediatelang;
+
+import java.util.function.Function;
+
+/**
+ * The object of a handle, which can be changed by natives.
+ * It is copied, when a forked program state first uses the handle
+ * (see {@link de.peeeq.wurstscript.intermediatelang.interpreter.ProgramState#fork}).
+ */
+public interface ForkableHandleObject {
+
+    /**
+     * returns a copy of this object,
+     * contained values are copied with the given function, so that they are copied only once per fork
+     */
+    Object fork(Function<ILconst, ILconst> forkValue);
+
+}
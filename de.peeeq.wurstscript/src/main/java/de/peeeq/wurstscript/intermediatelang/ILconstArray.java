@@ -1,38 +1,104 @@
 package de.peeeq.wurstscript.intermediatelang;
 
 import de.peeeq.wurstio.jassinterpreter.InterpreterException;
+import de.peeeq.wurstscript.jassIm.ImType;
+import de.peeeq.wurstscript.types.TypesHelper;
+import org.eclipse.jdt.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+/**
+ * An array value of the interpreter.
+ * <p>
+ * Indexes below {@link #MAX_DENSE_INDEX} are stored in pages of {@link #PAGE_SIZE} entries,
+ * which are only allocated when an entry of the page is written.
+ * Arrays of integers and reals store the pages as primitive arrays,
+ * until a value of a different type is stored in them (for example an int constant in a real array).
+ * Other indexes are stored in a sorted map.
+ */
 public class ILconstArray extends ILconstAbstract {
 
-    private final Map<Integer, ILconst> values = new TreeMap<>(); // including the quotes
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MAX_DENSE_INDEX = 1 << 20;
+
+    private static final int MODE_OBJECTS = 0;
+    private static final int MODE_INTS = 1;
+    private static final int MODE_REALS = 2;
+
     private final int size;
     private final Supplier<ILconst> defaultValue;
+    private int mode;
+    private int[][] intPages = new int[0][];
+    private float[][] realPages = new float[0][];
+    private ILconst[][] pages = new ILconst[0][];
+    private @Nullable TreeMap<Integer, ILconst> sparse;
 
     public ILconstArray(int size, Supplier<ILconst> defaultValue) {
+        this(size, defaultValue, MODE_OBJECTS);
+    }
+
+    private ILconstArray(int size, Supplier<ILconst> defaultValue, int mode) {
         this.size = size;
         this.defaultValue = defaultValue;
+        this.mode = mode;
+    }
+
+    /**
+     * creates an array with entries of the given type
+     */
+    public static ILconstArray forEntryType(int size, ImType entryType) {
+        if (TypesHelper.isIntType(entryType)) {
+            return new ILconstArray(size, entryType::defaultValue, MODE_INTS);
+        } else if (TypesHelper.isRealType(entryType)) {
+            return new ILconstArray(size, entryType::defaultValue, MODE_REALS);
+        }
+        return new ILconstArray(size, entryType::defaultValue, MODE_OBJECTS);
     }
 
     @Override
     public String print() {
         StringBuilder s = new StringBuilder();
         s.append("[");
-        for (Map.Entry<Integer, ILconst> e : values.entrySet()) {
-            if (s.length() > 1) {
-                s.append(", ");
+        TreeMap<Integer, ILconst> sparse = this.sparse;
+        if (sparse != null) {
+            printEntries(s, sparse.headMap(0));
+        }
+        for (int p = 0; p < pageCount(); p++) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                ILconst v = getDense(p, i, false);
+                if (v != null) {
+                    printEntry(s, (p << PAGE_BITS) + i, v);
+                }
             }
-            s.append(e.getKey());
-            s.append(": ");
-            s.append(e.getValue());
+        }
+        if (sparse != null) {
+            printEntries(s, sparse.tailMap(0));
         }
         s.append("]");
         return s.toString();
     }
 
+    private static void printEntries(StringBuilder s, Map<Integer, ILconst> entries) {
+        for (Map.Entry<Integer, ILconst> e : entries.entrySet()) {
+            printEntry(s, e.getKey(), e.getValue());
+        }
+    }
+
+    private static void printEntry(StringBuilder s, int index, ILconst value) {
+        if (s.length() > 1) {
+            s.append(", ");
+        }
+        s.append(index);
+        s.append(": ");
+        s.append(value);
+    }
+
 
     @Override
     public boolean isEqualTo(ILconst other) {
@@ -40,7 +106,26 @@ public class ILconstArray extends ILconstAbstract {
     }
 
     public void set(int index, ILconst value) {
-        values.put(index, value);
+        if (index < 0 || index >= MAX_DENSE_INDEX) {
+            sparse().put(index, value);
+            return;
+        }
+        int p = index >>> PAGE_BITS;
+        int i = index & PAGE_MASK;
+        if (mode == MODE_INTS) {
+            if (value.getClass() == ILconstInt.class) {
+                intPage(p)[i] = ((ILconstInt) value).getVal();
+                return;
+            }
+            switchToObjects();
+        } else if (mode == MODE_REALS) {
+            if (value.getClass() == ILconstReal.class) {
+                realPage(p)[i] = ((ILconstReal) value).getVal();
+                return;
+            }
+            switchToObjects();
+        }
+        objectPage(p)[i] = value;
     }
 
     public ILconst get(int index) {
@@ -49,7 +134,154 @@ public class ILconstArray extends ILconstAbstract {
         if (index >= size)
             throw new InterpreterException("Array index " + index + " must be smaller than array size " + size);
 
-        return values.computeIfAbsent(index, i -> defaultValue.get());
+        if (index >= MAX_DENSE_INDEX) {
+            return sparse().computeIfAbsent(index, i -> defaultValue.get());
+        }
+        ILconst v = getDense(index >>> PAGE_BITS, index & PAGE_MASK, true);
+        if (v == null) {
+            // remember the default value, because it might be mutable (e.g. a nested array)
+            v = defaultValue.get();
+            objectPage(index >>> PAGE_BITS)[index & PAGE_MASK] = v;
+        }
+        return v;
+    }
+
+    /**
+     * creates a copy of this array, the given function is applied to all entries which are not primitive.
+     * This array is not modified, so it is safe to copy it from several threads.
+     */
+    public ILconstArray copy(UnaryOperator<ILconst> copyValue) {
+        ILconstArray result = new ILconstArray(size, defaultValue, mode);
+        result.intPages = new int[intPages.length][];
+        for (int p = 0; p < intPages.length; p++) {
+            result.intPages[p] = intPages[p] == null ? null : intPages[p].clone();
+        }
+        result.realPages = new float[realPages.length][];
+        for (int p = 0; p < realPages.length; p++) {
+            result.realPages[p] = realPages[p] == null ? null : realPages[p].clone();
+        }
+        result.pages = new ILconst[pages.length][];
+        for (int p = 0; p < pages.length; p++) {
+            ILconst[] page = pages[p];
+            if (page != null) {
+                ILconst[] copy = result.pages[p] = new ILconst[PAGE_SIZE];
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    copy[i] = page[i] == null ? null : copyValue.apply(page[i]);
+                }
+            }
+        }
+        TreeMap<Integer, ILconst> sparse = this.sparse;
+        if (sparse != null) {
+            TreeMap<Integer, ILconst> copy = result.sparse = new TreeMap<>();
+            for (Map.Entry<Integer, ILconst> e : sparse.entrySet()) {
+                copy.put(e.getKey(), copyValue.apply(e.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * returns the value at the given position or null if it was not set.
+     * Unset entries of primitive pages are only reported when withDefaults is true.
+     */
+    private @Nullable ILconst getDense(int p, int i, boolean withDefaults) {
+        switch (mode) {
+            case MODE_INTS: {
+                int[] page = p < intPages.length ? intPages[p] : null;
+                if (page == null) {
+                    return withDefaults ? ILconstInt.create(0) : null;
+                }
+                return withDefaults || page[i] != 0 ? ILconstInt.create(page[i]) : null;
+            }
+            case MODE_REALS: {
+                float[] page = p < realPages.length ? realPages[p] : null;
+                if (page == null) {
+                    return withDefaults ? ILconstReal.create(0) : null;
+                }
+                return withDefaults || page[i] != 0 ? ILconstReal.create(page[i]) : null;
+            }
+            default: {
+                ILconst[] page = p < pages.length ? pages[p] : null;
+                return page == null ? null : page[i];
+            }
+        }
+    }
+
+    private int pageCount() {
+        switch (mode) {
+            case MODE_INTS:
+                return intPages.length;
+            case MODE_REALS:
+                return realPages.length;
+            default:
+                return pages.length;
+        }
+    }
+
+    private int[] intPage(int p) {
+        if (p >= intPages.length) {
+            intPages = Arrays.copyOf(intPages, newPageCount(intPages.length, p));
+        }
+        int[] page = intPages[p];
+        if (page == null) {
+            page = intPages[p] = new int[PAGE_SIZE];
+        }
+        return page;
+    }
+
+    private float[] realPage(int p) {
+        if (p >= realPages.length) {
+            realPages = Arrays.copyOf(realPages, newPageCount(realPages.length, p));
+        }
+        float[] page = realPages[p];
+        if (page == null) {
+            page = realPages[p] = new float[PAGE_SIZE];
+        }
+        return page;
+    }
+
+    private ILconst[] objectPage(int p) {
+        if (p >= pages.length) {
+            pages = Arrays.copyOf(pages, newPageCount(pages.length, p));
+        }
+        ILconst[] page = pages[p];
+        if (page == null) {
+            page = pages[p] = new ILconst[PAGE_SIZE];
+        }
+        return page;
+    }
+
+    private static int newPageCount(int current, int requiredPage) {
+        return Math.min(Math.max(requiredPage + 1, current * 2), MAX_DENSE_INDEX >>> PAGE_BITS);
+    }
+
+    /**
+     * converts primitive pages to object pages, when a value of a different type is stored in the array
+     */
+    private void switchToObjects() {
+        int count = pageCount();
+        ILconst[][] newPages = new ILconst[count][];
+        for (int p = 0; p < count; p++) {
+            boolean allocated = mode == MODE_INTS ? intPages[p] != null : realPages[p] != null;
+            if (allocated) {
+                ILconst[] page = newPages[p] = new ILconst[PAGE_SIZE];
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    page[i] = getDense(p, i, true);
+                }
+            }
+        }
+        pages = newPages;
+        intPages = new int[0][];
+        realPages = new float[0][];
+        mode = MODE_OBJECTS;
+    }
+
+    private TreeMap<Integer, ILconst> sparse() {
+        TreeMap<Integer, ILconst> sparse = this.sparse;
+        if (sparse == null) {
+            sparse = this.sparse = new TreeMap<>();
+        }
+        return sparse;
     }
 
 }
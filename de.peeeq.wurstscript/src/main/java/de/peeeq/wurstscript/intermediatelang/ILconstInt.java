@@ -28,7 +28,23 @@ public class ILconstInt extends ILconstAbstract implements ILconstNum {
         return create(-val);
     }
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final ILconstInt[] CACHE = new ILconstInt[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new ILconstInt(CACHE_LOW + i);
+        }
+    }
+
+    /**
+     * returns a constant for the given value, small values are shared instead of allocated
+     */
     public static ILconstInt create(int i) {
+        if (i >= CACHE_LOW && i <= CACHE_HIGH) {
+            return CACHE[i - CACHE_LOW];
+        }
         return new ILconstInt(i);
     }
 
@@ -3,23 +3,63 @@ package de.peeeq.wurstscript.intermediatelang;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.jassIm.ImArrayLikeType;
 import de.peeeq.wurstscript.jassIm.ImClass;
 import de.peeeq.wurstscript.jassIm.ImClassType;
 import de.peeeq.wurstscript.jassIm.ImVar;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 public class ILconstObject extends ILconstAbstract {
     private final ImClassType classType;
     private final int objectId;
-    private final Table<ImVar, List<Integer>, ILconst> attributes = HashBasedTable.create();
+    /**
+     * the non-array fields of the object, stored in the slots given by the layout of the class
+     */
+    private final VarSlots layout;
+    private final ILconst[] fields;
+    /**
+     * array fields and fields which are not part of the layout
+     */
+    private @Nullable Table<ImVar, List<Integer>, ILconst> otherAttributes;
     private boolean destroyed = false;
     private final Element trace;
 
-    public ILconstObject(ImClassType classType, int objectId, Element trace) {
+    public ILconstObject(ImClassType classType, int objectId, Element trace, VarSlots layout) {
         this.classType = classType;
         this.objectId = objectId;
         this.trace = trace;
+        this.layout = layout;
+        this.fields = new ILconst[layout.size()];
+    }
+
+    public ILconstObject(ImClassType classType, int objectId, Element trace) {
+        this(classType, objectId, trace, fieldLayout(classType.getClassDef()));
+    }
+
+    /**
+     * computes the layout for the fields of the given class, including the fields of its super classes
+     */
+    public static VarSlots fieldLayout(ImClass c) {
+        List<ImVar> fields = new ArrayList<>();
+        addFields(c, fields, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return new VarSlots(fields);
+    }
+
+    private static void addFields(ImClass c, List<ImVar> fields, Set<ImClass> visited) {
+        if (!visited.add(c)) {
+            return;
+        }
+        for (ImClassType sc : c.getSuperClasses()) {
+            addFields(sc.getClassDef(), fields, visited);
+        }
+        for (ImVar f : c.getFields()) {
+            if (!(f.getType() instanceof ImArrayLikeType)) {
+                fields.add(f);
+            }
+        }
     }
 
     public int getObjectId() {
@@ -39,14 +79,80 @@ public class ILconstObject extends ILconstAbstract {
     }
 
     public void set(ImVar attr, List<Integer> indexes, ILconst value) {
-        attributes.put(attr, indexes, value);
+        if (indexes.isEmpty()) {
+            set(attr, value);
+        } else {
+            otherAttributes().put(attr, indexes, value);
+        }
     }
 
     public Optional<ILconst> get(ImVar attr, List<Integer> indexes) {
-        return Optional.ofNullable(attributes.get(attr, indexes));
+        if (indexes.isEmpty()) {
+            return Optional.ofNullable(get(attr));
+        }
+        Table<ImVar, List<Integer>, ILconst> other = otherAttributes;
+        return Optional.ofNullable(other == null ? null : other.get(attr, indexes));
+    }
+
+    /**
+     * sets a field without indexes
+     */
+    public void set(ImVar attr, ILconst value) {
+        int slot = layout.slotOf(attr);
+        if (slot >= 0) {
+            fields[slot] = value;
+        } else {
+            otherAttributes().put(attr, Collections.emptyList(), value);
+        }
+    }
+
+    /**
+     * returns the value of a field without indexes or null if it was not set
+     */
+    public @Nullable ILconst get(ImVar attr) {
+        int slot = layout.slotOf(attr);
+        if (slot >= 0) {
+            return fields[slot];
+        }
+        Table<ImVar, List<Integer>, ILconst> other = otherAttributes;
+        return other == null ? null : other.get(attr, Collections.emptyList());
+    }
+
+    private Table<ImVar, List<Integer>, ILconst> otherAttributes() {
+        Table<ImVar, List<Integer>, ILconst> other = otherAttributes;
+        if (other == null) {
+            other = otherAttributes = HashBasedTable.create();
+        }
+        return other;
     }
 
 
+    /**
+     * creates an object with the same id, type and state, but without any fields,
+     * see {@link #copyFieldsFrom(ILconstObject, UnaryOperator)}
+     */
+    public ILconstObject copyWithoutFields() {
+        ILconstObject copy = new ILconstObject(classType, objectId, trace, layout);
+        copy.destroyed = destroyed;
+        return copy;
+    }
+
+    /**
+     * sets the fields of this object to copies of the fields of the given object with the same layout
+     */
+    public void copyFieldsFrom(ILconstObject source, UnaryOperator<ILconst> copyValue) {
+        for (int i = 0; i < fields.length; i++) {
+            ILconst v = source.fields[i];
+            fields[i] = v == null ? null : copyValue.apply(v);
+        }
+        Table<ImVar, List<Integer>, ILconst> other = source.otherAttributes;
+        if (other != null) {
+            for (Table.Cell<ImVar, List<Integer>, ILconst> c : other.cellSet()) {
+                otherAttributes().put(c.getRowKey(), c.getColumnKey(), copyValue.apply(c.getValue()));
+            }
+        }
+    }
+
     public boolean isDestroyed() {
         return destroyed;
     }
@@ -72,7 +178,19 @@ public class ILconstObject extends ILconstAbstract {
         return objectId;
     }
 
+    /**
+     * returns a copy of all fields which have been set, indexed by field and array indexes
+     */
     public Table<ImVar, List<Integer>, ILconst> getAttributes() {
-        return attributes;
+        Table<ImVar, List<Integer>, ILconst> result = HashBasedTable.create();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                result.put(layout.getVar(i), Collections.emptyList(), fields[i]);
+            }
+        }
+        if (otherAttributes != null) {
+            result.putAll(otherAttributes);
+        }
+        return result;
     }
 }
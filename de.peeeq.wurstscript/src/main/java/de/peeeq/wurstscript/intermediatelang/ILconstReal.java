@@ -32,7 +32,13 @@ public class ILconstReal extends ILconstAbstract implements ILconstNum {
         return create(-val);
     }
 
-    static ILconstReal create(float f) {
+    private static final ILconstReal ZERO = new ILconstReal(0);
+
+    public static ILconstReal create(float f) {
+        // only positive zero is shared, -0.0 must stay distinguishable when printed
+        if (Float.floatToRawIntBits(f) == 0) {
+            return ZERO;
+        }
         return new ILconstReal(f);
     }
 
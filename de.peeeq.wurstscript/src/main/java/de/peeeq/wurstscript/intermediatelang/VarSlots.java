@@ -0,0 +1,62 @@
+package de.peeeq.wurstscript.intermediatelang;
+
+import de.peeeq.wurstscript.jassIm.ImVar;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense slot indexes to a fixed list of variables,
+ * for example the locals of a function or the fields of a class.
+ */
+public final class VarSlots {
+
+    /**
+     * lists with at most this many variables are searched linearly,
+     * which is faster than hashing for the small functions and classes that make up most programs
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private final ImVar[] vars;
+    private final @Nullable Map<ImVar, Integer> slots;
+
+    public VarSlots(List<ImVar> vars) {
+        this.vars = vars.toArray(new ImVar[0]);
+        if (this.vars.length > LINEAR_SEARCH_LIMIT) {
+            Map<ImVar, Integer> slots = new IdentityHashMap<>(this.vars.length * 2);
+            for (int i = 0; i < this.vars.length; i++) {
+                slots.putIfAbsent(this.vars[i], i);
+            }
+            this.slots = slots;
+        } else {
+            this.slots = null;
+        }
+    }
+
+    public int size() {
+        return vars.length;
+    }
+
+    public ImVar getVar(int slot) {
+        return vars[slot];
+    }
+
+    /**
+     * returns the slot of the given variable or -1 if it is not in this list
+     */
+    public int slotOf(ImVar v) {
+        Map<ImVar, Integer> slots = this.slots;
+        if (slots != null) {
+            Integer slot = slots.get(v);
+            return slot == null ? -1 : slot;
+        }
+        for (int i = 0; i < vars.length; i++) {
+            if (vars[i] == v) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,674 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstscript.WLogger;
+import de.peeeq.wurstscript.WurstOperator;
+import de.peeeq.wurstscript.intermediatelang.ILconst;
+import de.peeeq.wurstscript.intermediatelang.ILconstNull;
+import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imtranslation.FunctionFlagEnum;
+import de.peeeq.wurstscript.types.TypesHelper;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.*;
+
+import static de.peeeq.wurstscript.intermediatelang.interpreter.BytecodeFunction.*;
+
+/**
+ * Compiles an ImFunction to register based bytecode.
+ * <p>
+ * Integer and boolean values are kept unboxed in int registers, all other values are kept in object registers.
+ * Reals are not unboxed, because real variables can contain integer constants in the interpreter
+ * and some operations (like equality) behave differently for those.
+ * <p>
+ * Functions using constructs which are not supported by the bytecode are executed by the tree interpreter.
+ * Expressions which do not use local variables are also delegated to the tree interpreter.
+ * <p>
+ * Registers have no state for unassigned values, so functions which may read a local variable
+ * before it is assigned are executed by the tree interpreter, which reports an error in that case.
+ */
+class BytecodeCompiler {
+    private static final int INT = 0;
+    private static final int BOOL = 1;
+    private static final int OBJ = 2;
+    private static final int ANY = 3;
+
+    private final ImFunction func;
+    private final ProgramState globalState;
+    private int[] code = new int[64];
+    private int codeSize = 0;
+    private final List<Object> pool = new ArrayList<>();
+    private final Map<Object, Integer> poolIndex = new IdentityHashMap<>();
+    private final Map<ImVar, Operand> locals = new HashMap<>();
+    private int intLocals;
+    private int objLocals;
+    private int intTop;
+    private int objTop;
+    private int maxInt;
+    private int maxObj;
+    /**
+     * for each enclosing loop the positions of jump targets, which have to be patched to the end of the loop
+     */
+    private final Deque<List<Integer>> loopExits = new ArrayDeque<>();
+    /**
+     * the local variables which are definitely assigned at the current position
+     */
+    private Set<ImVar> assigned = new HashSet<>();
+    /**
+     * true, when the current position cannot be reached (after a return)
+     */
+    private boolean unreachable = false;
+    /**
+     * for each enclosing loop the assigned variables at each exitwhen
+     */
+    private final Deque<List<Set<ImVar>>> loopExitAssigned = new ArrayDeque<>();
+
+    private static class Operand {
+        final int kind;
+        final int reg;
+
+        Operand(int kind, int reg) {
+            this.kind = kind;
+            this.reg = reg;
+        }
+    }
+
+    /**
+     * thrown when a function cannot be compiled to bytecode
+     */
+    private static class Unsupported extends RuntimeException {
+        Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private BytecodeCompiler(ImFunction func, ProgramState globalState) {
+        this.func = func;
+        this.globalState = globalState;
+    }
+
+    /**
+     * compiles the given function
+     *
+     * @return the compiled function or null, if the function has to be executed by the tree interpreter
+     */
+    static @Nullable BytecodeFunction compile(ImFunction f, ProgramState globalState) {
+        if (f.isNative() || ILInterpreter.isCompiletimeNative(f) || f.hasFlag(FunctionFlagEnum.IS_VARARG)) {
+            return null;
+        }
+        try {
+            return new BytecodeCompiler(f, globalState).compileFunction();
+        } catch (Unsupported e) {
+            WLogger.trace("Function " + f.getName() + " is not compiled to bytecode: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private BytecodeFunction compileFunction() {
+        int[] paramRegisters = new int[func.getParameters().size()];
+        boolean[] paramIsBool = new boolean[paramRegisters.length];
+        for (int i = 0; i < paramRegisters.length; i++) {
+            Operand r = addLocal(func.getParameters().get(i));
+            paramRegisters[i] = r.kind == OBJ ? -r.reg - 1 : r.reg;
+            paramIsBool[i] = r.kind == BOOL;
+            assigned.add(func.getParameters().get(i));
+        }
+        for (ImVar v : func.getLocals()) {
+            addLocal(v);
+        }
+        intLocals = intTop;
+        objLocals = objTop;
+
+        compileStmts(func.getBody());
+        emit(RET_VOID);
+
+        return new BytecodeFunction(func, Arrays.copyOf(code, codeSize), pool.toArray(),
+                maxInt, maxObj, paramRegisters, paramIsBool);
+    }
+
+    private Operand addLocal(ImVar v) {
+        int kind = kindOf(v.getType());
+        if (v.getType() instanceof ImArrayLikeType) {
+            throw new Unsupported("local array " + v.getName());
+        }
+        Operand r = kind == OBJ ? newObj() : new Operand(kind, newIntRegister());
+        locals.put(v, r);
+        return r;
+    }
+
+    private static int kindOf(ImType t) {
+        if (TypesHelper.isIntType(t)) {
+            return INT;
+        } else if (TypesHelper.isBoolType(t)) {
+            return BOOL;
+        }
+        return OBJ;
+    }
+
+    private int newIntRegister() {
+        int r = intTop++;
+        maxInt = Math.max(maxInt, intTop);
+        return r;
+    }
+
+    private Operand newInt() {
+        return new Operand(INT, newIntRegister());
+    }
+
+    private Operand newBool() {
+        return new Operand(BOOL, newIntRegister());
+    }
+
+    private Operand newObj() {
+        int r = objTop++;
+        maxObj = Math.max(maxObj, objTop);
+        return new Operand(OBJ, r);
+    }
+
+    private void emit(int... values) {
+        if (codeSize + values.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, codeSize + values.length));
+        }
+        for (int v : values) {
+            code[codeSize++] = v;
+        }
+    }
+
+    private int pool(Object o) {
+        return poolIndex.computeIfAbsent(o, k -> {
+            pool.add(k);
+            return pool.size() - 1;
+        });
+    }
+
+    /**
+     * emits a jump instruction and returns the position of its target
+     */
+    private int emitJump(int opcode, int... operands) {
+        emit(opcode);
+        emit(operands);
+        emit(-1);
+        return codeSize - 1;
+    }
+
+    private void patchJump(int pos) {
+        code[pos] = codeSize;
+    }
+
+    private void compileStmts(ImStmts stmts) {
+        for (ImStmt s : stmts) {
+            int savedInt = intTop;
+            int savedObj = objTop;
+            emit(STMT, pool(s));
+            compileStmt(s);
+            // temporary registers are only used within one statement
+            intTop = savedInt;
+            objTop = savedObj;
+        }
+    }
+
+    private void compileStmt(ImStmt s) {
+        if (s instanceof ImIf) {
+            ImIf imIf = (ImIf) s;
+            Operand c = compileExpr(imIf.getCondition(), BOOL);
+            int elseJump = emitJump(JMP_FALSE, c.reg);
+            Set<ImVar> assignedBefore = new HashSet<>(assigned);
+            boolean unreachableBefore = unreachable;
+            compileStmts(imIf.getThenBlock());
+            Set<ImVar> assignedThen = assigned;
+            boolean unreachableThen = unreachable;
+            assigned = assignedBefore;
+            unreachable = unreachableBefore;
+            if (imIf.getElseBlock().isEmpty()) {
+                patchJump(elseJump);
+            } else {
+                int endJump = emitJump(JMP);
+                patchJump(elseJump);
+                compileStmts(imIf.getElseBlock());
+                patchJump(endJump);
+            }
+            joinAssigned(assignedThen, unreachableThen);
+        } else if (s instanceof ImLoop) {
+            int start = codeSize;
+            emit(LOOP);
+            loopExits.push(new ArrayList<>());
+            loopExitAssigned.push(new ArrayList<>());
+            // variables assigned in the loop body are not assigned at the start of the first iteration
+            Set<ImVar> assignedBefore = new HashSet<>(assigned);
+            compileStmts(((ImLoop) s).getBody());
+            emit(JMP, start);
+            for (int exit : loopExits.pop()) {
+                patchJump(exit);
+            }
+            // after the loop the variables are assigned, which were assigned at every exitwhen
+            List<Set<ImVar>> exits = loopExitAssigned.pop();
+            assigned = assignedBefore;
+            unreachable = true;
+            for (Set<ImVar> exitAssigned : exits) {
+                joinAssigned(exitAssigned, false);
+            }
+        } else if (s instanceof ImExitwhen) {
+            if (loopExits.isEmpty()) {
+                throw new Unsupported("exitwhen outside of loop");
+            }
+            Operand c = compileExpr(((ImExitwhen) s).getCondition(), BOOL);
+            loopExits.peek().add(emitJump(JMP_TRUE, c.reg));
+            if (!unreachable) {
+                loopExitAssigned.peek().add(new HashSet<>(assigned));
+            }
+        } else if (s instanceof ImReturn) {
+            ImExprOpt returnValue = ((ImReturn) s).getReturnValue();
+            if (returnValue instanceof ImExpr) {
+                emit(RET, compileExpr((ImExpr) returnValue, OBJ).reg);
+            } else {
+                emit(RET, -1);
+            }
+            unreachable = true;
+        } else if (s instanceof ImSet) {
+            compileSet((ImSet) s);
+        } else if (s instanceof ImFunctionCall) {
+            compileCall((ImFunctionCall) s, false);
+        } else if (s instanceof ImMethodCall) {
+            compileMethodCall((ImMethodCall) s, false);
+        } else if (s instanceof ImExpr) {
+            compileExpr((ImExpr) s, ANY);
+        } else {
+            throw new Unsupported(s.getClass().getSimpleName());
+        }
+    }
+
+    private void compileSet(ImSet s) {
+        ImLExpr left = s.getLeft();
+        ImExpr right = s.getRight();
+        if (left instanceof ImVarAccess) {
+            ImVar v = ((ImVarAccess) left).getVar();
+            if (v.isGlobal()) {
+                Operand value = compileExpr(right, OBJ);
+                emit(SET_GLOBAL, pool(v), value.reg);
+            } else {
+                Operand target = local(v);
+                Operand value = compileExpr(right, target.kind);
+                if (value.reg != target.reg) {
+                    emit(target.kind == OBJ ? MOV_O : MOV_I, target.reg, value.reg);
+                }
+                assigned.add(v);
+            }
+        } else if (left instanceof ImVarArrayAccess) {
+            ImVarArrayAccess va = (ImVarArrayAccess) left;
+            if (!va.getVar().isGlobal() || va.getIndexes().size() != 1) {
+                throw new Unsupported("array access to " + va.getVar().getName());
+            }
+            Operand index = protect(compileExpr(va.getIndexes().get(0), INT), Collections.singletonList(right));
+            Operand value = compileExpr(right, OBJ);
+            emit(SET_ARRAY, pool(va.getVar()), index.reg, value.reg);
+        } else if (left instanceof ImMemberAccess) {
+            ImMemberAccess ma = (ImMemberAccess) left;
+            if (ma.getIndexes().size() > 1) {
+                throw new Unsupported("member access with multiple indexes");
+            }
+            List<ImExpr> rest = new ArrayList<>(ma.getIndexes());
+            rest.add(right);
+            Operand receiver = protect(compileExpr(ma.getReceiver(), OBJ), rest);
+            int index = -1;
+            if (!ma.getIndexes().isEmpty()) {
+                index = protect(compileExpr(ma.getIndexes().get(0), INT), Collections.singletonList(right)).reg;
+            }
+            Operand value = compileExpr(right, OBJ);
+            emit(SET_MEMBER, pool(ma), receiver.reg, index, value.reg);
+        } else {
+            throw new Unsupported("assignment to " + left.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * joins the assigned variables of another control flow path with the current ones
+     */
+    private void joinAssigned(Set<ImVar> otherAssigned, boolean otherUnreachable) {
+        if (otherUnreachable) {
+            return;
+        }
+        if (unreachable) {
+            assigned = new HashSet<>(otherAssigned);
+            unreachable = false;
+        } else {
+            assigned.retainAll(otherAssigned);
+        }
+    }
+
+    private Operand local(ImVar v) {
+        Operand r = locals.get(v);
+        if (r == null) {
+            throw new Unsupported("unknown local variable " + v.getName());
+        }
+        return r;
+    }
+
+    /**
+     * compiles an expression and converts the result to the wanted kind of register
+     */
+    private Operand compileExpr(ImExpr e, int wanted) {
+        return convert(compileNatural(e), wanted, e);
+    }
+
+    private Operand convert(Operand r, int wanted, ImExpr e) {
+        if (wanted == ANY || wanted == r.kind) {
+            return r;
+        }
+        if (wanted == OBJ) {
+            Operand t = newObj();
+            emit(r.kind == BOOL ? BOX_BOOL : BOX_INT, t.reg, r.reg);
+            return t;
+        } else if (r.kind == OBJ) {
+            Operand t = new Operand(wanted, newIntRegister());
+            emit(wanted == BOOL ? UNBOX_BOOL : UNBOX_INT, t.reg, r.reg);
+            return t;
+        }
+        throw new Unsupported("cannot convert boolean and integer values in " + e);
+    }
+
+    /**
+     * Local variables are used directly as operands.
+     * When a later operand can change local variables, the current value has to be copied to a temporary register.
+     */
+    private Operand protect(Operand r, List<? extends ImExpr> later) {
+        boolean isLocal = r.kind == OBJ ? r.reg < objLocals : r.reg < intLocals;
+        if (!isLocal || later.stream().noneMatch(BytecodeCompiler::containsStatements)) {
+            return r;
+        }
+        Operand t = r.kind == OBJ ? newObj() : new Operand(r.kind, newIntRegister());
+        emit(r.kind == OBJ ? MOV_O : MOV_I, t.reg, r.reg);
+        return t;
+    }
+
+    private static boolean containsStatements(ImExpr e) {
+        boolean[] result = {false};
+        e.accept(new Element.DefaultVisitor() {
+            @Override
+            public void visit(ImStatementExpr se) {
+                result[0] = true;
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * checks whether an expression can be evaluated by the tree interpreter without access to the local variables
+     */
+    private static boolean canEvaluateWithoutLocals(ImExpr e) {
+        boolean[] result = {true};
+        e.accept(new Element.DefaultVisitor() {
+            @Override
+            public void visit(ImVarAccess va) {
+                result[0] &= va.getVar().isGlobal();
+            }
+
+            @Override
+            public void visit(ImVarArrayAccess va) {
+                super.visit(va);
+                result[0] &= va.getVar().isGlobal();
+            }
+
+            @Override
+            public void visit(ImReturn r) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visit(ImExitwhen r) {
+                result[0] = false;
+            }
+
+            @Override
+            public void visit(ImVarargLoop r) {
+                result[0] = false;
+            }
+        });
+        return result[0];
+    }
+
+    private Operand compileNatural(ImExpr e) {
+        if (e instanceof ImIntVal) {
+            Operand t = newInt();
+            emit(CONST_I, t.reg, ((ImIntVal) e).getValI());
+            return t;
+        } else if (e instanceof ImBoolVal) {
+            Operand t = newBool();
+            emit(CONST_I, t.reg, ((ImBoolVal) e).getValB() ? 1 : 0);
+            return t;
+        } else if (e instanceof ImRealVal) {
+            return constant(((ImRealVal) e).attrConstantValue());
+        } else if (e instanceof ImStringVal) {
+            return constant(((ImStringVal) e).attrConstantValue());
+        } else if (e instanceof ImNull) {
+            return constant(EvaluateExpr.eval((ImNull) e, globalState, new LocalState()));
+        } else if (e instanceof ImVarAccess) {
+            ImVar v = ((ImVarAccess) e).getVar();
+            if (!v.isGlobal()) {
+                if (!assigned.contains(v)) {
+                    throw new Unsupported("local variable " + v.getName() + " may be read before it is assigned");
+                }
+                return local(v);
+            } else if (EvaluateExpr.isMagicCompiletimeConstant(v)) {
+                Operand t = newBool();
+                emit(CONST_I, t.reg, globalState.isCompiletime() ? 1 : 0);
+                return t;
+            }
+            Operand t = newObj();
+            emit(GET_GLOBAL, t.reg, pool(v));
+            return t;
+        } else if (e instanceof ImVarArrayAccess) {
+            ImVarArrayAccess va = (ImVarArrayAccess) e;
+            if (!va.getVar().isGlobal() || va.getIndexes().size() != 1) {
+                throw new Unsupported("array access to " + va.getVar().getName());
+            }
+            Operand index = compileExpr(va.getIndexes().get(0), INT);
+            Operand t = newObj();
+            emit(GET_ARRAY, t.reg, pool(va.getVar()), index.reg);
+            return t;
+        } else if (e instanceof ImOperatorCall) {
+            return compileOperator((ImOperatorCall) e);
+        } else if (e instanceof ImFunctionCall) {
+            return compileCall((ImFunctionCall) e, true);
+        } else if (e instanceof ImMethodCall) {
+            return compileMethodCall((ImMethodCall) e, true);
+        } else if (e instanceof ImMemberAccess) {
+            ImMemberAccess ma = (ImMemberAccess) e;
+            if (ma.getIndexes().size() > 1) {
+                throw new Unsupported("member access with multiple indexes");
+            }
+            Operand receiver = protect(compileExpr(ma.getReceiver(), OBJ), ma.getIndexes());
+            int index = -1;
+            if (!ma.getIndexes().isEmpty()) {
+                index = compileExpr(ma.getIndexes().get(0), INT).reg;
+            }
+            Operand t = newObj();
+            emit(GET_MEMBER, t.reg, pool(ma), receiver.reg, index);
+            return t;
+        } else if (e instanceof ImStatementExpr) {
+            ImStatementExpr se = (ImStatementExpr) e;
+            compileStmts(se.getStatements());
+            return compileNatural(se.getExpr());
+        } else if (e instanceof ImCast) {
+            ImCast c = (ImCast) e;
+            Operand r = compileNatural(c.getExpr());
+            if (r.kind == INT && TypesHelper.isIntType(c.getToType())) {
+                // casting an integer to an integer does not change the value
+                return r;
+            }
+            Operand value = convert(r, OBJ, c);
+            Operand t = newObj();
+            emit(CAST, t.reg, value.reg, pool(c));
+            return t;
+        } else if (e instanceof ImDealloc) {
+            Operand obj = compileExpr(((ImDealloc) e).getObj(), OBJ);
+            emit(DEALLOC, obj.reg, pool(e));
+            return constant(ILconstNull.instance());
+        } else if (e instanceof ImInstanceof) {
+            Operand obj = compileExpr(((ImInstanceof) e).getObj(), OBJ);
+            Operand t = newBool();
+            emit(INSTANCEOF, t.reg, obj.reg, pool(e));
+            return t;
+        } else if (e instanceof ImTypeIdOfObj) {
+            Operand obj = compileExpr(((ImTypeIdOfObj) e).getObj(), OBJ);
+            Operand t = newInt();
+            emit(TYPEID, t.reg, obj.reg, pool(e));
+            return t;
+        } else if (e instanceof ImTypeIdOfClass) {
+            Operand t = newInt();
+            emit(CONST_I, t.reg, ((ImTypeIdOfClass) e).getClazz().getClassDef().attrTypeId());
+            return t;
+        } else if (e instanceof ImTupleExpr) {
+            int[] values = compileOperands(((ImTupleExpr) e).getExprs());
+            Operand t = newObj();
+            emit(TUPLE, t.reg, values.length);
+            emit(values);
+            return t;
+        } else if (e instanceof ImTupleSelection) {
+            Operand tuple = compileExpr(((ImTupleSelection) e).getTupleExpr(), OBJ);
+            Operand t = newObj();
+            emit(TUPLE_GET, t.reg, tuple.reg, pool(e));
+            return t;
+        } else if (canEvaluateWithoutLocals(e)) {
+            Operand t = newObj();
+            emit(EVAL, t.reg, pool(e));
+            return t;
+        }
+        throw new Unsupported(e.getClass().getSimpleName());
+    }
+
+    private Operand constant(ILconst c) {
+        Operand t = newObj();
+        emit(CONST_O, t.reg, pool(c));
+        return t;
+    }
+
+    /**
+     * compiles a list of expressions to object registers, which are evaluated from left to right
+     */
+    private int[] compileOperands(List<ImExpr> exprs) {
+        int[] regs = new int[exprs.size()];
+        for (int i = 0; i < regs.length; i++) {
+            regs[i] = protect(compileExpr(exprs.get(i), OBJ), exprs.subList(i + 1, exprs.size())).reg;
+        }
+        return regs;
+    }
+
+    private Operand compileOperator(ImOperatorCall e) {
+        WurstOperator op = e.getOp();
+        ImExprs args = e.getArguments();
+        if (args.size() == 1 && op == WurstOperator.NOT) {
+            Operand a = compileExpr(args.get(0), BOOL);
+            Operand t = newBool();
+            emit(NOT, t.reg, a.reg);
+            return t;
+        } else if (args.size() == 1 && op == WurstOperator.UNARY_MINUS && TypesHelper.isIntType(args.get(0).attrTyp())) {
+            Operand a = compileExpr(args.get(0), INT);
+            Operand t = newInt();
+            emit(NEG_I, t.reg, a.reg);
+            return t;
+        } else if (args.size() == 1 && op.isUnaryOp()) {
+            Operand a = compileExpr(args.get(0), OBJ);
+            Operand t = newObj();
+            emit(UNOP, t.reg, a.reg, op.ordinal());
+            return t;
+        } else if (args.size() != 2 || !op.isBinaryOp()) {
+            throw new Unsupported("operator " + op);
+        }
+
+        ImExpr left = args.get(0);
+        ImExpr right = args.get(1);
+        if (op == WurstOperator.AND || op == WurstOperator.OR) {
+            // short circuit evaluation
+            Operand t = newBool();
+            Operand a = compileExpr(left, BOOL);
+            emit(MOV_I, t.reg, a.reg);
+            int end = emitJump(op == WurstOperator.AND ? JMP_FALSE : JMP_TRUE, t.reg);
+            // the right operand is not always evaluated, so its assignments do not count
+            Set<ImVar> assignedBefore = new HashSet<>(assigned);
+            Operand b = compileExpr(right, BOOL);
+            assigned = assignedBefore;
+            emit(MOV_I, t.reg, b.reg);
+            patchJump(end);
+            return t;
+        }
+
+        boolean ints = TypesHelper.isIntType(left.attrTyp()) && TypesHelper.isIntType(right.attrTyp());
+        boolean bools = TypesHelper.isBoolType(left.attrTyp()) && TypesHelper.isBoolType(right.attrTyp());
+        int opcode = -1;
+        int resultKind = BOOL;
+        switch (op) {
+            case PLUS:
+                opcode = ints ? ADD_I : -1;
+                resultKind = INT;
+                break;
+            case MINUS:
+                opcode = ints ? SUB_I : -1;
+                resultKind = INT;
+                break;
+            case MULT:
+                opcode = ints ? MUL_I : -1;
+                resultKind = INT;
+                break;
+            case DIV_INT:
+                opcode = ints ? DIV_I : -1;
+                resultKind = INT;
+                break;
+            case MOD_INT:
+                opcode = ints ? MOD_I : -1;
+                resultKind = INT;
+                break;
+            case EQ:
+                opcode = ints || bools ? EQ_I : -1;
+                break;
+            case NOTEQ:
+                opcode = ints || bools ? NE_I : -1;
+                break;
+            case LESS:
+                opcode = ints ? LT_I : -1;
+                break;
+            case LESS_EQ:
+                opcode = ints ? LE_I : -1;
+                break;
+            case GREATER:
+                opcode = ints ? GT_I : -1;
+                break;
+            case GREATER_EQ:
+                opcode = ints ? GE_I : -1;
+                break;
+            default:
+                break;
+        }
+        if (opcode >= 0) {
+            int kind = bools ? BOOL : INT;
+            Operand a = protect(compileExpr(left, kind), Collections.singletonList(right));
+            Operand b = compileExpr(right, kind);
+            Operand t = new Operand(resultKind, newIntRegister());
+            emit(opcode, t.reg, a.reg, b.reg);
+            return t;
+        }
+        Operand a = protect(compileExpr(left, OBJ), Collections.singletonList(right));
+        Operand b = compileExpr(right, OBJ);
+        Operand t = newObj();
+        emit(BINOP, t.reg, a.reg, b.reg, op.ordinal());
+        return t;
+    }
+
+    private Operand compileCall(ImFunctionCall e, boolean useResult) {
+        int[] args = compileOperands(e.getArguments());
+        Operand t = useResult ? newObj() : new Operand(OBJ, -1);
+        emit(CALL, t.reg, pool(e.getFunc()), pool(e), args.length);
+        emit(args);
+        return t;
+    }
+
+    private Operand compileMethodCall(ImMethodCall mc, boolean useResult) {
+        Operand receiverValue = compileExpr(mc.getReceiver(), OBJ);
+        Operand receiver = newObj();
+        emit(RECEIVER, receiver.reg, receiverValue.reg, pool(mc));
+        int[] args = compileOperands(mc.getArguments());
+        Operand t = useResult ? newObj() : new Operand(OBJ, -1);
+        emit(CALL_METHOD, t.reg, pool(mc), args.length + 1, receiver.reg);
+        emit(args);
+        return t;
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstscript.jassIm.ImClass;
+import de.peeeq.wurstscript.jassIm.ImFunction;
+
+/**
+ * A function compiled to register based bytecode, see {@link BytecodeCompiler}.
+ * <p>
+ * Each frame has two register files: int registers for integer and boolean values
+ * and object registers for all other values.
+ * Parameters and local variables are stored in fixed registers, temporary values use the registers after them.
+ * <p>
+ * The code is a flat int array. Each instruction starts with one of the opcodes below, followed by its operands.
+ * Operands are register numbers, jump targets, literal values or indexes into the constant pool.
+ */
+public final class BytecodeFunction {
+
+    // constants and moves
+    static final int CONST_I = 0;        // dst(i), value
+    static final int CONST_O = 1;        // dst(o), pool
+    static final int MOV_I = 2;          // dst(i), src(i)
+    static final int MOV_O = 3;          // dst(o), src(o)
+    static final int BOX_INT = 4;        // dst(o), src(i)
+    static final int BOX_BOOL = 5;       // dst(o), src(i)
+    static final int UNBOX_INT = 6;      // dst(i), src(o)
+    static final int UNBOX_BOOL = 7;     // dst(i), src(o)
+    // integer and boolean operations
+    static final int ADD_I = 8;          // dst(i), a(i), b(i)
+    static final int SUB_I = 9;
+    static final int MUL_I = 10;
+    static final int DIV_I = 11;
+    static final int MOD_I = 12;
+    static final int EQ_I = 13;
+    static final int NE_I = 14;
+    static final int LT_I = 15;
+    static final int LE_I = 16;
+    static final int GT_I = 17;
+    static final int GE_I = 18;
+    static final int NEG_I = 19;         // dst(i), a(i)
+    static final int NOT = 20;           // dst(i), a(i)
+    // operations on other values
+    static final int BINOP = 21;         // dst(o), a(o), b(o), operator ordinal
+    static final int UNOP = 22;          // dst(o), a(o), operator ordinal
+    // variables
+    static final int GET_GLOBAL = 23;    // dst(o), pool(var)
+    static final int SET_GLOBAL = 24;    // pool(var), src(o)
+    static final int GET_ARRAY = 25;     // dst(o), pool(var), index(i)
+    static final int SET_ARRAY = 26;     // pool(var), index(i), src(o)
+    static final int GET_MEMBER = 27;    // dst(o), pool(member access), receiver(o), index(i) or -1
+    static final int SET_MEMBER = 28;    // pool(member access), receiver(o), index(i) or -1, src(o)
+    // calls
+    static final int CALL = 29;          // dst(o) or -1, pool(function), pool(call), argument count, arguments(o)...
+    static final int RECEIVER = 30;      // dst(o), src(o), pool(method call)
+    static final int CALL_METHOD = 31;   // dst(o) or -1, pool(method call), argument count (with receiver), receiver(o), arguments(o)...
+    // class related expressions
+    static final int CAST = 32;          // dst(o), src(o), pool(cast)
+    static final int DEALLOC = 33;       // src(o), pool(dealloc)
+    static final int INSTANCEOF = 34;    // dst(i), src(o), pool(instanceof)
+    static final int TYPEID = 35;        // dst(i), src(o), pool(typeId)
+    // tuples
+    static final int TUPLE = 36;         // dst(o), count, values(o)...
+    static final int TUPLE_GET = 37;     // dst(o), src(o), pool(tuple selection)
+    // expressions without local variables are evaluated by the tree interpreter
+    static final int EVAL = 38;          // dst(o), pool(expr)
+    // control flow
+    static final int STMT = 39;          // pool(statement)
+    static final int LOOP = 40;          //
+    static final int JMP = 41;           // target
+    static final int JMP_FALSE = 42;     // cond(i), target
+    static final int JMP_TRUE = 43;      // cond(i), target
+    static final int RET = 44;           // src(o)
+    static final int RET_VOID = 45;      //
+
+    final ImFunction func;
+    final int[] code;
+    final Object[] pool;
+    final int intRegisters;
+    final int objRegisters;
+    /**
+     * the register of each parameter, int registers are encoded as non-negative numbers,
+     * object registers r as -r-1
+     */
+    final int[] paramRegisters;
+    /**
+     * kind of each parameter register, true for boolean registers
+     */
+    final boolean[] paramIsBool;
+    /**
+     * inline caches for method calls, indexed like the pool
+     */
+    final ImClass[] cachedClass;
+    final ImFunction[] cachedImplementation;
+
+    BytecodeFunction(ImFunction func, int[] code, Object[] pool, int intRegisters, int objRegisters,
+                     int[] paramRegisters, boolean[] paramIsBool) {
+        this.func = func;
+        this.code = code;
+        this.pool = pool;
+        this.intRegisters = intRegisters;
+        this.objRegisters = objRegisters;
+        this.paramRegisters = paramRegisters;
+        this.paramIsBool = paramIsBool;
+        this.cachedClass = new ImClass[pool.length];
+        this.cachedImplementation = new ImFunction[pool.length];
+    }
+
+    public ImFunction getFunction() {
+        return func;
+    }
+
+    public int getCodeSize() {
+        return code.length;
+    }
+
+}
@@ -0,0 +1,407 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstio.jassinterpreter.DebugPrintError;
+import de.peeeq.wurstio.jassinterpreter.InterpreterException;
+import de.peeeq.wurstscript.WurstOperator;
+import de.peeeq.wurstscript.intermediatelang.*;
+import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.jassinterpreter.TestFailException;
+import de.peeeq.wurstscript.jassinterpreter.TestSuccessException;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static de.peeeq.wurstscript.intermediatelang.interpreter.BytecodeFunction.*;
+
+/**
+ * Executes functions compiled by the {@link BytecodeCompiler}.
+ * <p>
+ * The observable behavior (stack frames, last statement, error messages) is the same as in the tree interpreter.
+ */
+public class BytecodeInterpreter {
+
+    private static final WurstOperator[] OPERATORS = WurstOperator.values();
+
+    /**
+     * runs a compiled function and returns its return value
+     */
+    static @Nullable ILconst run(ProgramState globalState, BytecodeFunction code, @Nullable Element caller, ILconst[] args) {
+        ImFunction f = code.func;
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterpreterException(globalState, "Execution interrupted");
+        }
+        try {
+            if (f.getParameters().size() != args.length) {
+                throw new Error("wrong number of parameters when calling func " + f.getName() + "(" +
+                        Arrays.stream(args).map(Object::toString).collect(Collectors.joining(", ")) + ")");
+            }
+            for (int i = 0; i < args.length; i++) {
+                args[i] = ILInterpreter.adjustTypeOfConstant(args[i], f.getParameters().get(i).getType());
+            }
+
+            if (f.getBody().isEmpty()) {
+                return ILconstNull.instance();
+            } else {
+                globalState.setLastStatement(f.getBody().get(0));
+            }
+
+            int[] ints = new int[code.intRegisters];
+            ILconst[] objs = globalState.acquireFrame(code.objRegisters);
+            for (int i = 0; i < args.length; i++) {
+                int r = code.paramRegisters[i];
+                if (r < 0) {
+                    objs[-r - 1] = args[i];
+                } else if (code.paramIsBool[i]) {
+                    ints[r] = toBool(args[i]);
+                } else {
+                    ints[r] = toInt(args[i]);
+                }
+            }
+
+            globalState.pushStackframe(f, args, (caller == null ? f : caller).attrTrace().attrErrorPos());
+            try {
+                ILconst result = execute(globalState, code, ints, objs);
+                globalState.popStackframe();
+                return result;
+            } finally {
+                globalState.releaseFrame(objs);
+            }
+        } catch (InterpreterException e) {
+            throw ILInterpreter.withStacktrace(globalState, f, e);
+        } catch (TestSuccessException | TestFailException | DebugPrintError e) {
+            throw e;
+        } catch (Throwable e) {
+            throw ILInterpreter.interpreterBug(globalState, f, e);
+        }
+    }
+
+    private static @Nullable ILconst execute(ProgramState globalState, BytecodeFunction fn, int[] ir, ILconst[] or) {
+        final int[] code = fn.code;
+        final Object[] pool = fn.pool;
+        int pc = 0;
+        while (true) {
+            switch (code[pc]) {
+                case CONST_I:
+                    ir[code[pc + 1]] = code[pc + 2];
+                    pc += 3;
+                    break;
+                case CONST_O:
+                    or[code[pc + 1]] = (ILconst) pool[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case MOV_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case MOV_O:
+                    or[code[pc + 1]] = or[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case BOX_INT:
+                    or[code[pc + 1]] = ILconstInt.create(ir[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case BOX_BOOL:
+                    or[code[pc + 1]] = ILconstBool.instance(ir[code[pc + 2]] != 0);
+                    pc += 3;
+                    break;
+                case UNBOX_INT:
+                    ir[code[pc + 1]] = toInt(or[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case UNBOX_BOOL:
+                    ir[code[pc + 1]] = toBool(or[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ADD_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] + ir[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case SUB_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] - ir[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case MUL_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] * ir[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case DIV_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] / ir[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case MOD_I: {
+                    int right = ir[code[pc + 3]];
+                    int r = ir[code[pc + 2]] % right;
+                    if (r < 0) {
+                        r += right;
+                    }
+                    ir[code[pc + 1]] = r;
+                    pc += 4;
+                    break;
+                }
+                case EQ_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] == ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case NE_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] != ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case LT_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] < ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case LE_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] <= ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case GT_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] > ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case GE_I:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] >= ir[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case NEG_I:
+                    ir[code[pc + 1]] = -ir[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case NOT:
+                    ir[code[pc + 1]] = ir[code[pc + 2]] != 0 ? 0 : 1;
+                    pc += 3;
+                    break;
+                case BINOP: {
+                    ILconst right = or[code[pc + 3]];
+                    or[code[pc + 1]] = OPERATORS[code[pc + 4]].evaluateBinaryOperator(or[code[pc + 2]], () -> right);
+                    pc += 5;
+                    break;
+                }
+                case UNOP:
+                    or[code[pc + 1]] = OPERATORS[code[pc + 3]].evaluateUnaryOperator(or[code[pc + 2]]);
+                    pc += 4;
+                    break;
+                case GET_GLOBAL: {
+                    ImVar v = (ImVar) pool[code[pc + 2]];
+                    ILconst r = globalState.getVal(v);
+                    if (r == null) {
+                        r = EvaluateExpr.evaluateGlobal(v, globalState, new LocalState());
+                    }
+                    or[code[pc + 1]] = r;
+                    pc += 3;
+                    break;
+                }
+                case SET_GLOBAL:
+                    globalState.setVal((ImVar) pool[code[pc + 1]], or[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case GET_ARRAY: {
+                    ImVar v = (ImVar) pool[code[pc + 2]];
+                    ILconst r = globalState.getArrayVal(v, ir[code[pc + 3]]);
+                    if (r == null) {
+                        r = EvaluateExpr.notNull(null, v.getType(), "Variable " + v.getName() + " is null.", false);
+                    }
+                    or[code[pc + 1]] = r;
+                    pc += 4;
+                    break;
+                }
+                case SET_ARRAY:
+                    globalState.setArrayVal((ImVar) pool[code[pc + 1]], ir[code[pc + 2]], or[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case GET_MEMBER: {
+                    ImMemberAccess ma = (ImMemberAccess) pool[code[pc + 2]];
+                    ILconstObject receiver = globalState.toObject(or[code[pc + 3]]);
+                    if (receiver == null) {
+                        throw new InterpreterException(ma.getTrace(), "Null pointer dereference");
+                    }
+                    int index = code[pc + 4];
+                    ILconst r = index < 0
+                        ? receiver.get(ma.getVar())
+                        : receiver.get(ma.getVar(), indexes(ir, index)).orElse(null);
+                    or[code[pc + 1]] = r != null ? r : ma.attrTyp().defaultValue();
+                    pc += 5;
+                    break;
+                }
+                case SET_MEMBER: {
+                    ImMemberAccess ma = (ImMemberAccess) pool[code[pc + 1]];
+                    ILconstObject receiver = globalState.toObject(or[code[pc + 2]]);
+                    int index = code[pc + 3];
+                    if (index < 0) {
+                        receiver.set(ma.getVar(), or[code[pc + 4]]);
+                    } else {
+                        receiver.set(ma.getVar(), indexes(ir, index), or[code[pc + 4]]);
+                    }
+                    pc += 5;
+                    break;
+                }
+                case CALL: {
+                    int n = code[pc + 4];
+                    ILconst[] args = new ILconst[n];
+                    for (int i = 0; i < n; i++) {
+                        args[i] = or[code[pc + 5 + i]];
+                    }
+                    ILconst r = ILInterpreter.callFunc(globalState, (ImFunction) pool[code[pc + 2]], (Element) pool[code[pc + 3]], args);
+                    if (code[pc + 1] >= 0) {
+                        or[code[pc + 1]] = r;
+                    }
+                    pc += 5 + n;
+                    break;
+                }
+                case RECEIVER: {
+                    ImMethodCall mc = (ImMethodCall) pool[code[pc + 3]];
+                    ILconstObject receiver = globalState.toObject(or[code[pc + 2]]);
+                    globalState.assertAllocated(receiver, mc.attrTrace());
+                    or[code[pc + 1]] = receiver;
+                    pc += 4;
+                    break;
+                }
+                case CALL_METHOD: {
+                    int p = code[pc + 2];
+                    ImMethodCall mc = (ImMethodCall) pool[p];
+                    int n = code[pc + 3];
+                    ILconst[] args = new ILconst[n];
+                    for (int i = 0; i < n; i++) {
+                        args[i] = or[code[pc + 4 + i]];
+                    }
+                    ImFunction impl = findImplementation(fn, p, mc, (ILconstObject) args[0]);
+                    ILconst r = ILInterpreter.callFunc(globalState, impl, mc, args);
+                    if (code[pc + 1] >= 0) {
+                        or[code[pc + 1]] = r;
+                    }
+                    pc += 4 + n;
+                    break;
+                }
+                case CAST:
+                    or[code[pc + 1]] = EvaluateExpr.cast((ImCast) pool[code[pc + 3]], or[code[pc + 2]], globalState);
+                    pc += 4;
+                    break;
+                case DEALLOC: {
+                    ImDealloc d = (ImDealloc) pool[code[pc + 2]];
+                    ILconstObject obj = globalState.toObject(or[code[pc + 1]]);
+                    globalState.deallocate(obj, d.getClazz().getClassDef(), d.attrTrace());
+                    pc += 3;
+                    break;
+                }
+                case INSTANCEOF: {
+                    ImInstanceof e = (ImInstanceof) pool[code[pc + 3]];
+                    ILconstObject obj = globalState.toObject(or[code[pc + 2]]);
+                    ir[code[pc + 1]] = globalState.isInstanceOf(obj, e.getClazz().getClassDef(), e.attrTrace()) ? 1 : 0;
+                    pc += 4;
+                    break;
+                }
+                case TYPEID: {
+                    ImTypeIdOfObj e = (ImTypeIdOfObj) pool[code[pc + 3]];
+                    ILconstObject obj = globalState.toObject(or[code[pc + 2]]);
+                    ir[code[pc + 1]] = globalState.getTypeId(obj, e.attrTrace());
+                    pc += 4;
+                    break;
+                }
+                case TUPLE: {
+                    int n = code[pc + 2];
+                    ILconst[] values = new ILconst[n];
+                    for (int i = 0; i < n; i++) {
+                        values[i] = or[code[pc + 3 + i]];
+                    }
+                    or[code[pc + 1]] = new ILconstTuple(values);
+                    pc += 3 + n;
+                    break;
+                }
+                case TUPLE_GET: {
+                    ImTupleSelection e = (ImTupleSelection) pool[code[pc + 3]];
+                    ILconst tupleE = or[code[pc + 2]];
+                    if (!(tupleE instanceof ILconstTuple)) {
+                        throw new InterpreterException(globalState, "Tuple " + e + " evaluated to " + tupleE);
+                    }
+                    ILconstTuple t = (ILconstTuple) tupleE;
+                    if (e.getTupleIndex() >= t.values().size()) {
+                        throw new InterpreterException(globalState, "Trying to get element " + e.getTupleIndex() + " of tuple value " + t);
+                    }
+                    or[code[pc + 1]] = t.getValue(e.getTupleIndex());
+                    pc += 4;
+                    break;
+                }
+                case EVAL:
+                    or[code[pc + 1]] = ((ImExpr) pool[code[pc + 2]]).evaluate(globalState, new LocalState());
+                    pc += 3;
+                    break;
+                case STMT:
+                    globalState.setLastStatement((ImStmt) pool[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case LOOP:
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterpreterException(globalState, "Execution interrupted");
+                    }
+                    pc += 1;
+                    break;
+                case JMP:
+                    pc = code[pc + 1];
+                    break;
+                case JMP_FALSE:
+                    pc = ir[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case JMP_TRUE:
+                    pc = ir[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case RET: {
+                    int r = code[pc + 1];
+                    return r < 0 ? null : ILInterpreter.adjustTypeOfConstant(or[r], fn.func.getReturnType());
+                }
+                case RET_VOID:
+                    if (fn.func.getReturnType() instanceof ImVoid) {
+                        return null;
+                    }
+                    throw new InterpreterException("function " + fn.func.getName() + " did not return any value...");
+                default:
+                    throw new Error("invalid opcode " + code[pc] + " at " + pc + " in " + fn.func.getName());
+            }
+        }
+    }
+
+    private static List<Integer> indexes(int[] ir, int indexRegister) {
+        if (indexRegister < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(ir[indexRegister]);
+    }
+
+    /**
+     * finds the most precise implementation of a method, the result is cached for the class of the last receiver
+     */
+    private static ImFunction findImplementation(BytecodeFunction fn, int p, ImMethodCall mc, ILconstObject receiver) {
+        ImClass c = receiver.getImClass();
+        if (fn.cachedClass[p] == c) {
+            return fn.cachedImplementation[p];
+        }
+        ImMethod mostPrecise = mc.getMethod();
+        for (ImMethod m : mc.getMethod().getSubMethods()) {
+            if (m.attrClass().isSubclassOf(mostPrecise.attrClass()) && c.isSubclassOf(m.attrClass())) {
+                mostPrecise = m;
+            }
+        }
+        fn.cachedClass[p] = c;
+        fn.cachedImplementation[p] = mostPrecise.getImplementation();
+        return mostPrecise.getImplementation();
+    }
+
+    private static int toInt(@Nullable ILconst c) {
+        if (c instanceof ILconstInt) {
+            return ((ILconstInt) c).getVal();
+        } else if (c instanceof ILconstObject) {
+            return ((ILconstObject) c).getObjectId();
+        }
+        throw new InterpreterException("Expected an integer, but found " + c);
+    }
+
+    private static int toBool(@Nullable ILconst c) {
+        if (c instanceof ILconstBool) {
+            return ((ILconstBool) c).getVal() ? 1 : 0;
+        }
+        throw new InterpreterException("Expected a boolean, but found " + c);
+    }
+
+}
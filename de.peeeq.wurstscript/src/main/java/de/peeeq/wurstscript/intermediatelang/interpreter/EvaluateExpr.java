@@ -8,6 +8,7 @@ import de.peeeq.wurstscript.ast.VarDef;
 import de.peeeq.wurstscript.ast.WPackage;
 import de.peeeq.wurstscript.intermediatelang.*;
 import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imoptimizer.CallProfile;
 import de.peeeq.wurstscript.types.TypesHelper;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -28,6 +29,10 @@ public class EvaluateExpr {
 
     public static @Nullable ILconst eval(ImFunctionCall e, ProgramState globalState, LocalState localState) {
         ImFunction f = e.getFunc();
+        CallProfile callProfile = globalState.getCallProfile();
+        if (callProfile != null) {
+            callProfile.recordCall(e.getTrace(), f.getTrace());
+        }
         ImExprs arguments = e.getArguments();
         return evaluateFunc(globalState, localState, f, arguments, e);
     }
@@ -43,12 +48,11 @@ public class EvaluateExpr {
 
     @Nullable
     private static ILconst evaluateFunc(ProgramState globalState, ImFunction f, Element trace, ILconst[] args) {
-        LocalState r = ILInterpreter.runFunc(globalState, f, trace, args);
-        return r.getReturnVal();
+        return ILInterpreter.callFunc(globalState, f, trace, args);
     }
 
     public static ILconst eval(ImIntVal e, ProgramState globalState, LocalState localState) {
-        return new ILconstInt(e.getValI());
+        return e.attrConstantValue();
     }
 
     public static ILconst eval(ImNull e, ProgramState globalState, LocalState localState) {
@@ -74,7 +78,7 @@ public class EvaluateExpr {
     }
 
     public static ILconst eval(ImRealVal e, ProgramState globalState, LocalState localState) {
-        return new ILconstReal(e.getValR());
+        return e.attrConstantValue();
     }
 
     public static ILconst eval(ImStatementExpr e, ProgramState globalState, LocalState localState) {
@@ -88,6 +92,21 @@ public class EvaluateExpr {
     }
 
     public static ILconst eval(ImStringVal e, ProgramState globalState, LocalState localState) {
+        return e.attrConstantValue();
+    }
+
+    /**
+     * the value of a literal, computed once per node, so that evaluating the literal does not allocate
+     */
+    public static ILconst constantValue(ImIntVal e) {
+        return ILconstInt.create(e.getValI());
+    }
+
+    public static ILconst constantValue(ImRealVal e) {
+        return new ILconstReal(e.getValR());
+    }
+
+    public static ILconst constantValue(ImStringVal e) {
         return new ILconstString(e.getValS());
     }
 
@@ -119,24 +138,27 @@ public class EvaluateExpr {
             if (isMagicCompiletimeConstant(var)) {
                 return ILconstBool.instance(globalState.isCompiletime());
             }
-
-            ILconst r = globalState.getVal(var);
-            if (r == null) {
-                List<ImExpr> initExpr = globalState.getProg().getGlobalInits().get(var);
-                if (initExpr != null) {
-                    r = initExpr.get(0).evaluate(globalState, localState);
-                } else {
-                    throw new InterpreterException(globalState, "Variable " + var.getName() + " is not initialized.");
-                }
-                globalState.setVal(var, r);
-            }
-            return r;
+            return evaluateGlobal(var, globalState, localState);
         } else {
             return notNull(localState.getVal(var), var.getType(), "Local variable " + var + " is null.", true);
         }
     }
 
-    private static boolean isMagicCompiletimeConstant(ImVar var) {
+    static ILconst evaluateGlobal(ImVar var, ProgramState globalState, LocalState localState) {
+        ILconst r = globalState.getVal(var);
+        if (r == null) {
+            List<ImExpr> initExpr = globalState.getProg().getGlobalInits().get(var);
+            if (initExpr != null) {
+                r = initExpr.get(0).evaluate(globalState, localState);
+            } else {
+                throw new InterpreterException(globalState, "Variable " + var.getName() + " is not initialized.");
+            }
+            globalState.setVal(var, r);
+        }
+        return r;
+    }
+
+    static boolean isMagicCompiletimeConstant(ImVar var) {
         if (var.getTrace() instanceof VarDef) {
             VarDef varDef = (VarDef) var.getTrace();
             if (varDef.getName().equals("compiletime")) {
@@ -152,7 +174,7 @@ public class EvaluateExpr {
         return false;
     }
 
-    private static ILconst notNull(@Nullable ILconst val, ImType imType, String msg, boolean failOnErr) {
+    static ILconst notNull(@Nullable ILconst val, ImType imType, String msg, boolean failOnErr) {
         if (val == null) {
             if (failOnErr) {
                 throw new InterpreterException(msg);
@@ -178,6 +200,11 @@ public class EvaluateExpr {
 
     public static @Nullable ILconst eval(ImMethodCall mc,
                                          ProgramState globalState, LocalState localState) {
+        CallProfile callProfile = globalState.getCallProfile();
+        if (callProfile != null) {
+            // method calls become calls of dispatch functions with the same traces
+            callProfile.recordCall(mc.getTrace(), mc.getMethod().getTrace());
+        }
         ILconstObject receiver = globalState.toObject(mc.getReceiver().evaluate(globalState, localState));
 
         globalState.assertAllocated(receiver, mc.attrTrace());
@@ -212,6 +239,10 @@ public class EvaluateExpr {
         if (receiver == null) {
             throw new InterpreterException(ma.getTrace(), "Null pointer dereference");
         }
+        if (ma.getIndexes().isEmpty()) {
+            ILconst r = receiver.get(ma.getVar());
+            return r != null ? r : ma.attrTyp().defaultValue();
+        }
         List<Integer> indexes = ma.getIndexes().stream()
             .map(i -> ((ILconstInt) i.evaluate(globalState, localState)).getVal())
             .collect(Collectors.toList());
@@ -238,13 +269,13 @@ public class EvaluateExpr {
 
     public static ILconst eval(ImTypeIdOfClass e,
                                ProgramState globalState, LocalState localState) {
-        return new ILconstInt(e.getClazz().getClassDef().attrTypeId());
+        return ILconstInt.create(e.getClazz().getClassDef().attrTypeId());
     }
 
     public static ILconst eval(ImTypeIdOfObj e,
                                ProgramState globalState, LocalState localState) {
         ILconstObject obj = globalState.toObject(e.getObj().evaluate(globalState, localState));
-        return new ILconstInt(globalState.getTypeId(obj, e.attrTrace()));
+        return ILconstInt.create(globalState.getTypeId(obj, e.attrTrace()));
     }
 
 
@@ -399,6 +430,10 @@ public class EvaluateExpr {
 
     public static ILconst eval(ImCast imCast, ProgramState globalState, LocalState localState) {
         ILconst res = imCast.getExpr().evaluate(globalState, localState);
+        return cast(imCast, res, globalState);
+    }
+
+    static ILconst cast(ImCast imCast, ILconst res, ProgramState globalState) {
         if (TypesHelper.isIntType(imCast.getToType())) {
             if (res instanceof ILconstObject) {
                 return ILconstInt.create(((ILconstObject) res).getObjectId());
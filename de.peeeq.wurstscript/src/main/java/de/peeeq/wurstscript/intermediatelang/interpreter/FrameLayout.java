@@ -0,0 +1,45 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstscript.intermediatelang.VarSlots;
+import de.peeeq.wurstscript.jassIm.ImFunction;
+import de.peeeq.wurstscript.jassIm.ImVar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assigns a dense slot index to every parameter and local variable of a function.
+ * Parameters come first, so that the arguments of a call can be copied directly into a frame.
+ */
+final class FrameLayout {
+
+    private final VarSlots slots;
+    private final int parameterCount;
+
+    FrameLayout(ImFunction f) {
+        parameterCount = f.getParameters().size();
+        List<ImVar> vars = new ArrayList<>(parameterCount + f.getLocals().size());
+        vars.addAll(f.getParameters());
+        vars.addAll(f.getLocals());
+        slots = new VarSlots(vars);
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    ImVar getVar(int slot) {
+        return slots.getVar(slot);
+    }
+
+    /**
+     * returns the slot of the given variable or -1 if it does not belong to this frame
+     */
+    int slotOf(ImVar v) {
+        return slots.slotOf(v);
+    }
+}
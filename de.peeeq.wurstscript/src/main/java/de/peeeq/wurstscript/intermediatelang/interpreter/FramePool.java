@@ -0,0 +1,52 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstscript.intermediatelang.ILconst;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Reuses the value arrays of finished function calls, so that calls do not have to allocate a new frame every time.
+ * <p>
+ * Frames are cleared when they are released, so an acquired frame always contains only nulls.
+ */
+final class FramePool {
+
+    private static final ILconst[] EMPTY = new ILconst[0];
+    private static final int MAX_POOLED_SIZE = 64;
+    private static final int MAX_POOLED_FRAMES = 32;
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<ILconst[]>[] free = new ArrayDeque[MAX_POOLED_SIZE + 1];
+
+    ILconst[] acquire(int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        if (size <= MAX_POOLED_SIZE) {
+            ArrayDeque<ILconst[]> frames = free[size];
+            if (frames != null) {
+                ILconst[] frame = frames.poll();
+                if (frame != null) {
+                    return frame;
+                }
+            }
+        }
+        return new ILconst[size];
+    }
+
+    void release(ILconst @Nullable [] frame) {
+        if (frame == null || frame.length == 0 || frame.length > MAX_POOLED_SIZE) {
+            return;
+        }
+        ArrayDeque<ILconst[]> frames = free[frame.length];
+        if (frames == null) {
+            frames = free[frame.length] = new ArrayDeque<>();
+        }
+        if (frames.size() < MAX_POOLED_FRAMES) {
+            Arrays.fill(frame, null);
+            frames.push(frame);
+        }
+    }
+}
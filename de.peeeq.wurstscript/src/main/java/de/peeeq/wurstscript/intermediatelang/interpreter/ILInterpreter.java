@@ -40,6 +40,10 @@ public class ILInterpreter implements AbstractInterpreter {
 
     public static LocalState runFunc(ProgramState globalState, ImFunction f, @Nullable Element caller,
                                      ILconst... args) {
+        BytecodeFunction code = globalState.getBytecodeFunction(f);
+        if (code != null) {
+            return new LocalState(BytecodeInterpreter.run(globalState, code, caller, args));
+        }
         if (Thread.currentThread().isInterrupted()) {
             throw new InterpreterException(globalState, "Execution interrupted");
         }
@@ -75,19 +79,18 @@ public class ILInterpreter implements AbstractInterpreter {
                 return runBuiltinFunction(globalState, f, args);
             }
 
-            LocalState localState = new LocalState();
-            int i = 0;
-            for (ImVar p : f.getParameters()) {
-                localState.setVal(p, args[i]);
-                i++;
-            }
-
             if (f.getBody().isEmpty()) {
-                return localState.setReturnVal(ILconstNull.instance());
+                return new LocalState(ILconstNull.instance());
             } else {
                 globalState.setLastStatement(f.getBody().get(0));
             }
 
+            FrameLayout layout = globalState.getFrameLayout(f);
+            ILconst[] frame = globalState.acquireFrame(layout.size());
+            // parameters are the first slots of the frame
+            System.arraycopy(args, 0, frame, 0, layout.getParameterCount());
+            LocalState localState = new LocalState(layout, frame);
+
             globalState.pushStackframe(f, args, (caller == null ? f : caller).attrTrace().attrErrorPos());
 
             try {
@@ -98,23 +101,46 @@ public class ILInterpreter implements AbstractInterpreter {
                 ILconst retVal = e.getVal();
                 retVal = adjustTypeOfConstant(retVal, f.getReturnType());
                 return localState.setReturnVal(retVal);
+            } finally {
+                globalState.releaseFrame(localState.detachSlots());
             }
             if (f.getReturnType() instanceof ImVoid) {
                 return localState;
             }
             throw new InterpreterException("function " + f.getName() + " did not return any value...");
         } catch (InterpreterException e) {
-            String msg = buildStacktrace(globalState, e);
-            e.setStacktrace(msg);
-            e.setTrace(getTrace(globalState, f));
-            throw e;
+            throw withStacktrace(globalState, f, e);
         } catch (TestSuccessException | TestFailException | DebugPrintError e) {
             throw e;
         } catch (Throwable e) {
-            String msg = buildStacktrace(globalState, e);
-            de.peeeq.wurstscript.ast.Element trace = getTrace(globalState, f);
-            throw new InterpreterException(trace, "You encountered a bug in the interpreter: " + e, e).setStacktrace(msg);
+            throw interpreterBug(globalState, f, e);
+        }
+    }
+
+    /**
+     * runs a function and returns its return value
+     * (same as runFunc, but avoids creating a LocalState when the function is executed as bytecode)
+     */
+    public static @Nullable ILconst callFunc(ProgramState globalState, ImFunction f, @Nullable Element caller,
+                                             ILconst... args) {
+        BytecodeFunction code = globalState.getBytecodeFunction(f);
+        if (code != null) {
+            return BytecodeInterpreter.run(globalState, code, caller, args);
         }
+        return runFunc(globalState, f, caller, args).getReturnVal();
+    }
+
+    static InterpreterException withStacktrace(ProgramState globalState, ImFunction f, InterpreterException e) {
+        String msg = buildStacktrace(globalState, e);
+        e.setStacktrace(msg);
+        e.setTrace(getTrace(globalState, f));
+        return e;
+    }
+
+    static InterpreterException interpreterBug(ProgramState globalState, ImFunction f, Throwable e) {
+        String msg = buildStacktrace(globalState, e);
+        de.peeeq.wurstscript.ast.Element trace = getTrace(globalState, f);
+        return new InterpreterException(trace, "You encountered a bug in the interpreter: " + e, e).setStacktrace(msg);
     }
 
     public static de.peeeq.wurstscript.ast.Element getTrace(ProgramState globalState, ImFunction f) {
@@ -135,7 +161,7 @@ public class ILInterpreter implements AbstractInterpreter {
     }
 
     @SuppressWarnings("null")
-    private static ILconst adjustTypeOfConstant(@Nullable ILconst retVal, ImType expectedType) {
+    static ILconst adjustTypeOfConstant(@Nullable ILconst retVal, ImType expectedType) {
         if (retVal instanceof ILconstInt && isTypeReal(expectedType)) {
             ILconstInt retValI = (ILconstInt) retVal;
             retVal = new ILconstReal(retValI.getVal());
@@ -153,9 +179,9 @@ public class ILInterpreter implements AbstractInterpreter {
 
     private static LocalState runBuiltinFunction(ProgramState globalState, ImFunction f, ILconst... args) {
         StringBuilder errors = new StringBuilder();
-        for (NativesProvider natives : globalState.getNativeProviders()) {
+        for (NativeFunction natives : globalState.getNativeFunctions(f)) {
             try {
-                return new LocalState(natives.invoke(f.getName(), args));
+                return new LocalState(natives.invoke(args));
             } catch (NoSuchNativeException e) {
                 errors.append("\n").append(e.getMessage());
                 // ignore
@@ -169,7 +195,7 @@ public class ILInterpreter implements AbstractInterpreter {
         return new LocalState(returnValue);
     }
 
-    private static boolean isCompiletimeNative(ImFunction f) {
+    static boolean isCompiletimeNative(ImFunction f) {
         if (f.getTrace() instanceof HasModifier) {
             HasModifier f2 = (HasModifier) f.getTrace();
             for (Modifier m : f2.getModifiers()) {
@@ -264,9 +290,11 @@ public class ILInterpreter implements AbstractInterpreter {
 
     @Override
     public int getMaxInstanceCount(int val) {
-        return (int) globalState.getAllObjects()
+        // ids of destroyed objects are reused, so count all allocations instead of the currently known objects
+        return globalState.getAllocatedClasses()
             .stream()
-            .filter(o -> o.getType().getClassDef().attrTypeId() == val)
-            .count();
+            .filter(c -> c.attrTypeId() == val)
+            .mapToInt(globalState::getAllocationCount)
+            .sum();
     }
 }
@@ -1,18 +1,79 @@
 package de.peeeq.wurstscript.intermediatelang.interpreter;
 
 import de.peeeq.wurstscript.intermediatelang.ILconst;
+import de.peeeq.wurstscript.jassIm.ImVar;
 import org.eclipse.jdt.annotation.Nullable;
 
 
 public class LocalState extends State {
 
     private @Nullable ILconst returnVal = null;
+    /**
+     * the variables of the function, stored in the slots given by the layout
+     * (variables not in the layout are stored in the maps of State)
+     */
+    private final @Nullable FrameLayout layout;
+    private ILconst @Nullable [] slots;
 
     public LocalState(ILconst returnVal) {
+        this.layout = null;
         this.setReturnVal(returnVal);
     }
 
     public LocalState() {
+        this.layout = null;
+    }
+
+    LocalState(FrameLayout layout, ILconst[] slots) {
+        this.layout = layout;
+        this.slots = slots;
+    }
+
+    @Override
+    public void setVal(ImVar v, ILconst val) {
+        ILconst[] slots = this.slots;
+        if (slots != null) {
+            int slot = layout.slotOf(v);
+            if (slot >= 0) {
+                slots[slot] = val;
+                return;
+            }
+        }
+        super.setVal(v, val);
+    }
+
+    @Override
+    public @Nullable ILconst getVal(ImVar v) {
+        ILconst[] slots = this.slots;
+        if (slots != null) {
+            int slot = layout.slotOf(v);
+            if (slot >= 0) {
+                return slots[slot];
+            }
+        }
+        return super.getVal(v);
+    }
+
+    @Override
+    public @Nullable ILconst getVarValue(String varName) {
+        ILconst[] slots = this.slots;
+        if (slots != null) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null && layout.getVar(i).getName().equals(varName)) {
+                    return slots[i];
+                }
+            }
+        }
+        return super.getVarValue(varName);
+    }
+
+    /**
+     * removes the slots from this state, so that they can be reused for another call
+     */
+    ILconst @Nullable [] detachSlots() {
+        ILconst[] slots = this.slots;
+        this.slots = null;
+        return slots;
     }
 
     public @Nullable ILconst getReturnVal() {
@@ -0,0 +1,13 @@
+package de.peeeq.wurstscript.intermediatelang.interpreter;
+
+import de.peeeq.wurstscript.intermediatelang.ILconst;
+
+/**
+ * A native function resolved by a {@link NativesProvider}.
+ */
+@FunctionalInterface
+public interface NativeFunction {
+
+    ILconst invoke(ILconst[] args) throws NoSuchNativeException;
+
+}
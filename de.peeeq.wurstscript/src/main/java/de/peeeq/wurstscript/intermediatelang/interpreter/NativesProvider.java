@@ -1,6 +1,7 @@
 package de.peeeq.wurstscript.intermediatelang.interpreter;
 
 import de.peeeq.wurstscript.intermediatelang.ILconst;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.PrintStream;
 
@@ -8,6 +9,16 @@ public interface NativesProvider {
 
     ILconst invoke(String funcname, ILconst[] args) throws NoSuchNativeException;
 
+    /**
+     * Resolves a native function once, so that calls do not have to look it up again.
+     * Returns null if this provider does not implement the function.
+     * <p>
+     * The default implementation looks up the function on every call.
+     */
+    default @Nullable NativeFunction bind(String funcname) {
+        return args -> invoke(funcname, args);
+    }
+
     void setOutStream(PrintStream outStream);
 
 }
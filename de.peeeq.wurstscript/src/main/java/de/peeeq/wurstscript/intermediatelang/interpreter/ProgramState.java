@@ -1,6 +1,8 @@
 package de.peeeq.wurstscript.intermediatelang.interpreter;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import de.peeeq.wurstio.jassinterpreter.InterpreterException;
 import de.peeeq.wurstscript.ast.Element;
@@ -9,8 +11,10 @@ import de.peeeq.wurstscript.gui.WurstGui;
 import de.peeeq.wurstscript.intermediatelang.*;
 import de.peeeq.wurstscript.jassIm.*;
 import de.peeeq.wurstscript.parser.WPos;
+import de.peeeq.wurstscript.translation.imoptimizer.CallProfile;
 import de.peeeq.wurstscript.utils.LineOffsets;
 import de.peeeq.wurstscript.utils.Utils;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.io.PrintStream;
 import java.util.*;
@@ -25,16 +29,180 @@ public class ProgramState extends State {
     private ImProg prog;
     private int objectIdCounter;
     private HashMap<Integer, ILconstObject> indexToObject = new HashMap<>();
+    private final ArrayDeque<Integer> freeObjectIds = new ArrayDeque<>();
+    private final Map<ImClass, VarSlots> classLayouts = new HashMap<>();
+    private final Map<ImClass, Integer> allocationCounts = new HashMap<>();
     private Deque<ILStackFrame> stackFrames = new ArrayDeque<>();
     private Deque<de.peeeq.wurstscript.jassIm.Element> lastStatements = new ArrayDeque<>();
     private boolean isCompiletime;
     private HashMap<Integer, IlConstHandle> handleMap = new HashMap<>();
+    private boolean useBytecodeInterpreter = false;
+    private @Nullable CallProfile callProfile;
+    private final Map<ImFunction, Optional<BytecodeFunction>> bytecodeFunctions = new HashMap<>();
+    private final Map<ImFunction, FrameLayout> frameLayouts = new HashMap<>();
+    private final FramePool framePool = new FramePool();
+    private final Map<ImFunction, List<NativeFunction>> nativeFunctions = new HashMap<>();
+    /**
+     * the state this state was forked from, see {@link #fork(WurstGui)}
+     */
+    private final @Nullable ProgramState parent;
+    /**
+     * the copies of mutable values of the parent state, which have been made so far
+     */
+    private final Map<ILconst, ILconst> forkedValues = new IdentityHashMap<>();
+    private volatile boolean cachedAttributesComputed = false;
 
 
     public ProgramState(WurstGui gui, ImProg prog, boolean isCompiletime) {
         this.gui = gui;
         this.prog = prog;
         this.isCompiletime = isCompiletime;
+        this.parent = null;
+    }
+
+    private ProgramState(ProgramState parent, WurstGui gui) {
+        this.gui = gui;
+        this.prog = parent.prog;
+        this.isCompiletime = parent.isCompiletime;
+        this.parent = parent;
+        this.useBytecodeInterpreter = parent.useBytecodeInterpreter;
+        this.callProfile = parent.callProfile;
+        this.objectIdCounter = parent.objectIdCounter;
+        this.freeObjectIds.addAll(parent.freeObjectIds);
+        this.allocationCounts.putAll(parent.allocationCounts);
+        for (Map.Entry<Integer, IlConstHandle> e : parent.handleMap.entrySet()) {
+            handleMap.put(e.getKey(), (IlConstHandle) forkValue(e.getValue()));
+        }
+    }
+
+    /**
+     * Creates a new state, which starts with the values of this state,
+     * but in which programs can run independently from this state and from other forks.
+     * <p>
+     * Values are copied from this state when they are first used in the fork (and not when they are first changed,
+     * because the interpreter and the natives change objects, arrays and handles in place),
+     * so this state must not be changed while forks are in use.
+     * Forks only read from this state, so several forks can be used concurrently from different threads.
+     * Natives providers are not copied and have to be added to the fork.
+     */
+    public ProgramState fork(WurstGui gui) {
+        if (parent != null) {
+            throw new IllegalStateException("Cannot fork a forked state.");
+        }
+        computeCachedAttributes();
+        return new ProgramState(this, gui);
+    }
+
+    /**
+     * The cached attributes of the program used by the interpreter are not synchronized,
+     * so they are computed once before the first fork, as all forks share the program.
+     * The other attributes used by the interpreter (like attrTrace or attrTyp) are not cached and only read the program.
+     */
+    private synchronized void computeCachedAttributes() {
+        if (cachedAttributesComputed) {
+            return;
+        }
+        prog.attrTypeId();
+        prog.attrSubclasses();
+        computeCachedAttributes(prog);
+        cachedAttributesComputed = true;
+    }
+
+    private static void computeCachedAttributes(de.peeeq.wurstscript.jassIm.Element e) {
+        if (e instanceof ImLiteral) {
+            ((ImLiteral) e).attrConstantValue();
+        } else if (e instanceof ImType && !(e instanceof ImVoid)) {
+            ((ImType) e).defaultValue();
+        } else if (e instanceof ImClass) {
+            ((ImClass) e).attrSubclasses();
+        } else if (e instanceof ImCompiletimeExpr) {
+            ((ImCompiletimeExpr) e).evaluationResult();
+        }
+        for (int i = 0; i < e.size(); i++) {
+            computeCachedAttributes(e.get(i));
+        }
+    }
+
+    /**
+     * returns the copy of a value of the parent state for this fork
+     */
+    private ILconst forkValue(ILconst value) {
+        if (!(value instanceof ILconstObject || value instanceof ILconstArray
+            || value instanceof ILconstTuple || value instanceof IlConstHandle)) {
+            // all other values are immutable
+            return value;
+        }
+        ILconst result = forkedValues.get(value);
+        if (result != null) {
+            return result;
+        }
+        if (value instanceof ILconstObject) {
+            ILconstObject obj = (ILconstObject) value;
+            ILconstObject copy = obj.copyWithoutFields();
+            // register the copy before copying the fields, so that cyclic references are copied correctly
+            forkedValues.put(value, copy);
+            if (parent != null && parent.indexToObject.get(obj.getObjectId()) == obj) {
+                indexToObject.putIfAbsent(obj.getObjectId(), copy);
+            }
+            copy.copyFieldsFrom(obj, this::forkValue);
+            return copy;
+        } else if (value instanceof ILconstArray) {
+            result = ((ILconstArray) value).copy(this::forkValue);
+        } else if (value instanceof ILconstTuple) {
+            List<ILconst> values = ((ILconstTuple) value).values();
+            ILconst[] copy = new ILconst[values.size()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = forkValue(values.get(i));
+            }
+            result = new ILconstTuple(copy);
+        } else {
+            result = forkHandle((IlConstHandle) value);
+        }
+        forkedValues.put(value, result);
+        return result;
+    }
+
+    /**
+     * handles backed by collections (hashtables, groups, forces, ...) or by mocks, which can be changed, are copied.
+     * All other handles are shared with the parent state, because their objects are immutable
+     * (for example conversions from integers).
+     */
+    private IlConstHandle forkHandle(IlConstHandle h) {
+        Object obj = h.getObj();
+        if (obj instanceof ListMultimap) {
+            ListMultimap<Object, Object> copy = ArrayListMultimap.create();
+            for (Map.Entry<?, ?> e : ((ListMultimap<?, ?>) obj).entries()) {
+                copy.put(e.getKey(), forkObject(e.getValue()));
+            }
+            return new IlConstHandle(h.print(), copy);
+        } else if (obj instanceof LinkedHashSet) {
+            LinkedHashSet<Object> copy = new LinkedHashSet<>();
+            for (Object o : (LinkedHashSet<?>) obj) {
+                copy.add(forkObject(o));
+            }
+            return new IlConstHandle(h.print(), copy);
+        } else if (obj instanceof ForkableHandleObject) {
+            return new IlConstHandle(h.print(), ((ForkableHandleObject) obj).fork(this::forkValue));
+        }
+        return h;
+    }
+
+    private Object forkObject(Object o) {
+        return o instanceof ILconst ? forkValue((ILconst) o) : o;
+    }
+
+    @Override
+    public @Nullable ILconst getVal(ImVar v) {
+        ILconst r = super.getVal(v);
+        ProgramState parent = this.parent;
+        if (r == null && parent != null) {
+            ILconst p = parent.getVal(v);
+            if (p != null) {
+                r = forkValue(p);
+                setVal(v, r);
+            }
+        }
+        return r;
     }
 
     public void setLastStatement(ImStmt s) {
@@ -68,6 +236,26 @@ public class ProgramState extends State {
     public void addNativeProvider(NativesProvider np) {
         np.setOutStream(outStream);
         nativeProviders.add(np);
+        nativeFunctions.clear();
+    }
+
+    /**
+     * returns the implementations of the given native function in the order of the providers,
+     * which are resolved only once per function
+     */
+    public List<NativeFunction> getNativeFunctions(ImFunction f) {
+        List<NativeFunction> result = nativeFunctions.get(f);
+        if (result == null) {
+            result = new ArrayList<>();
+            for (NativesProvider natives : nativeProviders) {
+                NativeFunction nf = natives.bind(f.getName());
+                if (nf != null) {
+                    result.add(nf);
+                }
+            }
+            nativeFunctions.put(f, result);
+        }
+        return result;
     }
 
     public Iterable<NativesProvider> getNativeProviders() {
@@ -76,20 +264,106 @@ public class ProgramState extends State {
 
     public ProgramState setProg(ImProg p) {
         prog = p;
+        bytecodeFunctions.clear();
+        frameLayouts.clear();
+        classLayouts.clear();
+        nativeFunctions.clear();
         return this;
     }
 
+    /**
+     * returns the slot layout for the parameters and locals of the given function
+     */
+    FrameLayout getFrameLayout(ImFunction f) {
+        FrameLayout layout = frameLayouts.get(f);
+        if (layout == null) {
+            layout = new FrameLayout(f);
+            frameLayouts.put(f, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * returns an array of the given size filled with nulls,
+     * which should be given back with {@link #releaseFrame(ILconst[])} when the call has finished
+     */
+    ILconst[] acquireFrame(int size) {
+        return framePool.acquire(size);
+    }
+
+    void releaseFrame(ILconst @Nullable [] frame) {
+        framePool.release(frame);
+    }
+
+    public boolean isUseBytecodeInterpreter() {
+        return useBytecodeInterpreter;
+    }
+
+    public void setUseBytecodeInterpreter(boolean useBytecodeInterpreter) {
+        this.useBytecodeInterpreter = useBytecodeInterpreter;
+    }
+
+    public @Nullable CallProfile getCallProfile() {
+        return callProfile;
+    }
+
+    /**
+     * records the executed calls in the given profile (only in functions which are not run by the bytecode interpreter)
+     */
+    public void setCallProfile(@Nullable CallProfile callProfile) {
+        this.callProfile = callProfile;
+    }
+
+    /**
+     * returns the bytecode for the given function or null,
+     * if the bytecode interpreter is disabled or the function cannot be compiled to bytecode
+     * <p>
+     * Each function is compiled only once, when it is called for the first time.
+     */
+    public @Nullable BytecodeFunction getBytecodeFunction(ImFunction f) {
+        if (!useBytecodeInterpreter) {
+            return null;
+        }
+        Optional<BytecodeFunction> code = bytecodeFunctions.get(f);
+        if (code == null) {
+            code = Optional.ofNullable(BytecodeCompiler.compile(f, this));
+            bytecodeFunctions.put(f, code);
+        }
+        return code.orElse(null);
+    }
+
     public ImProg getProg() {
         return prog;
     }
 
     public ILconstObject allocate(ImClassType clazz, Element trace) {
-        objectIdCounter++;
-        ILconstObject res = new ILconstObject(clazz, objectIdCounter, trace);
-        indexToObject.put(objectIdCounter, res);
+        int id;
+        if (freeObjectIds.isEmpty()) {
+            objectIdCounter++;
+            id = objectIdCounter;
+        } else {
+            // reuse the id which was freed first, so that stale ids are detected as long as possible
+            id = freeObjectIds.poll();
+        }
+        ImClass c = clazz.getClassDef();
+        VarSlots layout = classLayouts.computeIfAbsent(c, ILconstObject::fieldLayout);
+        ILconstObject res = new ILconstObject(clazz, id, trace, layout);
+        indexToObject.put(id, res);
+        allocationCounts.merge(c, 1, Integer::sum);
         return res;
     }
 
+    /**
+     * the number of objects of the given class that have been allocated so far
+     */
+    public int getAllocationCount(ImClass c) {
+        return allocationCounts.getOrDefault(c, 0);
+    }
+
+    public Collection<ImClass> getAllocatedClasses() {
+        return allocationCounts.keySet();
+    }
+
     protected Object classKey(ImClass clazz) {
         return clazz;
     }
@@ -97,7 +371,7 @@ public class ProgramState extends State {
     public void deallocate(ILconstObject obj, ImClass clazz, Element trace) {
         assertAllocated(obj, trace);
         obj.destroy();
-        // TODO recycle ids
+        freeObjectIds.add(obj.getObjectId());
     }
 
     public void assertAllocated(ILconstObject obj, Element trace) {
@@ -181,7 +455,19 @@ public class ProgramState extends State {
     }
 
     public ILconst getObjectByIndex(int val) {
-        return indexToObject.get(val);
+        return objectByIndex(val);
+    }
+
+    private @Nullable ILconstObject objectByIndex(int val) {
+        ILconstObject r = indexToObject.get(val);
+        ProgramState parent = this.parent;
+        if (r == null && parent != null) {
+            ILconstObject p = parent.indexToObject.get(val);
+            if (p != null) {
+                r = (ILconstObject) forkValue(p);
+            }
+        }
+        return r;
     }
 
     public HashMap<Integer, IlConstHandle> getHandleMap() {
@@ -196,7 +482,7 @@ public class ProgramState extends State {
         if (val instanceof ILconstObject) {
             return (ILconstObject) val;
         } else if (val instanceof ILconstInt) {
-            return indexToObject.get(((ILconstInt) val).getVal());
+            return objectByIndex(((ILconstInt) val).getVal());
         }
         throw new InterpreterException(this, "Value " + val + " (" + val.getClass().getSimpleName() + ") cannot be cast to object.");
     }
@@ -255,7 +541,16 @@ public class ProgramState extends State {
     }
 
     protected ILconstArray getArray(ImVar v) {
+        Map<ImVar, ILconstArray> arrayValues = arrayValues();
         ILconstArray r = arrayValues.get(v);
+        ProgramState parent = this.parent;
+        if (r == null && parent != null) {
+            ILconstArray p = parent.peekArray(v);
+            if (p != null) {
+                r = p.copy(this::forkValue);
+                arrayValues.put(v, r);
+            }
+        }
         if (r == null) {
             ImType vType = v.getType();
             r = createArrayConstantFromType(vType);
@@ -275,6 +570,12 @@ public class ProgramState extends State {
 
 
     public Collection<ILconstObject> getAllObjects() {
+        ProgramState parent = this.parent;
+        if (parent != null) {
+            for (ILconstObject obj : parent.indexToObject.values()) {
+                forkValue(obj);
+            }
+        }
         return indexToObject.values();
     }
 
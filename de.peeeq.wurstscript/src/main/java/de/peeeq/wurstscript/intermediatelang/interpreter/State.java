@@ -16,20 +16,42 @@ import java.util.Map.Entry;
 
 public abstract class State {
 
-    private Map<ImVar, ILconst> values = Maps.newLinkedHashMap();
-    protected Map<ImVar, ILconstArray> arrayValues = Maps.newLinkedHashMap();
+    // both maps are only created when needed, most local states never use them
+    private @Nullable Map<ImVar, ILconst> values;
+    private @Nullable Map<ImVar, ILconstArray> arrayValues;
 
 
     public void setVal(ImVar v, ILconst val) {
+        Map<ImVar, ILconst> values = this.values;
+        if (values == null) {
+            values = this.values = Maps.newLinkedHashMap();
+        }
         values.put(v, val);
     }
 
     public @Nullable ILconst getVal(ImVar v) {
-        return values.get(v);
+        Map<ImVar, ILconst> values = this.values;
+        return values == null ? null : values.get(v);
+    }
+
+    protected Map<ImVar, ILconstArray> arrayValues() {
+        Map<ImVar, ILconstArray> arrayValues = this.arrayValues;
+        if (arrayValues == null) {
+            arrayValues = this.arrayValues = Maps.newLinkedHashMap();
+        }
+        return arrayValues;
+    }
+
+    /**
+     * returns the array stored for the given variable without creating it
+     */
+    protected @Nullable ILconstArray peekArray(ImVar v) {
+        Map<ImVar, ILconstArray> arrayValues = this.arrayValues;
+        return arrayValues == null ? null : arrayValues.get(v);
     }
 
     protected ILconstArray getArray(ImVar v) {
-        return arrayValues.computeIfAbsent(v, k -> createArrayConstantFromType(v.getType()));
+        return arrayValues().computeIfAbsent(v, k -> createArrayConstantFromType(v.getType()));
     }
 
     static ILconstArray createArrayConstantFromType(ImType vType) {
@@ -47,7 +69,7 @@ public abstract class State {
         } else {
             throw new InterpreterException("Cannot get array for variable of type " + vType);
         }
-        r = new ILconstArray(size, componentType::defaultValue);
+        r = ILconstArray.forEntryType(size, componentType);
         return r;
     }
 
@@ -67,7 +89,19 @@ public abstract class State {
         return ar.get(indexes.get(indexes.size() - 1));
     }
 
+    public void setArrayVal(ImVar v, int index, ILconst val) {
+        getArray(v).set(index, val);
+    }
+
+    public @Nullable ILconst getArrayVal(ImVar v, int index) {
+        return getArray(v).get(index);
+    }
+
     public @Nullable ILconst getVarValue(String varName) {
+        Map<ImVar, ILconst> values = this.values;
+        if (values == null) {
+            return null;
+        }
         for (Entry<ImVar, ILconst> e : values.entrySet()) {
             if (e.getKey().getName().equals(varName)) {
                 return e.getValue();
@@ -1,7 +1,7 @@
 package de.peeeq.wurstscript.intermediatelang.optimizer;
 
 import de.peeeq.wurstscript.jassIm.*;
-import de.peeeq.wurstscript.translation.imoptimizer.OptimizerPass;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 
 import java.util.ListIterator;
@@ -11,24 +11,38 @@ import java.util.ListIterator;
  * <p>
  * the input must be a flattened program
  */
-public class BranchMerger  implements OptimizerPass {
+public class BranchMerger  implements FunctionPass {
     private SideEffectAnalyzer sideEffectAnalyzer;
     public int branchesMerged = 0;
 
+    public BranchMerger() {
+    }
+
+    private BranchMerger(SideEffectAnalyzer sideEffectAnalyzer) {
+        this.sideEffectAnalyzer = sideEffectAnalyzer;
+    }
+
+    @Override
+    public void prepare(ImTranslator trans) {
+        this.sideEffectAnalyzer = new SideEffectAnalyzer(trans.getImProg());
+        // merging branches does not change the called functions
+        sideEffectAnalyzer.calculateCaches();
+    }
+
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        return new BranchMerger(sideEffectAnalyzer)::optimizeFunc;
+    }
+
     @Override
-    public int optimize(ImTranslator trans) {
-        branchesMerged = 0;
-        ImProg prog = trans.getImProg();
-        this.sideEffectAnalyzer = new SideEffectAnalyzer(prog);
-
-        for (ImFunction func : prog.getFunctions()) {
-            optimizeFunc(func);
-        }
-        return branchesMerged;
+    public boolean dependsOnlyOnFunction() {
+        // uses the side effects of called functions
+        return false;
     }
 
-    private void optimizeFunc(ImFunction func) {
+    private Result optimizeFunc(ImFunction func) {
         mergeBranches(func);
+        return new Result(branchesMerged, false);
     }
 
 
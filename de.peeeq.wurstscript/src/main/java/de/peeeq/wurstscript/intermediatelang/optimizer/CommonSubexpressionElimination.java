@@ -0,0 +1,283 @@
+package de.peeeq.wurstscript.intermediatelang.optimizer;
+
+import de.peeeq.datastructures.Worklist;
+import de.peeeq.wurstscript.intermediatelang.optimizer.ControlFlowGraph.Node;
+import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
+import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * replaces expressions by a local variable, which already holds the value of the expression
+ * <p>
+ * For example in
+ * <pre>
+ *     x = Foo_bar[this] * 2
+ *     y = Foo_bar[this] * 2 + 1
+ * </pre>
+ * the second statement is replaced by 'y = x + 1'.
+ * <p>
+ * For each node of the control flow graph the available expressions are calculated:
+ * after an assignment 'x = e', the expression e is available in x until x or a variable read by e is changed.
+ * Expressions reading global variables or calling natives are also no longer available after a call
+ * to a function with side effects.
+ * Only repeatable expressions are considered (see {@link SideEffectAnalyzer#isRepeatable(ImExpr)}).
+ * <p>
+ * the input must be a flattened program
+ */
+public class CommonSubexpressionElimination implements FunctionPass {
+    private SideEffectAnalyzer sideEffectAnalyzer;
+    private int totalReplaced = 0;
+
+    public CommonSubexpressionElimination() {
+    }
+
+    private CommonSubexpressionElimination(SideEffectAnalyzer sideEffectAnalyzer) {
+        this.sideEffectAnalyzer = sideEffectAnalyzer;
+    }
+
+    @Override
+    public String getName() {
+        return "Common subexpressions replaced";
+    }
+
+    @Override
+    public void prepare(ImTranslator trans) {
+        // only the variables set in a statement are used, which do not depend on other functions
+        this.sideEffectAnalyzer = new SideEffectAnalyzer(trans.getImProg());
+    }
+
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        return new CommonSubexpressionElimination(sideEffectAnalyzer)::optimizeFunction;
+    }
+
+    private Result optimizeFunction(ImFunction func) {
+        if (func.isNative() || func.isBj()) {
+            return Result.UNCHANGED;
+        }
+        optimizeFunc(func);
+        return new Result(totalReplaced, false);
+    }
+
+    /**
+     * an expression, whose value is stored in a local variable
+     */
+    static class Available {
+        final ImVar var;
+        // a copy of the expression, so that it is not changed when the program is rewritten
+        final ImExpr expr;
+        final boolean readsGlobalState;
+
+        Available(ImVar var, ImExpr expr) {
+            this.var = var;
+            this.expr = (ImExpr) expr.copy();
+            this.readsGlobalState = SideEffectAnalyzer.readsGlobalState(expr);
+        }
+
+        boolean equalValue(Available other) {
+            return var == other.var && expr.structuralEquals(other.expr);
+        }
+
+        @Override
+        public String toString() {
+            return var.getName() + " = " + expr;
+        }
+    }
+
+    static class Knowledge {
+        List<Available> availableIn = Collections.emptyList();
+        List<Available> availableOut = Collections.emptyList();
+
+        @Override
+        public String toString() {
+            return "[in =" + availableIn + ", out=" + availableOut + "]";
+        }
+    }
+
+    void optimizeFunc(ImFunction func) {
+        ControlFlowGraph cfg = new ControlFlowGraph(func.getBody());
+        Map<Node, Knowledge> knowledge = calculateKnowledge(cfg);
+        rewriteCode(cfg, knowledge);
+    }
+
+    private void rewriteCode(ControlFlowGraph cfg, Map<Node, Knowledge> knowledge) {
+        for (Node node : cfg.getNodes()) {
+            ImStmt stmt = node.getStmt();
+            if (stmt == null || stmt instanceof ImVarargLoop) {
+                continue;
+            }
+            List<Available> available = knowledge.get(node).availableIn;
+            if (available.isEmpty()) {
+                continue;
+            }
+            if (SideEffectAnalyzer.callsFunctionWithSideEffects(stmt)) {
+                // the called function might change the values of expressions evaluated after the call
+                List<Available> local = new ArrayList<>();
+                for (Available a : available) {
+                    if (!a.readsGlobalState) {
+                        local.add(a);
+                    }
+                }
+                available = local;
+            }
+            if (stmt instanceof ImSet) {
+                ImSet imSet = (ImSet) stmt;
+                if (imSet.getLeft() instanceof ImVarArrayAccess) {
+                    replaceAvailable(((ImVarArrayAccess) imSet.getLeft()).getIndexes(), available);
+                }
+                replaceAvailable(imSet.getRight(), available);
+            } else {
+                replaceAvailable(stmt, available);
+            }
+        }
+    }
+
+    private void replaceAvailable(Element e, List<Available> available) {
+        if (e instanceof ImStatementExpr || e instanceof ImSet || e instanceof ImStmts) {
+            // not in a flattened expression
+            return;
+        }
+        if (e instanceof ImExpr && !(e instanceof ImConst) && !(e instanceof ImVarAccess)) {
+            for (Available a : available) {
+                if (a.expr.structuralEquals(e)) {
+                    e.replaceBy(JassIm.ImVarAccess(a.var));
+                    totalReplaced++;
+                    return;
+                }
+            }
+        }
+        for (int i = 0; i < e.size(); i++) {
+            replaceAvailable(e.get(i), available);
+        }
+    }
+
+    private Map<Node, Knowledge> calculateKnowledge(ControlFlowGraph cfg) {
+        Map<Node, Knowledge> knowledge = new HashMap<>();
+        // the expression made available by each node:
+        Map<Node, Available> generated = new HashMap<>();
+
+        // initialize with empty knowledge:
+        for (Node n : cfg.getNodes()) {
+            knowledge.put(n, new Knowledge());
+            Available gen = generatedExpression(n.getStmt());
+            if (gen != null) {
+                generated.put(n, gen);
+            }
+        }
+
+        Worklist<Node> todo = new Worklist<>(cfg.getNodes());
+
+        while (!todo.isEmpty()) {
+            Node n = todo.poll();
+
+            Knowledge kn = knowledge.get(n);
+
+            // only keep expressions available at all predecessors:
+            List<Available> newIn = Collections.emptyList();
+            if (!n.getPredecessors().isEmpty()) {
+                newIn = new ArrayList<>(knowledge.get(n.getPredecessors().get(0)).availableOut);
+                for (int i = 1; i < n.getPredecessors().size(); i++) {
+                    List<Available> predOut = knowledge.get(n.getPredecessors().get(i)).availableOut;
+                    newIn.removeIf(a -> !contains(predOut, a));
+                }
+            }
+
+            List<Available> newOut = newIn;
+            ImStmt stmt = n.getStmt();
+            if (stmt != null) {
+                newOut = new ArrayList<>(newIn);
+                kill(stmt, newOut);
+                Available gen = generated.get(n);
+                if (gen != null && !contains(newOut, gen)) {
+                    newOut.add(gen);
+                }
+            }
+
+            // if there are changes, revisit successors:
+            if (!sameAvailable(kn.availableOut, newOut)) {
+                todo.addAll(n.getSuccessors());
+            }
+
+            // update knowledge
+            kn.availableIn = newIn;
+            kn.availableOut = newOut;
+        }
+        return knowledge;
+    }
+
+    /**
+     * removes the expressions which are no longer available after the statement
+     */
+    private void kill(ImStmt stmt, List<Available> available) {
+        Set<ImVar> changedVars = sideEffectAnalyzer.directlySetVariables(stmt);
+        boolean changesGlobalState = SideEffectAnalyzer.callsFunctionWithSideEffects(stmt);
+        available.removeIf(a -> changedVars.contains(a.var)
+                || (changesGlobalState && a.readsGlobalState)
+                || readsAny(a.expr, changedVars));
+    }
+
+    private static boolean readsAny(Element e, Set<ImVar> vars) {
+        if (e instanceof ImVarRead && vars.contains(((ImVarRead) e).getVar())) {
+            return true;
+        }
+        for (int i = 0; i < e.size(); i++) {
+            if (readsAny(e.get(i), vars)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * for an assignment 'x = e' to a local variable x, returns that e is available in x
+     */
+    private @Nullable Available generatedExpression(@Nullable ImStmt stmt) {
+        if (!(stmt instanceof ImSet)) {
+            return null;
+        }
+        ImSet imSet = (ImSet) stmt;
+        if (!(imSet.getLeft() instanceof ImVarAccess)) {
+            return null;
+        }
+        ImVar var = ((ImVarAccess) imSet.getLeft()).getVar();
+        ImExpr right = imSet.getRight();
+        if (var.isGlobal()
+                || right instanceof ImConst
+                || right instanceof ImVarAccess
+                || !SideEffectAnalyzer.isRepeatable(right)
+                || readsAny(right, Collections.singleton(var))) {
+            return null;
+        }
+        return new Available(var, right);
+    }
+
+    private static boolean contains(List<Available> list, Available a) {
+        for (Available b : list) {
+            if (b.equalValue(a)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameAvailable(List<Available> a, List<Available> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (Available x : a) {
+            if (!contains(b, x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
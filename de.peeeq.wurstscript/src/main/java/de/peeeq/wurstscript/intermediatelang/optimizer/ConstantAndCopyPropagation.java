@@ -3,25 +3,25 @@ package de.peeeq.wurstscript.intermediatelang.optimizer;
 import de.peeeq.datastructures.Worklist;
 import de.peeeq.wurstscript.intermediatelang.optimizer.ControlFlowGraph.Node;
 import de.peeeq.wurstscript.jassIm.*;
-import de.peeeq.wurstscript.translation.imoptimizer.OptimizerPass;
-import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
 import io.vavr.Tuple2;
 import io.vavr.collection.HashMap;
 import org.eclipse.jdt.annotation.Nullable;
 
 import java.util.Map;
 
-public class ConstantAndCopyPropagation implements OptimizerPass {
+public class ConstantAndCopyPropagation implements FunctionPass {
     private int totalPropagated = 0;
+    // copy propagations are not counted, but change the function
+    private boolean changed = false;
 
-    public int optimize(ImTranslator trans) {
-        ImProg prog = trans.getImProg();
-
-        totalPropagated = 0;
-        for (ImFunction func : prog.getFunctions()) {
-            optimizeFunc(func);
-        }
-        return totalPropagated;
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        ConstantAndCopyPropagation propagation = new ConstantAndCopyPropagation();
+        return func -> {
+            propagation.optimizeFunc(func);
+            return new Result(propagation.totalPropagated, propagation.changed);
+        };
     }
 
     @Override
@@ -130,6 +130,7 @@ public class ConstantAndCopyPropagation implements OptimizerPass {
                         totalPropagated++;
                     } else if (val.copyVar != null) {
                         va.setVar(val.copyVar);
+                        changed = true;
                         // recursive call, because maybe it is possible to also replace the new var
                         visit(va);
                     }
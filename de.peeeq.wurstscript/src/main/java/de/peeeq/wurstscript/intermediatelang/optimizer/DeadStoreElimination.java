@@ -0,0 +1,265 @@
+package de.peeeq.wurstscript.intermediatelang.optimizer;
+
+import de.peeeq.datastructures.Worklist;
+import de.peeeq.wurstscript.intermediatelang.optimizer.ControlFlowGraph.Node;
+import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
+import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.*;
+
+/**
+ * removes assignments, which are overwritten on every path before they are read
+ * <p>
+ * For example the first assignment in
+ * <pre>
+ *     Foo_x[this] = 0
+ *     Foo_x[this] = 5
+ * </pre>
+ * is removed. This handles global variables and array elements with an index, which is an integer constant
+ * or a local variable (like 'this' for class fields).
+ * Local variables which are not arrays are already handled by the {@link LocalMerger}.
+ * <p>
+ * For each node of the control flow graph the dead locations are calculated backwards:
+ * a location is dead, when it is written on all paths, before it is read.
+ * At the end of the function no location is dead, because globals can be read by other functions.
+ * Calls to functions other than natives without side effects might read any global variable.
+ * <p>
+ * the input must be a flattened program
+ */
+public class DeadStoreElimination implements FunctionPass {
+    private ImTranslator trans;
+    private int totalRemoved = 0;
+
+    public DeadStoreElimination() {
+    }
+
+    private DeadStoreElimination(ImTranslator trans) {
+        this.trans = trans;
+    }
+
+    @Override
+    public String getName() {
+        return "Dead stores removed";
+    }
+
+    @Override
+    public void prepare(ImTranslator trans) {
+        this.trans = trans;
+    }
+
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        return new DeadStoreElimination(trans)::optimizeFunction;
+    }
+
+    private Result optimizeFunction(ImFunction func) {
+        if (func.isNative() || func.isBj()) {
+            return Result.UNCHANGED;
+        }
+        optimizeFunc(func);
+        if (totalRemoved > 0) {
+            func.flatten(trans);
+        }
+        return new Result(totalRemoved, false);
+    }
+
+    /**
+     * a variable or an element of an array variable
+     */
+    static class Location {
+        final ImVar var;
+        // null for variables, an Integer for constant indexes or the ImVar of a local index variable
+        final @Nullable Object index;
+
+        Location(ImVar var, @Nullable Object index) {
+            this.var = var;
+            this.index = index;
+        }
+
+        /**
+         * checks if reading the other location might read this location
+         */
+        boolean mightAlias(Location other) {
+            if (var != other.var) {
+                return false;
+            }
+            // only different constant indexes are certainly different
+            return !(index instanceof Integer && other.index instanceof Integer && !index.equals(other.index));
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj instanceof Location) {
+                Location other = (Location) obj;
+                return var == other.var && Objects.equals(index, other.index);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(var) * 31 + Objects.hashCode(index);
+        }
+
+        @Override
+        public String toString() {
+            return index == null ? var.getName() : var.getName() + "[" + index + "]";
+        }
+    }
+
+    void optimizeFunc(ImFunction func) {
+        ControlFlowGraph cfg = new ControlFlowGraph(func.getBody());
+        Map<Node, Set<Location>> deadOut = calculateDeadLocations(cfg);
+        for (Node node : cfg.getNodes()) {
+            ImStmt stmt = node.getStmt();
+            if (stmt instanceof ImSet) {
+                ImSet imSet = (ImSet) stmt;
+                Location written = writtenLocation(imSet);
+                if (written != null && deadOut.get(node).contains(written)) {
+                    // the index is a constant or a local variable,
+                    // so only the right hand side might have side effects
+                    ImExpr right = imSet.getRight();
+                    right.setParent(null);
+                    imSet.replaceBy(right);
+                    totalRemoved++;
+                }
+            }
+        }
+    }
+
+    private Map<Node, Set<Location>> calculateDeadLocations(ControlFlowGraph cfg) {
+        Map<Node, Set<Location>> in = new HashMap<>();
+        Map<Node, Set<Location>> out = new HashMap<>();
+        for (Node node : cfg.getNodes()) {
+            in.put(node, Collections.emptySet());
+            out.put(node, Collections.emptySet());
+        }
+
+        Worklist<Node> todo = new Worklist<>(cfg.getNodes());
+        while (!todo.isEmpty()) {
+            Node node = todo.poll();
+
+            // out[n] = intersection s in succ[n]: in[s]
+            Set<Location> newOut = Collections.emptySet();
+            if (!node.getSuccessors().isEmpty()) {
+                newOut = new HashSet<>(in.get(node.getSuccessors().get(0)));
+                for (int i = 1; i < node.getSuccessors().size(); i++) {
+                    newOut.retainAll(in.get(node.getSuccessors().get(i)));
+                }
+            }
+            out.put(node, newOut);
+
+            // in[n] = (out[n] + written[n]) - read[n]
+            Set<Location> newIn = newOut;
+            ImStmt stmt = node.getStmt();
+            if (stmt != null) {
+                newIn = new HashSet<>(newOut);
+                if (stmt instanceof ImSet) {
+                    Location written = writtenLocation((ImSet) stmt);
+                    if (written != null) {
+                        newIn.add(written);
+                    }
+                }
+                removeRead(stmt, newIn);
+            }
+
+            if (!newIn.equals(in.get(node))) {
+                in.put(node, newIn);
+                // if in changes, then all predecessors have to be recalculated
+                todo.addAll(node.getPredecessors());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * removes the locations, which might be read by the statement or whose index is changed by the statement
+     */
+    private void removeRead(ImStmt stmt, Set<Location> dead) {
+        if (dead.isEmpty()) {
+            return;
+        }
+        if (SideEffectAnalyzer.callsFunctionWithSideEffects(stmt)) {
+            // the called function might read any global
+            dead.removeIf(l -> l.var.isGlobal());
+        }
+        stmt.accept(new Element.DefaultVisitor() {
+            @Override
+            public void visit(ImSet set) {
+                ImLExpr left = set.getLeft();
+                if (left instanceof ImVarAccess) {
+                    // the index of locations with this index variable changes
+                    ImVar v = ((ImVarAccess) left).getVar();
+                    dead.removeIf(l -> l.index == v);
+                } else if (left instanceof ImVarArrayAccess) {
+                    ((ImVarArrayAccess) left).getIndexes().accept(this);
+                } else {
+                    left.accept(this);
+                }
+                set.getRight().accept(this);
+            }
+
+            @Override
+            public void visit(ImVarAccess va) {
+                super.visit(va);
+                removeAliases(new Location(va.getVar(), null));
+            }
+
+            @Override
+            public void visit(ImVarArrayAccess va) {
+                super.visit(va);
+                Location read = arrayLocation(va);
+                removeAliases(read != null ? read : new Location(va.getVar(), null));
+            }
+
+            @Override
+            public void visit(ImGetStackTrace st) {
+                super.visit(st);
+                // reads the global stack trace variables
+                dead.removeIf(l -> l.var.isGlobal());
+            }
+
+            @Override
+            public void visit(ImVarargLoop loop) {
+                super.visit(loop);
+                ImVar v = loop.getLoopVar();
+                dead.removeIf(l -> l.var == v || l.index == v);
+            }
+
+            private void removeAliases(Location read) {
+                dead.removeIf(l -> l.mightAlias(read));
+            }
+        });
+    }
+
+    private @Nullable Location writtenLocation(ImSet imSet) {
+        ImLExpr left = imSet.getLeft();
+        if (left instanceof ImVarAccess) {
+            ImVar v = ((ImVarAccess) left).getVar();
+            // local variables are handled by the LocalMerger
+            return v.isGlobal() ? new Location(v, null) : null;
+        } else if (left instanceof ImVarArrayAccess) {
+            return arrayLocation((ImVarArrayAccess) left);
+        }
+        return null;
+    }
+
+    /**
+     * the location of an array access with a constant or local variable as index
+     */
+    private static @Nullable Location arrayLocation(ImVarArrayAccess va) {
+        if (va.getIndexes().size() != 1) {
+            return null;
+        }
+        ImExpr index = va.getIndexes().get(0);
+        if (index instanceof ImIntVal) {
+            return new Location(va.getVar(), ((ImIntVal) index).getValI());
+        } else if (index instanceof ImVarAccess && !((ImVarAccess) index).getVar().isGlobal()) {
+            return new Location(va.getVar(), ((ImVarAccess) index).getVar());
+        }
+        return null;
+    }
+
+}
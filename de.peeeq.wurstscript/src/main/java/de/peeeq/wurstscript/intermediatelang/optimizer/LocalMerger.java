@@ -3,8 +3,7 @@ package de.peeeq.wurstscript.intermediatelang.optimizer;
 import de.peeeq.datastructures.Worklist;
 import de.peeeq.wurstscript.intermediatelang.optimizer.ControlFlowGraph.Node;
 import de.peeeq.wurstscript.jassIm.*;
-import de.peeeq.wurstscript.translation.imoptimizer.OptimizerPass;
-import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
 import io.vavr.collection.HashSet;
 import io.vavr.collection.Set;
 
@@ -19,19 +18,21 @@ import java.util.PriorityQueue;
  * <p>
  * the input must be a flattened program
  */
-public class LocalMerger implements OptimizerPass {
+public class LocalMerger implements FunctionPass {
     private int totalLocalsMerged = 0;
+    // removed dead code is not counted, but changes the function
+    private boolean changed = false;
 
     @Override
-    public int optimize(ImTranslator trans) {
-        ImProg prog = trans.getImProg();
-        totalLocalsMerged = 0;
-        for (ImFunction func : prog.getFunctions()) {
-            if (!func.isNative() && !func.isBj()) {
-                optimizeFunc(func);
+    public FunctionOptimizer createOptimizer() {
+        LocalMerger merger = new LocalMerger();
+        return func -> {
+            if (func.isNative() || func.isBj()) {
+                return Result.UNCHANGED;
             }
-        }
-        return totalLocalsMerged;
+            merger.optimizeFunc(func);
+            return new Result(merger.totalLocalsMerged, merger.changed);
+        };
     }
 
 
@@ -146,6 +147,7 @@ public class LocalMerger implements OptimizerPass {
                     ImExpr right = imSet.getRight();
                     right.setParent(null);
                     s.replaceBy(right);
+                    changed = true;
                 }
             }
         }
@@ -0,0 +1,228 @@
+package de.peeeq.wurstscript.intermediatelang.optimizer;
+
+import de.peeeq.wurstscript.WurstOperator;
+import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
+import de.peeeq.wurstscript.translation.imoptimizer.VariableUses;
+import de.peeeq.wurstscript.translation.imtranslation.ImHelper;
+import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * moves assignments, which compute the same value in each iteration, in front of the loop
+ * <p>
+ * An assignment 'x = e' is moved, when x is a local variable which is assigned nowhere else in the function
+ * and e is a repeatable expression (see {@link SideEffectAnalyzer#isRepeatable(ImExpr)}),
+ * which only reads variables not changed in the loop.
+ * When the loop calls natives with side effects, only local variables are considered unchanged,
+ * because these natives might run callbacks changing globals.
+ * Then x always has the value of e after the assignment and the only difference is,
+ * that x is assigned before the loop instead of in the first iteration
+ * (this assumes that the program does not read x before it is assigned).
+ * Assignments inside of if-statements are also moved, so e must not fail (e.g. division by zero).
+ * <p>
+ * the input must be a flattened program
+ */
+public class LoopInvariantCodeMotion implements FunctionPass {
+    private SideEffectAnalyzer sideEffectAnalyzer;
+    private ImTranslator trans;
+    private int totalMoved = 0;
+    // the writes of the variables in the current function
+    private VariableUses.Uses uses;
+    private final Set<ImVar> varargLoopVars = new HashSet<>();
+
+    public LoopInvariantCodeMotion() {
+    }
+
+    private LoopInvariantCodeMotion(ImTranslator trans, SideEffectAnalyzer sideEffectAnalyzer) {
+        this.trans = trans;
+        this.sideEffectAnalyzer = sideEffectAnalyzer;
+    }
+
+    @Override
+    public String getName() {
+        return "Loop invariant assignments moved";
+    }
+
+    @Override
+    public void prepare(ImTranslator trans) {
+        this.trans = trans;
+        this.sideEffectAnalyzer = new SideEffectAnalyzer(trans.getImProg());
+        // moving statements does not change the called functions
+        sideEffectAnalyzer.calculateCaches();
+    }
+
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        return new LoopInvariantCodeMotion(trans, sideEffectAnalyzer)::optimizeFunction;
+    }
+
+    private Result optimizeFunction(ImFunction func) {
+        if (func.isNative() || func.isBj()) {
+            return Result.UNCHANGED;
+        }
+        optimizeFunc(func);
+        if (totalMoved > 0) {
+            // remove the null-statements left at the old positions
+            func.flatten(trans);
+        }
+        return new Result(totalMoved, false);
+    }
+
+    @Override
+    public boolean dependsOnlyOnFunction() {
+        // uses the side effects of called functions
+        return false;
+    }
+
+    private void optimizeFunc(ImFunction func) {
+        uses = VariableUses.calcVarUses(func);
+        // inner loops first, so that their invariant assignments can be moved out of the outer loops as well
+        List<ImLoop> loops = new ArrayList<>();
+        func.getBody().accept(new Element.DefaultVisitor() {
+            @Override
+            public void visit(ImLoop loop) {
+                super.visit(loop);
+                loops.add(loop);
+            }
+
+            @Override
+            public void visit(ImVarargLoop loop) {
+                super.visit(loop);
+                varargLoopVars.add(loop.getLoopVar());
+            }
+        });
+        for (ImLoop loop : loops) {
+            moveInvariantAssignments(func, loop);
+        }
+    }
+
+    private void moveInvariantAssignments(ImFunction func, ImLoop loop) {
+        if (!(loop.getParent() instanceof ImStmts)) {
+            return;
+        }
+        ImStmts parent = (ImStmts) loop.getParent();
+        // repeat, because moving an assignment can make other assignments invariant
+        while (true) {
+            Set<ImVar> changedVars = new HashSet<>(sideEffectAnalyzer.directlySetVariables(loop));
+            for (ImFunction called : sideEffectAnalyzer.calledFunctions(loop)) {
+                changedVars.addAll(sideEffectAnalyzer.getUsedGlobals().get(called));
+            }
+            boolean changesWorld = sideEffectAnalyzer.calledNatives(loop).stream()
+                    .anyMatch(n -> !SideEffectAnalyzer.isNativeWithoutSideEffects(n));
+
+            ImSet invariant = findInvariantAssignment(func, loop.getBody(), changedVars, changesWorld);
+            if (invariant == null) {
+                return;
+            }
+            ImSet moved = (ImSet) invariant.copy();
+            invariant.replaceBy(ImHelper.nullExpr());
+            parent.add(indexOf(parent, loop), moved);
+            totalMoved++;
+        }
+    }
+
+    private @Nullable ImSet findInvariantAssignment(ImFunction func, ImStmts stmts, Set<ImVar> changedVars, boolean changesWorld) {
+        for (ImStmt s : stmts) {
+            if (s instanceof ImSet) {
+                ImSet imSet = (ImSet) s;
+                if (isMovable(func, imSet) && isInvariant(imSet.getRight(), changedVars, changesWorld)) {
+                    return imSet;
+                }
+            } else if (s instanceof ImIf) {
+                ImIf imIf = (ImIf) s;
+                ImSet r = findInvariantAssignment(func, imIf.getThenBlock(), changedVars, changesWorld);
+                if (r == null) {
+                    r = findInvariantAssignment(func, imIf.getElseBlock(), changedVars, changesWorld);
+                }
+                if (r != null) {
+                    return r;
+                }
+            }
+            // statements in inner loops were already handled with the inner loop
+        }
+        return null;
+    }
+
+    /**
+     * checks if the assignment sets a local variable, which is assigned nowhere else
+     */
+    private boolean isMovable(ImFunction func, ImSet imSet) {
+        if (!(imSet.getLeft() instanceof ImVarAccess)) {
+            return false;
+        }
+        ImVar v = ((ImVarAccess) imSet.getLeft()).getVar();
+        ImExpr right = imSet.getRight();
+        if (right instanceof ImConst || right instanceof ImVarAccess) {
+            // handled by constant and copy propagation
+            return false;
+        }
+        return func.getLocals().contains(v)
+                && uses.getWrites(v).size() == 1
+                && !varargLoopVars.contains(v)
+                && SideEffectAnalyzer.isRepeatable(right);
+    }
+
+    /**
+     * checks if the repeatable expression e has the same value in each iteration of the loop and cannot fail
+     */
+    private boolean isInvariant(ImExpr e, Set<ImVar> changedVars, boolean changesWorld) {
+        if (e instanceof ImVarRead) {
+            ImVar v = ((ImVarRead) e).getVar();
+            if (changedVars.contains(v)) {
+                return false;
+            } else if (changesWorld && v.isGlobal()) {
+                // natives with side effects can run callbacks (e.g. ForGroup, TriggerEvaluate),
+                // which are not included in the called functions and might change any global
+                return false;
+            }
+        }
+        if (e instanceof ImFunctionCall && changesWorld) {
+            // natives without side effects might read the changed state
+            return false;
+        } else if (e instanceof ImOperatorCall && mightFail((ImOperatorCall) e)) {
+            return false;
+        }
+        for (int i = 0; i < e.size(); i++) {
+            Element child = e.get(i);
+            if (child instanceof ImExpr && !isInvariant((ImExpr) child, changedVars, changesWorld)) {
+                return false;
+            } else if (child instanceof ImExprs) {
+                for (ImExpr arg : (ImExprs) child) {
+                    if (!isInvariant(arg, changedVars, changesWorld)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * divisions might fail, unless they divide by an integer constant other than zero
+     */
+    private boolean mightFail(ImOperatorCall opCall) {
+        WurstOperator op = opCall.getOp();
+        if (op != WurstOperator.DIV_INT && op != WurstOperator.DIV_REAL
+                && op != WurstOperator.MOD_INT && op != WurstOperator.MOD_REAL) {
+            return false;
+        }
+        ImExpr divisor = opCall.getArguments().get(1);
+        return !(divisor instanceof ImIntVal) || ((ImIntVal) divisor).getValI() == 0;
+    }
+
+    private static int indexOf(ImStmts stmts, ImStmt s) {
+        for (int i = 0; i < stmts.size(); i++) {
+            if (stmts.get(i) == s) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("statement not found: " + s);
+    }
+
+}
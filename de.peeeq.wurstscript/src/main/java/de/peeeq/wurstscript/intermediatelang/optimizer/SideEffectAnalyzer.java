@@ -5,6 +5,7 @@ import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import de.peeeq.datastructures.TransitiveClosure;
 import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imoptimizer.UselessFunctionCallsRemover;
 
 import java.util.Collection;
 import java.util.LinkedHashSet;
@@ -157,6 +158,104 @@ public class SideEffectAnalyzer {
         });
     }
 
+    /**
+     * checks if evaluating the expression again gives the same value,
+     * as long as the variables read by the expression are not changed and no function with side effects is called.
+     * <p>
+     * Natives without side effects are only included when they return a primitive value,
+     * because natives returning handles (like GetUnitLoc) might create a new object on each call.
+     */
+    public static boolean isRepeatable(ImExpr expr) {
+        if (expr instanceof ImConst || expr instanceof ImVarAccess) {
+            return true;
+        } else if (expr instanceof ImVarArrayAccess) {
+            return ((ImVarArrayAccess) expr).getIndexes().stream().allMatch(SideEffectAnalyzer::isRepeatable);
+        } else if (expr instanceof ImOperatorCall) {
+            return ((ImOperatorCall) expr).getArguments().stream().allMatch(SideEffectAnalyzer::isRepeatable);
+        } else if (expr instanceof ImCast) {
+            return isRepeatable(((ImCast) expr).getExpr());
+        } else if (expr instanceof ImFunctionCall) {
+            ImFunctionCall fc = (ImFunctionCall) expr;
+            return isNativeWithoutSideEffects(fc.getFunc())
+                    && isPrimitiveType(fc.getFunc().getReturnType())
+                    && fc.getArguments().stream().allMatch(SideEffectAnalyzer::isRepeatable);
+        }
+        return false;
+    }
+
+    /**
+     * checks if the function is a native, which does not change anything
+     */
+    public static boolean isNativeWithoutSideEffects(ImFunction f) {
+        return f.isNative() && UselessFunctionCallsRemover.isFunctionWithoutSideEffect(f.getName());
+    }
+
+    private static boolean isPrimitiveType(ImType t) {
+        if (t instanceof ImSimpleType) {
+            switch (((ImSimpleType) t).getTypename()) {
+                case "integer":
+                case "real":
+                case "boolean":
+                case "string":
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks if e calls a function, which might have side effects
+     * (all functions except for natives without side effects)
+     */
+    public static boolean callsFunctionWithSideEffects(Element e) {
+        if (e instanceof ImFunctionCall) {
+            if (!isNativeWithoutSideEffects(((ImFunctionCall) e).getFunc())) {
+                return true;
+            }
+        } else if (e instanceof ImMethodCall
+                || e instanceof ImAlloc
+                || e instanceof ImDealloc
+                || e instanceof ImTypeVarDispatch
+                || e instanceof ImCompiletimeExpr) {
+            return true;
+        }
+        for (int i = 0; i < e.size(); i++) {
+            if (callsFunctionWithSideEffects(e.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks if the value of e depends on global state, i.e. it reads a global variable or calls a function
+     */
+    public static boolean readsGlobalState(Element e) {
+        if (e instanceof ImVarRead) {
+            if (((ImVarRead) e).getVar().isGlobal()) {
+                return true;
+            }
+        } else if (e instanceof ImFunctionCall || e instanceof ImMethodCall) {
+            return true;
+        }
+        for (int i = 0; i < e.size(); i++) {
+            if (readsGlobalState(e.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * calculates the call relation and the used globals of the whole program now instead of on first use.
+     * Afterwards the analyzer can be used by several threads at the same time.
+     * The relations are not updated, when the program is changed.
+     */
+    public void calculateCaches() {
+        getCallRelationTr();
+        getUsedGlobals();
+    }
+
     /**
      * @return f -> set of functions directly called by f
      */
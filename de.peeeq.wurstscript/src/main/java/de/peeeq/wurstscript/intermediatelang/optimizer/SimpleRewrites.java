@@ -3,7 +3,7 @@ package de.peeeq.wurstscript.intermediatelang.optimizer;
 import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.WurstOperator;
 import de.peeeq.wurstscript.jassIm.*;
-import de.peeeq.wurstscript.translation.imoptimizer.OptimizerPass;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
 import de.peeeq.wurstscript.translation.imtranslation.ImHelper;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 import de.peeeq.wurstscript.types.TypesHelper;
@@ -14,22 +14,47 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
-public class SimpleRewrites implements OptimizerPass {
+public class SimpleRewrites implements FunctionPass {
     private SideEffectAnalyzer sideEffectAnalysis;
+    private ImTranslator trans;
     private int totalRewrites = 0;
+    // some rewrites are not counted, but change the function
+    private boolean changed = false;
     private boolean showRewrites = false;
 
+    public SimpleRewrites() {
+    }
+
+    private SimpleRewrites(ImTranslator trans, SideEffectAnalyzer sideEffectAnalysis) {
+        this.trans = trans;
+        this.sideEffectAnalysis = sideEffectAnalysis;
+    }
+
+    @Override
+    public void prepare(ImTranslator trans) {
+        this.trans = trans;
+        this.sideEffectAnalysis = new SideEffectAnalyzer(trans.getImProg());
+        sideEffectAnalysis.calculateCaches();
+    }
+
     @Override
-    public int optimize(ImTranslator trans) {
-        ImProg prog = trans.getImProg();
-        this.sideEffectAnalysis = new SideEffectAnalyzer(prog);
-        totalRewrites = 0;
-        optimizeElement(prog);
-        // we need to flatten the program, because we introduced new
+    public FunctionOptimizer createOptimizer() {
+        return new SimpleRewrites(trans, sideEffectAnalysis)::optimizeFunction;
+    }
+
+    private Result optimizeFunction(ImFunction func) {
+        optimizeElement(func);
+        // we need to flatten the function, because we introduced new
         // StatementExprs
-        prog.flatten(trans);
-        removeUnreachableCode(prog);
-        return totalRewrites;
+        func.flatten(trans);
+        removeUnreachableCode(func);
+        return new Result(totalRewrites, changed);
+    }
+
+    @Override
+    public boolean dependsOnlyOnFunction() {
+        // uses the side effects of called functions
+        return false;
     }
 
     @Override
@@ -37,8 +62,8 @@ public class SimpleRewrites implements OptimizerPass {
         return "Simple Rewrites";
     }
 
-    private void removeUnreachableCode(ImProg prog) {
-        prog.accept(new ImProg.DefaultVisitor() {
+    private void removeUnreachableCode(ImFunction func) {
+        func.accept(new ImFunction.DefaultVisitor() {
             @Override
             public void visit(ImStmts stmts) {
                 super.visit(stmts);
@@ -216,6 +241,7 @@ public class SimpleRewrites implements OptimizerPass {
                     int inverseVal = imIntVal.getValI() * -1;
                     ImIntVal newVal = JassIm.ImIntVal(inverseVal);
                     opc.replaceBy(newVal);
+                    changed = true;
                 }
                 wasViable = false;
             } else if (expr instanceof ImBoolVal) {
@@ -4,7 +4,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import de.peeeq.wurstscript.jassIm.*;
-import de.peeeq.wurstscript.translation.imoptimizer.OptimizerPass;
+import de.peeeq.wurstscript.translation.imoptimizer.FunctionPass;
+import de.peeeq.wurstscript.translation.imoptimizer.VariableUses;
 import de.peeeq.wurstscript.translation.imtranslation.AssertProperty;
 import de.peeeq.wurstscript.translation.imtranslation.ImHelper;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
@@ -17,8 +18,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
 
-public class TempMerger implements OptimizerPass {
+public class TempMerger implements FunctionPass {
     private int totalMerged = 0;
+    // the reads of the variables in the current function
+    private VariableUses.Uses uses;
 
 
     @Override
@@ -26,24 +29,30 @@ public class TempMerger implements OptimizerPass {
         return "Temp variables merged";
     }
 
-    /**
-     * @return The amount of merged temp variables
-     */
     @Override
-    public int optimize(ImTranslator trans) {
-        ImProg prog = trans.getImProg();
-        totalMerged = 0;
+    public void prepare(ImTranslator trans) {
         trans.assertProperties(AssertProperty.FLAT, AssertProperty.NOTUPLES);
-        prog.clearAttributes();
-        for (ImFunction f : prog.getFunctions()) {
-            optimizeFunc(f);
-        }
+        trans.getImProg().clearAttributes();
+    }
+
+    @Override
+    public FunctionOptimizer createOptimizer() {
+        TempMerger merger = new TempMerger();
+        return f -> {
+            merger.optimizeFunc(f);
+            return new Result(merger.totalMerged, false);
+        };
+    }
+
+    @Override
+    public void finish(ImTranslator trans) {
         // flatten the program because we introduced null-statements
-        prog.flatten(trans);
-        return totalMerged;
+        trans.getImProg().flatten(trans);
     }
 
     void optimizeFunc(ImFunction f) {
+        // only the reads of local variables are used, so it is enough to look at the function
+        uses = VariableUses.calcVarUses(f);
         optimizeStatements(f.getBody());
     }
 
@@ -232,25 +241,25 @@ public class TempMerger implements OptimizerPass {
 
         public void apply() {
             ImExpr e = set.getRight();
-            if (getAssignedVar().attrReads().size() <= 1) {
+            if (uses.getReads(getAssignedVar()).size() <= 1) {
                 // make sure that an impure expression is only evaluated once
                 // by removing the assignment
                 set.replaceBy(ImHelper.nullExpr());
 
                 // remove variables which are no longer read
                 for (ImVarRead r : readVariables(set)) {
-                    r.getVar().attrReads().remove(r);
+                    uses.getReads(r.getVar()).remove(r);
                 }
             }
 
             ImExpr newE = (ImExpr) e.copy();
             read.replaceBy(newE);
-            // update attrReads:
-            getAssignedVar().attrReads().remove(read);
+            // update the reads:
+            uses.getReads(getAssignedVar()).remove(read);
 
             // for all the variables in e: add to read
             for (ImVarRead r : readVariables(newE)) {
-                r.getVar().attrReads().add(r);
+                uses.getReads(r.getVar()).add(r);
             }
 
         }
@@ -333,7 +342,7 @@ public class TempMerger implements OptimizerPass {
                     return false;
                 }
             }
-            if (left.attrReads().size() == 1) {
+            if (uses.getReads(left).size() == 1) {
                 // variable read exactly once can be replaced
                 return true;
             }
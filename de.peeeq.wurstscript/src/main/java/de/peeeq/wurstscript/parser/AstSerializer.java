@@ -0,0 +1,393 @@
+package de.peeeq.wurstscript.parser;
+
+import de.peeeq.wurstscript.ast.Ast;
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.attributes.CompilationUnitInfo;
+import de.peeeq.wurstscript.attributes.CompilationUnitInfo.IndentationMode;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
+import de.peeeq.wurstscript.utils.LineOffsets;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary serialization of parsed compilation units.
+ * <p>
+ * A node is written as its type name followed by the arguments of its factory method in {@link Ast}.
+ * Arguments which are AST elements are the children of the node, in the same order.
+ * The other arguments (positions, names, literals, ...) are read with the getters listed in {@link #VALUE_GETTERS}.
+ * Nodes with only a source position do not need an entry there.
+ * <p>
+ * Strings, files and line offsets are written once and afterwards referenced by index.
+ */
+public class AstSerializer {
+
+    private static final Map<Class<?>, NodeType> typesByClass = new ConcurrentHashMap<>();
+    private static final Map<String, NodeType> typesByName = new ConcurrentHashMap<>();
+
+    /**
+     * the getters for the arguments of a factory method which are not AST elements, in the order of the arguments
+     */
+    private static final Map<String, List<String>> VALUE_GETTERS = new HashMap<>();
+
+    static {
+        values("CompilationUnit", "getCuInfo");
+        values("Identifier", "getSource", "getName");
+        values("WImport", "getSource", "getIsPublic", "getIsInitLater");
+        values("TypeExprSimple", "getSource", "getTypeName");
+        values("SomeSuperConstructorCall", "getSource", "getKeywordSource");
+        values("ExprBinary", "getSource", "getOp");
+        values("ExprUnary", "getSource", "getOpU");
+        values("ExprClosure", "getSource", "getArrowSource");
+        values("ExprIncomplete", "getSource", "getErrorMessage");
+        values("ExprIntVal", "getSource", "getValIraw");
+        values("ExprRealVal", "getSource", "getValR");
+        values("ExprStringVal", "getSource", "getValS");
+        values("ExprBoolVal", "getSource", "getValB");
+        values("ExprFuncRef", "getSource", "getScopeName");
+        values("WurstDoc", "getSource", "getRawComment");
+    }
+
+    private static void values(String nodeType, String... getters) {
+        VALUE_GETTERS.put(nodeType, Arrays.asList(getters));
+    }
+
+    private static final int TAG_NEW = 0;
+    private static final int LINE_OFFSETS_NULL = -1;
+    private static final int LINE_OFFSETS_DUMMY = -2;
+
+    private AstSerializer() {
+    }
+
+    /**
+     * thrown when a compilation unit contains values that cannot be serialized
+     * or when the serialized data is invalid
+     */
+    public static class AstSerializationException extends RuntimeException {
+        public AstSerializationException(String message) {
+            super(message);
+        }
+
+        public AstSerializationException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public static void write(CompilationUnit cu, DataOutput out) throws IOException {
+        new Writer(out).writeElement(cu);
+    }
+
+    public static CompilationUnit read(DataInput in, ErrorHandler errorHandler) throws IOException {
+        Element e = new Reader(in, errorHandler).readElement();
+        if (!(e instanceof CompilationUnit)) {
+            throw new AstSerializationException("Expected compilation unit but found " + e.getClass().getSimpleName());
+        }
+        return (CompilationUnit) e;
+    }
+
+    /**
+     * reflective information about a node type
+     */
+    private static class NodeType {
+        final String name;
+        final Method factory;
+        final Class<?>[] paramTypes;
+        final Method[] valueGetters;
+        final boolean isList;
+
+        NodeType(String name, Method factory, Class<?> iface) {
+            this.name = name;
+            this.factory = factory;
+            this.paramTypes = factory.getParameterTypes();
+            this.isList = List.class.isAssignableFrom(iface);
+            if (isList) {
+                this.valueGetters = new Method[0];
+                return;
+            }
+            List<Class<?>> valueTypes = new ArrayList<>();
+            for (Class<?> paramType : paramTypes) {
+                if (!Element.class.isAssignableFrom(paramType)) {
+                    valueTypes.add(paramType);
+                }
+            }
+            List<String> getterNames = VALUE_GETTERS.get(name);
+            if (getterNames == null) {
+                getterNames = valueTypes.equals(Collections.singletonList(WPos.class))
+                        ? Collections.singletonList("getSource")
+                        : Collections.emptyList();
+            }
+            if (getterNames.size() != valueTypes.size()) {
+                throw new AstSerializationException("Cannot serialize " + name + ", the getters for " + valueTypes + " are unknown.");
+            }
+            this.valueGetters = new Method[getterNames.size()];
+            for (int i = 0; i < valueGetters.length; i++) {
+                String getterName = getterNames.get(i);
+                try {
+                    valueGetters[i] = iface.getMethod(getterName);
+                } catch (NoSuchMethodException e) {
+                    throw new AstSerializationException("Could not find getter " + getterName + " in " + name, e);
+                }
+                if (valueGetters[i].getReturnType() != valueTypes.get(i)) {
+                    throw new AstSerializationException("Getter " + getterName + " in " + name + " does not return " + valueTypes.get(i));
+                }
+            }
+        }
+    }
+
+    private static NodeType nodeType(Class<?> c) {
+        NodeType t = typesByClass.get(c);
+        if (t != null) {
+            return t;
+        }
+        for (Class<?> iface : c.getInterfaces()) {
+            Method factory = findFactory(iface);
+            if (factory != null) {
+                t = new NodeType(iface.getSimpleName(), factory, iface);
+                typesByClass.put(c, t);
+                typesByName.put(t.name, t);
+                return t;
+            }
+        }
+        throw new AstSerializationException("Could not find factory method for " + c);
+    }
+
+    private static NodeType nodeType(String name) {
+        NodeType t = typesByName.get(name);
+        if (t != null) {
+            return t;
+        }
+        Class<?> iface;
+        try {
+            iface = Class.forName(Element.class.getPackage().getName() + "." + name);
+        } catch (ClassNotFoundException e) {
+            throw new AstSerializationException("Unknown node type " + name, e);
+        }
+        Method factory = findFactory(iface);
+        if (factory == null) {
+            throw new AstSerializationException("Could not find factory method for " + name);
+        }
+        t = new NodeType(name, factory, iface);
+        typesByName.put(name, t);
+        return t;
+    }
+
+    private static @Nullable Method findFactory(Class<?> iface) {
+        boolean isList = List.class.isAssignableFrom(iface);
+        for (Method m : Ast.class.getMethods()) {
+            if (m.getName().equals(iface.getSimpleName())
+                    && m.getReturnType() == iface
+                    && (!isList || m.isVarArgs())) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static class Writer {
+        private final DataOutput out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<LineOffsets, Integer> lineOffsets = new IdentityHashMap<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        void writeElement(Element e) throws IOException {
+            NodeType t = nodeType(e.getClass());
+            writeString(t.name);
+            if (t.isList) {
+                List<?> list = (List<?>) e;
+                out.writeInt(list.size());
+                for (Object child : list) {
+                    writeElement((Element) child);
+                }
+                return;
+            }
+            int child = 0;
+            int value = 0;
+            for (Class<?> paramType : t.paramTypes) {
+                if (Element.class.isAssignableFrom(paramType)) {
+                    if (child >= e.size()) {
+                        throw new AstSerializationException("Cannot serialize " + t.name + ", it has fewer children than arguments.");
+                    }
+                    writeElement(e.get(child++));
+                } else {
+                    Method getter = t.valueGetters[value++];
+                    try {
+                        writeValue(paramType, getter.invoke(e));
+                    } catch (IllegalAccessException | InvocationTargetException ex) {
+                        throw new AstSerializationException("Could not read " + getter, ex);
+                    }
+                }
+            }
+            if (child != e.size()) {
+                throw new AstSerializationException("Cannot serialize " + t.name + ", it has more children than arguments.");
+            }
+        }
+
+        private void writeValue(Class<?> type, Object value) throws IOException {
+            if (type == WPos.class) {
+                writePos((WPos) value);
+            } else if (type == String.class) {
+                writeString((String) value);
+            } else if (type == boolean.class) {
+                out.writeBoolean((Boolean) value);
+            } else if (type == int.class) {
+                out.writeInt((Integer) value);
+            } else if (type.isEnum()) {
+                writeString(((Enum<?>) value).name());
+            } else if (type == CompilationUnitInfo.class) {
+                CompilationUnitInfo info = (CompilationUnitInfo) value;
+                writeString(info.getFile());
+                writeString(info.getIndentationMode().getIndent());
+            } else {
+                throw new AstSerializationException("Cannot serialize value of type " + type);
+            }
+        }
+
+        private void writePos(WPos pos) throws IOException {
+            writeString(pos.getFile());
+            LineOffsets lo = pos.getLineOffsets();
+            if (lo == null) {
+                out.writeInt(LINE_OFFSETS_NULL);
+            } else if (lo == LineOffsets.dummy) {
+                out.writeInt(LINE_OFFSETS_DUMMY);
+            } else {
+                Integer index = lineOffsets.get(lo);
+                if (index == null) {
+                    out.writeInt(TAG_NEW);
+                    lineOffsets.put(lo, lineOffsets.size() + 1);
+                    lo.write(out);
+                } else {
+                    out.writeInt(index);
+                }
+            }
+            out.writeInt(pos.getLeftPos());
+            out.writeInt(pos.getRightPos());
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index == null) {
+                out.writeInt(TAG_NEW);
+                strings.put(s, strings.size() + 1);
+                // not using writeUTF, because it is limited to 64k
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else {
+                out.writeInt(index);
+            }
+        }
+    }
+
+    private static class Reader {
+        private final DataInput in;
+        private final ErrorHandler errorHandler;
+        private final List<String> strings = new ArrayList<>();
+        private final List<LineOffsets> lineOffsets = new ArrayList<>();
+
+        Reader(DataInput in, ErrorHandler errorHandler) {
+            this.in = in;
+            this.errorHandler = errorHandler;
+        }
+
+        Element readElement() throws IOException {
+            NodeType t = nodeType(readString());
+            try {
+                if (t.isList) {
+                    Class<?> elemType = t.paramTypes[0].getComponentType();
+                    @SuppressWarnings("unchecked")
+                    List<Object> list = (List<Object>) t.factory.invoke(null, Array.newInstance(elemType, 0));
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        list.add(readElement());
+                    }
+                    return (Element) list;
+                }
+                Object[] args = new Object[t.paramTypes.length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readValue(t.paramTypes[i]);
+                }
+                return (Element) t.factory.invoke(null, args);
+            } catch (IllegalAccessException | InvocationTargetException | ClassCastException e) {
+                throw new AstSerializationException("Could not create " + t.name, e);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object readValue(Class<?> type) throws IOException {
+            if (Element.class.isAssignableFrom(type)) {
+                return readElement();
+            } else if (type == WPos.class) {
+                return readPos();
+            } else if (type == String.class) {
+                return readString();
+            } else if (type == boolean.class) {
+                return in.readBoolean();
+            } else if (type == int.class) {
+                return in.readInt();
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, readString());
+            } else if (type == CompilationUnitInfo.class) {
+                CompilationUnitInfo info = new CompilationUnitInfo(errorHandler);
+                info.setFile(readString());
+                String indent = readString();
+                info.setIndentationMode(indent.equals("\t")
+                        ? IndentationMode.tabs()
+                        : IndentationMode.spaces(indent.length()));
+                return info;
+            } else {
+                throw new AstSerializationException("Cannot deserialize value of type " + type);
+            }
+        }
+
+        private WPos readPos() throws IOException {
+            String file = readString();
+            int index = in.readInt();
+            LineOffsets lo;
+            if (index == LINE_OFFSETS_NULL) {
+                lo = null;
+            } else if (index == LINE_OFFSETS_DUMMY) {
+                lo = LineOffsets.dummy;
+            } else if (index == TAG_NEW) {
+                lo = LineOffsets.read(in);
+                lineOffsets.add(lo);
+            } else {
+                lo = get(lineOffsets, index);
+            }
+            int left = in.readInt();
+            int right = in.readInt();
+            return new WPos(file, lo, left, right);
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == TAG_NEW) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                String s = new String(bytes, StandardCharsets.UTF_8);
+                strings.add(s);
+                return s;
+            }
+            return get(strings, index);
+        }
+
+        private static <T> T get(List<T> table, int index) {
+            if (index < 1 || index > table.size()) {
+                throw new AstSerializationException("Invalid table index " + index);
+            }
+            return table.get(index - 1);
+        }
+    }
+
+}
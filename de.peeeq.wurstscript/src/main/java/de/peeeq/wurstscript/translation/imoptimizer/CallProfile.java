@@ -0,0 +1,145 @@
+package de.peeeq.wurstscript.translation.imoptimizer;
+
+import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.parser.WPos;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often the calls in a program were executed, recorded by the interpreter and used by the {@link ImInliner}.
+ * <p>
+ * A call site is identified by the source position of the call (file, line and column)
+ * together with the source position of the called function,
+ * so a profile recorded when running the tests can be used in later compilations
+ * and for calls which were copied by the inliner.
+ * Several calls translated from the same expression (like the iterator calls of a for-in loop)
+ * are counted separately, as long as they call different functions.
+ * Calls can be recorded from several threads at the same time.
+ * <p>
+ * A profile file has one line for each call site: the count, followed by the line, the column and the file
+ * of the call and of the called function, separated by tabs.
+ */
+public class CallProfile {
+    // calls recorded by the interpreter, not yet added to the counts by call site:
+    private final Map<Call, LongAdder> recordedCalls = new ConcurrentHashMap<>();
+    private final Map<String, Long> callSiteCounts = new TreeMap<>();
+
+    /**
+     * the traces of a call and of the called function
+     */
+    private static class Call {
+        private final Element trace;
+        private final Element calleeTrace;
+
+        Call(Element trace, Element calleeTrace) {
+            this.trace = trace;
+            this.calleeTrace = calleeTrace;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj instanceof Call) {
+                Call other = (Call) obj;
+                return trace == other.trace && calleeTrace == other.calleeTrace;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(trace) + System.identityHashCode(calleeTrace);
+        }
+    }
+
+    /**
+     * records a call with the given trace of a function with the given trace
+     */
+    public void recordCall(Element trace, Element calleeTrace) {
+        recordedCalls.computeIfAbsent(new Call(trace, calleeTrace), c -> new LongAdder()).increment();
+    }
+
+    /**
+     * returns how often calls at the source position of the given trace to the function with the given trace
+     * were executed, or -1 if the trace has no source position
+     */
+    public long getCount(Element trace, Element calleeTrace) {
+        String callSite = callSite(trace, calleeTrace);
+        if (callSite == null) {
+            return -1;
+        }
+        return getCallSiteCounts().getOrDefault(callSite, 0L);
+    }
+
+    /**
+     * the highest count of a call site
+     */
+    public long getMaxCount() {
+        long max = 0;
+        for (long count : getCallSiteCounts().values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    private synchronized Map<String, Long> getCallSiteCounts() {
+        for (Iterator<Map.Entry<Call, LongAdder>> it = recordedCalls.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Call, LongAdder> e = it.next();
+            it.remove();
+            String callSite = callSite(e.getKey().trace, e.getKey().calleeTrace);
+            if (callSite != null) {
+                callSiteCounts.merge(callSite, e.getValue().sum(), Long::sum);
+            }
+        }
+        return callSiteCounts;
+    }
+
+    private static @Nullable String callSite(Element trace, Element calleeTrace) {
+        WPos source = trace.attrSource();
+        if (source.isArtificial()) {
+            return null;
+        }
+        WPos calleeSource = calleeTrace.attrSource();
+        return position(source) + "\t" + (calleeSource.isArtificial() ? "-\t-\t-" : position(calleeSource));
+    }
+
+    private static String position(WPos source) {
+        return source.getLine() + "\t" + source.getStartColumn() + "\t" + source.getFile();
+    }
+
+    public void writeTo(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Long> e : getCallSiteCounts().entrySet()) {
+            lines.add(e.getValue() + "\t" + e.getKey());
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    public static CallProfile readFrom(File file) throws IOException {
+        CallProfile profile = new CallProfile();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("Invalid line in call profile " + file + ": " + line);
+            }
+            long count;
+            try {
+                count = Long.parseLong(line.substring(0, tab));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid line in call profile " + file + ": " + line, e);
+            }
+            profile.callSiteCounts.merge(line.substring(tab + 1), count, Long::sum);
+        }
+        return profile;
+    }
+
+}
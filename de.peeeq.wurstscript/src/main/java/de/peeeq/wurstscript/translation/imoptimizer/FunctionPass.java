@@ -0,0 +1,77 @@
+package de.peeeq.wurstscript.translation.imoptimizer;
+
+import de.peeeq.wurstscript.jassIm.ImFunction;
+import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+
+/**
+ * An optimizer pass which optimizes each function on its own.
+ * <p>
+ * The functions are optimized in parallel: each function gets its own {@link FunctionOptimizer}
+ * from {@link #createOptimizer()}, which may keep the state of that function in fields.
+ * A function optimizer must only change its function and must not change any state shared with other functions.
+ * Analyses of the whole program are calculated once in {@link #prepare(ImTranslator)}
+ * and are then only read by the function optimizers.
+ */
+public interface FunctionPass extends OptimizerPass {
+
+    /**
+     * The result of optimizing a single function.
+     */
+    final class Result {
+        public static final Result UNCHANGED = new Result(0, false);
+
+        // the number of optimizations, as reported by the pass
+        public final int count;
+        // true, if the function was changed (some changes are not counted)
+        public final boolean changed;
+
+        public Result(int count, boolean changed) {
+            this.count = count;
+            this.changed = changed || count > 0;
+        }
+    }
+
+    /**
+     * called once before the functions are optimized
+     */
+    default void prepare(ImTranslator trans) {
+    }
+
+    /**
+     * Optimizes a single function.
+     */
+    interface FunctionOptimizer {
+        Result optimizeFunction(ImFunction func);
+    }
+
+    /**
+     * creates the optimizer for one function, called after {@link #prepare(ImTranslator)} for each function
+     */
+    FunctionOptimizer createOptimizer();
+
+    /**
+     * called once after all functions were optimized
+     */
+    default void finish(ImTranslator trans) {
+    }
+
+    /**
+     * true, if the result for a function only depends on the function itself,
+     * so that an unchanged function does not have to be optimized again.
+     * Passes using the side effects of called functions return false.
+     */
+    default boolean dependsOnlyOnFunction() {
+        return true;
+    }
+
+    @Override
+    default int optimize(ImTranslator trans) {
+        prepare(trans);
+        int count = 0;
+        for (ImFunction func : trans.getImProg().getFunctions()) {
+            count += createOptimizer().optimizeFunction(func).count;
+        }
+        finish(trans);
+        return count;
+    }
+}
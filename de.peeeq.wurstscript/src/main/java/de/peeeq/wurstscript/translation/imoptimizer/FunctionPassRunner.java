@@ -0,0 +1,81 @@
+package de.peeeq.wurstscript.translation.imoptimizer;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.peeeq.wurstscript.jassIm.ImFunction;
+import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs {@link FunctionPass}es on a bounded pool of worker threads.
+ * <p>
+ * Each function is optimized by its own task and the results are combined in the order of the functions,
+ * so the optimized program and the counts do not depend on the number of threads.
+ */
+class FunctionPassRunner implements AutoCloseable {
+    private final ExecutorService pool;
+
+    FunctionPassRunner(int threads) {
+        if (threads <= 1) {
+            this.pool = MoreExecutors.newDirectExecutorService();
+        } else {
+            this.pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setNameFormat("Wurst Optimizer %d")
+                    .setDaemon(true)
+                    .build());
+        }
+    }
+
+    /**
+     * runs the pass on the given functions and adds the functions changed by the pass to changedFunctions
+     *
+     * @return the number of optimizations
+     */
+    int run(FunctionPass pass, ImTranslator trans, List<ImFunction> functions, Set<ImFunction> changedFunctions) {
+        pass.prepare(trans);
+        List<Future<FunctionPass.Result>> results = new ArrayList<>(functions.size());
+        for (ImFunction func : functions) {
+            FunctionPass.FunctionOptimizer optimizer = pass.createOptimizer();
+            results.add(pool.submit(() -> optimizer.optimizeFunction(func)));
+        }
+        int count = 0;
+        for (int i = 0; i < functions.size(); i++) {
+            FunctionPass.Result result = await(results.get(i));
+            count += result.count;
+            if (result.changed) {
+                changedFunctions.add(functions.get(i));
+            }
+        }
+        pass.finish(trans);
+        return count;
+    }
+
+    private static FunctionPass.Result await(Future<FunctionPass.Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import de.peeeq.wurstscript.jassIm.*;
 import de.peeeq.wurstscript.translation.imtranslation.*;
+import org.eclipse.jdt.annotation.Nullable;
 
 import java.util.*;
 
@@ -16,6 +17,12 @@ public class ImInliner {
     private static final String NOINLINE = "@noinline";
 
     private static final double THRESHOLD_MODIFIER_CONSTANT_ARG = 2;
+    // with a call profile: calls executed at least this fraction of the most executed call are hot
+    private static final double HOT_CALL_FRACTION = 0.01;
+    private static final double THRESHOLD_MODIFIER_HOT_CALL = 10;
+    // with a call profile: calls which were never executed in a profiled function are cold
+    // and are only inlined, if this does not make the code bigger (rating 0 or 1)
+    private static final double THRESHOLD_COLD_CALL = 2;
 
     private static final Set<String> dontInline = Sets.newLinkedHashSet();
     private ImTranslator translator;
@@ -25,6 +32,10 @@ public class ImInliner {
     private Map<ImFunction, Integer> funcSizes = Maps.newLinkedHashMap();
     private Set<ImFunction> done = Sets.newLinkedHashSet();
     private double inlineTreshold = 50;
+    private @Nullable CallProfile callProfile;
+    private long hotCallCount = Long.MAX_VALUE;
+    // functions with at least one executed call in the call profile
+    private Set<ImFunction> profiledFunctions = Sets.newLinkedHashSet();
 
     static {
         dontInline.add("SetPlayerAllianceStateAllyBJ");
@@ -37,6 +48,13 @@ public class ImInliner {
         this.prog = translator.getImProg();
     }
 
+    /**
+     * uses the given profile to inline frequently executed calls and to keep calls which are never executed out of line
+     */
+    public void setCallProfile(CallProfile callProfile) {
+        this.callProfile = callProfile;
+    }
+
     public void doInlining() {
         prog.flatten(translator);
         collectInlinableFunctions();
@@ -69,7 +87,7 @@ public class ImInliner {
         if (e instanceof ImFunctionCall) {
             ImFunctionCall call = (ImFunctionCall) e;
             ImFunction called = call.getFunc();
-            if (f != called && shouldInline(call, called)) {
+            if (f != called && shouldInline(f, call, called)) {
                 if (alreadyInlined.getOrDefault(called, 0) < 5) { // check maximum to ensure termination
                     inlineCall(f, parent, parentI, call);
 //					translator.removeCallRelation(f, called); // XXX is it safe to remove this call relation?
@@ -169,6 +187,21 @@ public class ImInliner {
             int size = estimateSize(f);
             funcSizes.put(f, size);
         }
+        CallProfile profile = callProfile;
+        if (profile != null) {
+            hotCallCount = Math.max(1, (long) (profile.getMaxCount() * HOT_CALL_FRACTION));
+            for (ImFunction f : prog.getFunctions()) {
+                f.accept(new ImFunction.DefaultVisitor() {
+                    @Override
+                    public void visit(ImFunctionCall call) {
+                        super.visit(call);
+                        if (profile.getCount(call.getTrace(), call.getFunc().getTrace()) > 0) {
+                            profiledFunctions.add(f);
+                        }
+                    }
+                });
+            }
+        }
     }
 
     private double getRating(ImFunction f) {
@@ -206,7 +239,7 @@ public class ImInliner {
         }
     }
 
-    private boolean shouldInline(ImFunctionCall call, ImFunction f) {
+    private boolean shouldInline(ImFunction caller, ImFunctionCall call, ImFunction f) {
         if (f.isNative() || call.getCallType() == CallType.EXECUTE) {
             return false;
         }
@@ -218,6 +251,15 @@ public class ImInliner {
                 break;
             }
         }
+        CallProfile profile = callProfile;
+        if (profile != null) {
+            long count = profile.getCount(call.getTrace(), call.getFunc().getTrace());
+            if (count >= hotCallCount) {
+                threshold *= THRESHOLD_MODIFIER_HOT_CALL;
+            } else if (count == 0 && profiledFunctions.contains(caller)) {
+                threshold = Math.min(threshold, THRESHOLD_COLD_CALL);
+            }
+        }
 //		WLogger.info("Should I inline function " + f.getName() + "?");
 //		WLogger.info("	ininable: " + inlinableFunctions.contains(f));
 //		WLogger.info("	rating: " + getRating(f));
@@ -1,18 +1,24 @@
 package de.peeeq.wurstscript.translation.imoptimizer;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import de.peeeq.wurstio.TimeTaker;
 import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.intermediatelang.optimizer.*;
 import de.peeeq.wurstscript.jassIm.*;
+import de.peeeq.wurstscript.translation.imtranslation.CallGraph;
 import de.peeeq.wurstscript.translation.imtranslation.ImHelper;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 import de.peeeq.wurstscript.utils.Pair;
+import de.peeeq.wurstscript.utils.Utils;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 
 public class ImOptimizer {
     private int totalFunctionsRemoved = 0;
@@ -28,8 +34,11 @@ public class ImOptimizer {
         localPasses.add(new GlobalsInliner());
         localPasses.add(new BranchMerger());
         localPasses.add(new SimpleRewrites());
+        localPasses.add(new LoopInvariantCodeMotion());
+        localPasses.add(new CommonSubexpressionElimination());
         localPasses.add(new TempMerger());
         localPasses.add(new LocalMerger());
+        localPasses.add(new DeadStoreElimination());
     }
 
 
@@ -53,35 +62,80 @@ public class ImOptimizer {
         GlobalsInliner globalsInliner = new GlobalsInliner();
         globalsInliner.optimize(trans);
         ImInliner inliner = new ImInliner(trans);
+        String inlineProfileFile = trans.getRunArgs().getInlineProfileFile();
+        if (inlineProfileFile != null) {
+            inliner.setCallProfile(readCallProfile(inlineProfileFile));
+        }
         inliner.doInlining();
         trans.assertProperties();
         // remove garbage, because inlined functions can be removed
         removeGarbage();
     }
 
+    private static CallProfile readCallProfile(String file) {
+        try {
+            return CallProfile.readFrom(new File(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read call profile " + file, e);
+        }
+    }
+
     private int optCount = 1;
 
+    /**
+     * Runs the local passes until they find nothing more to optimize (at most 10 iterations).
+     * <p>
+     * {@link FunctionPass}es optimize the functions in parallel, the other passes work on the whole program
+     * and are run when all functions are done.
+     * Functions which were not changed in the previous iteration are only optimized again by passes
+     * which use other functions, unless a whole program pass or the garbage removal changed something.
+     */
     public void localOptimizations() {
         totalCount.clear();
         removeGarbage();
 
-        int finalItr = 0;
-        for (int i = 1; i <= 10 && optCount > 0; i++) {
-            optCount = 0;
-            localPasses.forEach(pass -> {
-                int count = timeTaker.measure(pass.getName(), () -> pass.optimize(trans));
-                optCount += count;
-                totalCount.put(pass.getName(), totalCount.getOrDefault(pass.getName(), 0) + count);
-            });
-            trans.getImProg().flatten(trans);
-            removeGarbage();
-            finalItr = i;
-            WLogger.info("=== Optimization pass: " + i + " opts: " + optCount + " ===");
+        try (FunctionPassRunner runner = new FunctionPassRunner(getOptimizeThreads())) {
+            // functions changed in the previous iteration, or null if all functions must be optimized
+            Set<ImFunction> previouslyChanged = null;
+            int finalItr = 0;
+            for (int i = 1; i <= 10 && optCount > 0; i++) {
+                optCount = 0;
+                Set<ImFunction> changed = Sets.newIdentityHashSet();
+                boolean allChanged = previouslyChanged == null;
+                for (OptimizerPass pass : localPasses) {
+                    int count;
+                    if (pass instanceof FunctionPass) {
+                        FunctionPass functionPass = (FunctionPass) pass;
+                        List<ImFunction> functions = new ArrayList<>(trans.getImProg().getFunctions());
+                        if (!allChanged && functionPass.dependsOnlyOnFunction()) {
+                            Set<ImFunction> dirty = previouslyChanged;
+                            functions.removeIf(f -> !dirty.contains(f) && !changed.contains(f));
+                        }
+                        count = timeTaker.measure(pass.getName(), () -> runner.run(functionPass, trans, functions, changed));
+                    } else {
+                        count = timeTaker.measure(pass.getName(), () -> pass.optimize(trans));
+                        // whole program passes do not tell which functions they changed
+                        allChanged |= count > 0;
+                    }
+                    optCount += count;
+                    totalCount.put(pass.getName(), totalCount.getOrDefault(pass.getName(), 0) + count);
+                }
+                trans.getImProg().flatten(trans);
+                boolean garbageRemoved = removeGarbageAndCheckChanges();
+                previouslyChanged = allChanged || garbageRemoved ? null : changed;
+                finalItr = i;
+                WLogger.info("=== Optimization pass: " + i + " opts: " + optCount + " ===");
+            }
+            WLogger.info("=== Local optimizations done! Ran " + finalItr + " passes. ===");
         }
-        WLogger.info("=== Local optimizations done! Ran " + finalItr + " passes. ===");
         totalCount.forEach((k, v) -> WLogger.info("== " + k + ":   " + v));
     }
 
+    private int getOptimizeThreads() {
+        int threads = trans.getRunArgs().getOptimizeThreads();
+        return threads > 0 ? threads : Utils.defaultThreadCount();
+    }
+
     public void doNullsetting() {
         NullSetter ns = new NullSetter(trans);
         ns.optimize();
@@ -89,21 +143,30 @@ public class ImOptimizer {
     }
 
     public void removeGarbage() {
+        removeGarbageAndCheckChanges();
+    }
+
+    /**
+     * removes unused functions and variables and returns true if something was removed
+     */
+    private boolean removeGarbageAndCheckChanges() {
+        ImProg prog = trans.imProg();
+        // the call graph is calculated once and then only updated for the functions changed below
+        CallGraph callGraph = new CallGraph(trans.getMainFunc(), trans.getConfFunc());
+        Set<ImVar> readVariables = callGraph.getReadVariables();
         boolean changes = true;
+        boolean anyChanges = false;
         int iterations = 0;
         while (changes && iterations++ < 10) {
-            ImProg prog = trans.imProg();
-            trans.calculateCallRelationsAndUsedVariables();
-
             // keep only used variables
             int globalsBefore = prog.getGlobals().size();
-            changes = prog.getGlobals().retainAll(trans.getReadVariables());
+            changes = prog.getGlobals().retainAll(readVariables);
             int globalsAfter = prog.getGlobals().size();
             int globalsRemoved = globalsBefore - globalsAfter;
             totalGlobalsRemoved += globalsRemoved;
             // keep only functions reachable from main and config
             int functionsBefore = prog.getFunctions().size();
-            changes |= prog.getFunctions().retainAll(trans.getUsedFunctions());
+            changes |= prog.getFunctions().retainAll(callGraph.getReachableFunctions());
             int functionsAfter = prog.getFunctions().size();
             int functionsRemoved = functionsBefore - functionsAfter;
             totalFunctionsRemoved += functionsRemoved;
@@ -116,12 +179,12 @@ public class ImOptimizer {
                         super.visit(e);
                         if (e.getLeft() instanceof ImVarAccess) {
                             ImVarAccess va = (ImVarAccess) e.getLeft();
-                            if (!trans.getReadVariables().contains(va.getVar())) {
+                            if (!readVariables.contains(va.getVar())) {
                                 replacements.add(Pair.create(e, Collections.singletonList(e.getRight())));
                             }
                         } else if (e.getLeft() instanceof ImVarArrayAccess) {
                             ImVarArrayAccess va = (ImVarArrayAccess) e.getLeft();
-                            if (!trans.getReadVariables().contains(va.getVar())) {
+                            if (!readVariables.contains(va.getVar())) {
                                 // TODO indexes might have side effects that we need to keep
                                 List<ImExpr> exprs = va.getIndexes().removeAll();
                                 exprs.add(e.getRight());
@@ -146,11 +209,18 @@ public class ImOptimizer {
                     }
                     pair.getA().replaceBy(r);
                 }
+                if (!replacements.isEmpty()) {
+                    callGraph.markChanged(f);
+                }
 
                 // keep only read local variables
-                changes |= f.getLocals().retainAll(trans.getReadVariables());
+                changes |= f.getLocals().retainAll(readVariables);
             }
+            callGraph.update();
+            anyChanges |= changes;
         }
+        trans.setCallGraph(callGraph);
+        return anyChanges;
     }
 
 }
@@ -111,7 +111,8 @@ public class UselessFunctionCallsRemover implements OptimizerPass {
         return func.isNative() && isFunctionWithoutSideEffect(func.getName());
     }
 
-    private static List<String> functionsWithoutSideEffects;
+    // volatile, because the optimizer passes use this from several threads
+    private static volatile List<String> functionsWithoutSideEffects;
 
     /**
      * checks if the jass-function with the given name can have no side effects.
@@ -20,11 +20,29 @@ public class VariableUses {
         public void addRead(ImVar v, ImVarRead r) {
             reads.put(v, r);
         }
+
+        /**
+         * the reads of the given variable (a modifiable view)
+         */
+        public Collection<ImVarRead> getReads(ImVar v) {
+            return reads.get(v);
+        }
+
+        /**
+         * the writes of the given variable (a modifiable view)
+         */
+        public Collection<ImVarWrite> getWrites(ImVar v) {
+            return writes.get(v);
+        }
     }
 
-    public static Uses calcVarUses(ImProg imProg) {
+    /**
+     * calculates the reads and writes of variables in the given element,
+     * usually the whole program or a single function
+     */
+    public static Uses calcVarUses(Element elem) {
         final Uses result = new Uses();
-        imProg.accept(new ImProg.DefaultVisitor() {
+        elem.accept(new Element.DefaultVisitor() {
             @Override
             public void visit(ImSet imSet) {
                 Element.DefaultVisitor thiz = this;
@@ -17,8 +17,8 @@ public class DefaultValue {
     public static ILconst get(ImSimpleType t) {
         String typename = t.getTypename();
         if (typename.equals("string")) return ILconstNull.instance();
-        if (typename.equals("integer")) return new ILconstInt(0);
-        if (typename.equals("real")) return new ILconstReal(0);
+        if (typename.equals("integer")) return ILconstInt.create(0);
+        if (typename.equals("real")) return ILconstReal.create(0);
         if (typename.equals("boolean")) return ILconstBool.FALSE;
         WLogger.info("could not get default value for " + typename);
         return ILconstNull.instance();
@@ -38,7 +38,12 @@ public class DefaultValue {
 
     public static ILconst get(ImArrayTypeMulti t) {
         List<Integer> sizes = t.getArraySize();
-        return new ILconstArray(sizes.get(0), makeSupplier(sizes.size() - 1, t.getEntryType()));
+        int depth = sizes.size() - 1;
+        if (depth <= 1) {
+            // the entries are values of the entry type
+            return ILconstArray.forEntryType(sizes.get(0), t.getEntryType());
+        }
+        return new ILconstArray(sizes.get(0), makeSupplier(depth, t.getEntryType()));
     }
 
     private static Supplier<ILconst> makeSupplier(int depth, ImType entryType) {
@@ -53,7 +58,7 @@ public class DefaultValue {
     }
 
     public static ILconst get(ImClassType ct) {
-        return new ILconstInt(0);
+        return ILconstInt.create(0);
     }
 
     public static ILconst get(ImAnyType imAnyType) {
@@ -0,0 +1,179 @@
+package de.peeeq.wurstscript.translation.imtranslation;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import de.peeeq.wurstscript.jassIm.ImFunction;
+import de.peeeq.wurstscript.jassIm.ImVar;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.*;
+
+/**
+ * The call relations and the used variables of the functions reachable from the main and config function.
+ * <p>
+ * The called functions and the used variables are calculated once for each function.
+ * When the body of a function is changed, it must be marked with {@link #markChanged(ImFunction)},
+ * then {@link #update()} only calculates the uses of the changed functions again.
+ * For each variable the number of reachable functions using and reading it is counted,
+ * so unused variables are known without looking at all functions again.
+ */
+public class CallGraph {
+
+    private static class FunctionUses {
+        private final Set<ImVar> usedVariables;
+        private final Set<ImVar> readVariables;
+        private final Set<ImFunction> calledFunctions;
+
+        FunctionUses(ImFunction f) {
+            usedVariables = f.calcUsedVariables();
+            readVariables = f.calcReadVariables();
+            calledFunctions = f.calcUsedFunctions();
+        }
+    }
+
+    private final @Nullable ImFunction mainFunc;
+    private final @Nullable ImFunction configFunc;
+    private final Map<ImFunction, FunctionUses> uses = new HashMap<>();
+    // reachable functions, in the order they are found by a depth first search:
+    private final Set<ImFunction> reachableFunctions = Sets.newLinkedHashSet();
+    // the number of reachable functions using or reading each variable:
+    private final Map<ImVar, Integer> useCounts = new LinkedHashMap<>();
+    private final Map<ImVar, Integer> readCounts = new LinkedHashMap<>();
+    private final Set<ImFunction> changedFunctions = Sets.newLinkedHashSet();
+
+    public CallGraph(@Nullable ImFunction mainFunc, @Nullable ImFunction configFunc) {
+        this.mainFunc = mainFunc;
+        this.configFunc = configFunc;
+        updateReachableFunctions();
+    }
+
+    /**
+     * marks a function, whose body has been changed
+     */
+    public void markChanged(ImFunction f) {
+        changedFunctions.add(f);
+    }
+
+    /**
+     * calculates the uses of the changed functions again and updates the reachable functions and the used variables
+     */
+    public void update() {
+        boolean callsChanged = false;
+        for (ImFunction f : changedFunctions) {
+            FunctionUses oldUses = uses.remove(f);
+            if (oldUses == null) {
+                // not calculated yet, will be calculated when it becomes reachable
+                continue;
+            }
+            FunctionUses newUses = new FunctionUses(f);
+            uses.put(f, newUses);
+            if (reachableFunctions.contains(f)) {
+                count(oldUses, -1);
+                count(newUses, 1);
+            }
+            callsChanged |= !oldUses.calledFunctions.equals(newUses.calledFunctions);
+        }
+        changedFunctions.clear();
+        if (callsChanged) {
+            updateReachableFunctions();
+        }
+    }
+
+    /**
+     * searches the reachable functions, using the calculated uses of the functions
+     */
+    private void updateReachableFunctions() {
+        Set<ImFunction> reachable = Sets.newLinkedHashSet();
+        Deque<ImFunction> todo = new ArrayDeque<>();
+        if (configFunc != null) {
+            todo.push(configFunc);
+        }
+        if (mainFunc != null) {
+            todo.push(mainFunc);
+        }
+        while (!todo.isEmpty()) {
+            ImFunction f = todo.pop();
+            if (!reachable.add(f)) {
+                continue;
+            }
+            FunctionUses fUses = uses.get(f);
+            if (fUses == null) {
+                fUses = new FunctionUses(f);
+                uses.put(f, fUses);
+            }
+            if (!reachableFunctions.contains(f)) {
+                count(fUses, 1);
+            }
+            // push in reverse order, so that the functions are visited in the order they are called:
+            for (ImFunction called : Lists.reverse(new ArrayList<>(fUses.calledFunctions))) {
+                if (!reachable.contains(called)) {
+                    todo.push(called);
+                }
+            }
+        }
+        for (ImFunction f : reachableFunctions) {
+            if (!reachable.contains(f)) {
+                count(uses.get(f), -1);
+            }
+        }
+        reachableFunctions.clear();
+        reachableFunctions.addAll(reachable);
+    }
+
+    private void count(FunctionUses fUses, int delta) {
+        for (ImVar v : fUses.usedVariables) {
+            addCount(useCounts, v, delta);
+        }
+        for (ImVar v : fUses.readVariables) {
+            addCount(readCounts, v, delta);
+        }
+    }
+
+    private static void addCount(Map<ImVar, Integer> counts, ImVar v, int delta) {
+        int count = counts.getOrDefault(v, 0) + delta;
+        if (count == 0) {
+            counts.remove(v);
+        } else {
+            counts.put(v, count);
+        }
+    }
+
+    /**
+     * the functions reachable from the main and config function (a view, which changes with {@link #update()})
+     */
+    public Set<ImFunction> getReachableFunctions() {
+        return Collections.unmodifiableSet(reachableFunctions);
+    }
+
+    /**
+     * the variables read by reachable functions (a view, which changes with {@link #update()})
+     */
+    public Set<ImVar> getReadVariables() {
+        return Collections.unmodifiableSet(readCounts.keySet());
+    }
+
+    /**
+     * the variables used by reachable functions (a view, which changes with {@link #update()})
+     */
+    public Set<ImVar> getUsedVariables() {
+        return Collections.unmodifiableSet(useCounts.keySet());
+    }
+
+    /**
+     * returns a copy of the call relations between the reachable functions, without calls to the calling function itself
+     */
+    public Multimap<ImFunction, ImFunction> calculateCallRelations() {
+        Multimap<ImFunction, ImFunction> result = HashMultimap.create();
+        for (ImFunction f : reachableFunctions) {
+            for (ImFunction called : uses.get(f).calledFunctions) {
+                if (f != called) {
+                    result.put(f, called);
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -1015,40 +1015,17 @@ public class ImTranslator {
     }
 
     public void calculateCallRelationsAndUsedVariables() {
-        callRelations = HashMultimap.create();
-        usedVariables = Sets.newLinkedHashSet();
-        readVariables = Sets.newLinkedHashSet();
-        usedFunctions = Sets.newLinkedHashSet();
-        calculateCallRelations(getMainFunc());
-        calculateCallRelations(getConfFunc());
-
-//		WLogger.info("USED FUNCS:");
-//		for (ImFunction f : usedFunctions) {
-//			WLogger.info("	" + f.getName());
-//		}
+        setCallGraph(new CallGraph(getMainFunc(), getConfFunc()));
     }
 
-    private void calculateCallRelations(ImFunction f) {
-        if (getUsedFunctions().contains(f)) {
-            return;
-        }
-        getUsedFunctions().add(f);
-
-        getUsedVariables().addAll(f.calcUsedVariables());
-        getReadVariables().addAll(f.calcReadVariables());
-
-        Set<ImFunction> calledFuncs = f.calcUsedFunctions();
-        for (ImFunction called : calledFuncs) {
-            if (f != called) { // ignore reflexive call relations
-                getCallRelations().put(f, called);
-            }
-            calculateCallRelations(called);
-        }
-
-    }
-
-    private Multimap<ImFunction, ImFunction> getCallRelations() {
-        return callRelations;
+    /**
+     * sets the call relations and used variables to the current state of the given call graph
+     */
+    public void setCallGraph(CallGraph callGraph) {
+        callRelations = callGraph.calculateCallRelations();
+        usedVariables = Sets.newLinkedHashSet(callGraph.getUsedVariables());
+        readVariables = Sets.newLinkedHashSet(callGraph.getReadVariables());
+        usedFunctions = Sets.newLinkedHashSet(callGraph.getReachableFunctions());
     }
 
 
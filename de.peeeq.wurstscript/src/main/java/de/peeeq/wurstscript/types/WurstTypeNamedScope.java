@@ -179,6 +179,23 @@ public abstract class WurstTypeNamedScope extends WurstType {
         return nameLinks().get(name);
     }
 
+    /**
+     * get the name links available in this class or interface with names matching the entered text,
+     * see {@link NameTable#lookup(String, NameTable.SearchMode)}
+     */
+    public List<DefLink> nameLinksMatching(String entered, NameTable.SearchMode mode) {
+        List<DefLink> res = getDef().attrNameTable().lookup(entered, mode);
+        VariableBinding binding = getTypeArgBinding();
+        if (!binding.isEmpty()) {
+            List<DefLink> result = new ArrayList<>(res.size());
+            for (DefLink link : res) {
+                result.add(link.withTypeArgBinding(getDef(), binding));
+            }
+            return result;
+        }
+        return res;
+    }
+
     @Override
     public void addMemberMethods(Element node, String name,
                                  List<FuncLink> result) {
@@ -1,8 +1,19 @@
 package de.peeeq.wurstscript.utils;
 
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class LineOffsets {
     int[] offsets = new int[128];
     int maxLine = 0;
+    /**
+     * the offsets where the gaps of lines which were not set are filled with the offset of the line before,
+     * computed on the first lookup after a change
+     */
+    private volatile int @Nullable [] filledOffsets;
 
     public final static LineOffsets dummy = new LineOffsets();
 
@@ -19,36 +30,45 @@ public class LineOffsets {
             offsets = offsets2;
         }
         offsets[line] = offset;
+        filledOffsets = null;
     }
 
     public int get(int line) {
-        if (line >= offsets.length) {
-            line = offsets.length - 1;
+        int[] filled = filledOffsets();
+        if (line >= filled.length) {
+            line = filled.length - 1;
         } else if (line <= 0) {
             return -1;
         }
-        while (line >= 0 && offsets[line] == 0) {
-            line--;
-        }
-        if (line >= 0) {
-            return offsets[line];
-        } else {
-            return 0;
+        return filled[line];
+    }
+
+    private int[] filledOffsets() {
+        int[] filled = filledOffsets;
+        if (filled == null) {
+            filled = new int[offsets.length];
+            int last = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                if (offsets[i] != 0) {
+                    last = offsets[i];
+                }
+                filled[i] = last;
+            }
+            filledOffsets = filled;
         }
+        return filled;
     }
 
+    /**
+     * returns the first line with an offset not smaller than the given offset (binary search)
+     */
     public int getLine(int offset) {
         int min = 0;
         int max = maxLine + 1;
         while (min < max) {
-            int test = (min + max) / 2;
-            int v = get(test);
-            if (v < offset) {
-                if (min == test) {
-                    min++;
-                } else {
-                    min = test;
-                }
+            int test = (min + max) >>> 1;
+            if (get(test) < offset) {
+                min = test + 1;
             } else {
                 max = test;
             }
@@ -60,4 +80,24 @@ public class LineOffsets {
         int line = getLine(offset);
         return offset - get(line - 1);
     }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(maxLine);
+        for (int i = 0; i <= maxLine && i < offsets.length; i++) {
+            out.writeInt(offsets[i]);
+        }
+    }
+
+    public static LineOffsets read(DataInput in) throws IOException {
+        LineOffsets result = new LineOffsets();
+        int maxLine = in.readInt();
+        for (int i = 0; i <= maxLine; i++) {
+            int offset = in.readInt();
+            if (offset != 0) {
+                result.set(i, offset);
+            }
+        }
+        result.maxLine = maxLine;
+        return result;
+    }
 }
@@ -357,6 +357,10 @@ public class Utils {
     }
 
     public static Optional<Element> getAstElementAtPos(Element elem, int line, int column, boolean usesMouse) {
+        if (elem instanceof CompilationUnit) {
+            // use the index instead of walking the whole compilation unit
+            return ((CompilationUnit) elem).attrPositionIndex().elementAt(line, column);
+        }
         if (elem instanceof ModuleInstanciation) {
             // do not helicopter into module instantiations
             return Optional.of(elem);
@@ -514,6 +518,32 @@ public class Utils {
         return true;
     }
 
+    /**
+     * the number of worker threads for parallel compilation phases, when no number is configured
+     */
+    public static int defaultThreadCount() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 16));
+    }
+
+    /**
+     * a bit mask of the letters, digits and underscores in a lower case string,
+     * when the mask of a string contains bits not in the mask of another string, it cannot be a substring or subsequence of it
+     */
+    public static long charMask(String s) {
+        long mask = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                mask |= 1L << (c - 'a');
+            } else if (c >= '0' && c <= '9') {
+                mask |= 1L << (26 + c - '0');
+            } else if (c == '_') {
+                mask |= 1L << 36;
+            }
+        }
+        return mask;
+    }
+
     public static boolean isSubsequence(String a, String b) {
         int bPos = -1;
         for (int i = 0; i < a.length(); i++) {
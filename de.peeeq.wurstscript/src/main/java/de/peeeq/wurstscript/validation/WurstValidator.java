@@ -1,6 +1,8 @@
 package de.peeeq.wurstscript.validation;
 
 import com.google.common.collect.*;
+import de.peeeq.wurstio.ModelChangedException;
+import de.peeeq.wurstio.TypecheckCancellation;
 import de.peeeq.wurstio.utils.FileUtils;
 import de.peeeq.wurstscript.WLogger;
 import de.peeeq.wurstscript.ast.*;
@@ -43,6 +45,7 @@ public class WurstValidator {
     private WurstModel prog;
     private int functionCount;
     private int visitedFunctions;
+    private int walkedElements;
     private Multimap<WScope, WScope> calledFunctions = HashMultimap.create();
     private @Nullable Element lastElement = null;
 
@@ -60,8 +63,12 @@ public class WurstValidator {
             for (CompilationUnit cu : toCheck) {
                 walkTree(cu);
             }
+            TypecheckCancellation.checkpoint();
             prog.getErrorHandler().setProgress("Post checks", 0.55);
             postChecks(toCheck);
+        } catch (ModelChangedException e) {
+            // check was cancelled
+            throw e;
         } catch (RuntimeException e) {
             WLogger.severe(e);
             Element le = lastElement;
@@ -208,6 +215,9 @@ public class WurstValidator {
     }
 
     private void walkTree(Element e) {
+        if ((++walkedElements & 0xff) == 0) {
+            TypecheckCancellation.checkpoint();
+        }
         lastElement = e;
         check(e);
         lastElement = null;
@@ -222,5 +222,30 @@ public class ArrayTests extends WurstScriptTest {
             "        testSuccess()");
     }
 
+    @Test
+    public void denseArrayPages() {
+        testAssertOkLines(true,
+            "package test",
+            "native testSuccess()",
+            "native testFail(string msg)",
+            "int array ints",
+            "real array reals",
+            "string array strings",
+            "init",
+            "    for i = 250 to 260",
+            "        ints[i] = i",
+            "    ints[8191] = 7",
+            "    reals[3] = 2",
+            "    reals[300] = 1.5",
+            "    strings[1000] = \"a\"",
+            "    if ints[255] + ints[256] != 511 or ints[8191] != 7 or ints[8190] != 0",
+            "        testFail(\"ints\")",
+            "    if reals[3] != 2. or reals[300] != 1.5 or reals[4] != 0.",
+            "        testFail(\"reals\")",
+            "    if strings[1000] != \"a\" or strings[999] != null",
+            "        testFail(\"strings\")",
+            "    testSuccess()");
+    }
+
 
 }
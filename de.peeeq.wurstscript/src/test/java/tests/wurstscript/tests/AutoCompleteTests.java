@@ -400,6 +400,36 @@ public class AutoCompleteTests extends WurstLanguageServerTest {
 	}
 
 
+    @Test
+    public void infixCompletion() {
+        CompletionTestData testData = input(
+                "package test",
+                "	function int.fooBarQ()",
+                "	function int.qzFoo()",
+                "	init",
+                "		int x = 5",
+                "		x.arq|",
+                "endpackage"
+        );
+
+        testCompletions(testData, "fooBarQ");
+    }
+
+    @Test
+    public void subsequenceCompletion() {
+        CompletionTestData testData = input(
+                "package test",
+                "	function int.fooBarQ()",
+                "	function int.qzFoo()",
+                "	init",
+                "		int x = 5",
+                "		x.fbq|",
+                "endpackage"
+        );
+
+        testCompletions(testData, "fooBarQ");
+    }
+
     @Test
     public void testInnerClasses() {
         CompletionTestData testData = input(true,
@@ -0,0 +1,121 @@
+package tests.wurstscript.tests;
+
+import de.peeeq.wurstio.languageserver.BufferManager;
+import de.peeeq.wurstio.languageserver.WFile;
+import org.eclipse.lsp4j.*;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * tests for the incremental changes of documents in the {@link BufferManager}
+ */
+public class BufferManagerTests {
+
+    private final WFile file = WFile.create(new File("./test-output/buffer.wurst").getAbsoluteFile().toURI().toString());
+    private int version = 0;
+
+    @Test
+    public void insertMultipleLines() {
+        BufferManager buffers = buffers("line0\nline1\nline2\n");
+        change(buffers, edit(1, 2, 1, 2, "X\nY\nZ"));
+        assertEquals(buffers.getBuffer(file), "line0\nliX\nY\nZne1\nline2\n");
+        // the line starts behind the inserted lines must be shifted:
+        change(buffers, edit(4, 0, 4, 4, "LINE"));
+        assertEquals(buffers.getBuffer(file), "line0\nliX\nY\nZne1\nLINE2\n");
+    }
+
+    @Test
+    public void deleteMultipleLines() {
+        BufferManager buffers = buffers("line0\nline1\nline2\nline3\n");
+        change(buffers, edit(0, 2, 2, 2, ""));
+        assertEquals(buffers.getBuffer(file), "line2\nline3\n");
+        change(buffers, edit(1, 4, 1, 5, "X"));
+        assertEquals(buffers.getBuffer(file), "line2\nlineX\n");
+    }
+
+    @Test
+    public void deleteNewline() {
+        BufferManager buffers = buffers("line0\nline1\nline2\n");
+        change(buffers, edit(0, 5, 1, 0, ""));
+        assertEquals(buffers.getBuffer(file), "line0line1\nline2\n");
+        change(buffers, edit(1, 0, 1, 1, "L"));
+        assertEquals(buffers.getBuffer(file), "line0line1\nLine2\n");
+    }
+
+    @Test
+    public void editEndOfLine() {
+        BufferManager buffers = buffers("line0\nline1\nline2\n");
+        change(buffers, edit(0, 5, 0, 5, "!"));
+        assertEquals(buffers.getBuffer(file), "line0!\nline1\nline2\n");
+        // characters after the end of the line are moved to the end of the line:
+        change(buffers, edit(1, 42, 1, 42, "?"));
+        assertEquals(buffers.getBuffer(file), "line0!\nline1?\nline2\n");
+        change(buffers, edit(2, 0, 2, 0, ">"));
+        assertEquals(buffers.getBuffer(file), "line0!\nline1?\n>line2\n");
+    }
+
+    @Test
+    public void editEndOfFile() {
+        BufferManager buffers = buffers("line0\nline1");
+        change(buffers, edit(1, 5, 1, 5, "\nline2\n"));
+        assertEquals(buffers.getBuffer(file), "line0\nline1\nline2\n");
+        change(buffers, edit(3, 0, 3, 0, "line3"));
+        assertEquals(buffers.getBuffer(file), "line0\nline1\nline2\nline3");
+        change(buffers, edit(2, 5, 3, 5, ""));
+        assertEquals(buffers.getBuffer(file), "line0\nline1\nline2");
+    }
+
+    @Test
+    public void multipleChangesAppliedInOrder() {
+        BufferManager buffers = buffers("line0\nline1\nline2\n");
+        // each change uses the positions of the document after the previous changes
+        change(buffers,
+                edit(0, 0, 0, 0, "new\n"),
+                edit(2, 0, 2, 5, "second"),
+                edit(1, 5, 2, 0, " "),
+                edit(2, 5, 2, 5, "!"));
+        assertEquals(buffers.getBuffer(file), "new\nline0 second\nline2!\n");
+    }
+
+    @Test
+    public void fullChangeBetweenIncrementalChanges() {
+        BufferManager buffers = buffers("line0\nline1\nline2\n");
+        change(buffers,
+                edit(0, 0, 0, 4, "LINE"),
+                new TextDocumentContentChangeEvent("a\nb\n"),
+                edit(1, 0, 1, 1, "B"));
+        assertEquals(buffers.getBuffer(file), "a\nB\n");
+    }
+
+    @Test
+    public void oldVersionsAreIgnored() {
+        BufferManager buffers = buffers("line0\n");
+        change(buffers, edit(0, 0, 0, 4, "LINE"));
+        buffers.handleChange(new DidChangeTextDocumentParams(
+                new VersionedTextDocumentIdentifier(file.getUriString(), 0),
+                Arrays.asList(edit(0, 0, 0, 4, "old!"))));
+        assertEquals(buffers.getBuffer(file), "LINE0\n");
+    }
+
+    private BufferManager buffers(String content) {
+        BufferManager buffers = new BufferManager();
+        buffers.updateFile(file, content);
+        return buffers;
+    }
+
+    private void change(BufferManager buffers, TextDocumentContentChangeEvent... changes) {
+        version++;
+        buffers.handleChange(new DidChangeTextDocumentParams(
+                new VersionedTextDocumentIdentifier(file.getUriString(), version),
+                Arrays.asList(changes)));
+    }
+
+    private static TextDocumentContentChangeEvent edit(int startLine, int startChar, int endLine, int endChar, String text) {
+        return new TextDocumentContentChangeEvent(
+                new Range(new Position(startLine, startChar), new Position(endLine, endChar)), null, text);
+    }
+}
@@ -0,0 +1,162 @@
+package tests.wurstscript.tests;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import de.peeeq.wurstio.CompilationProcess;
+import de.peeeq.wurstscript.RunArgs;
+import de.peeeq.wurstscript.ast.Element;
+import de.peeeq.wurstscript.ast.FunctionCall;
+import de.peeeq.wurstscript.ast.WurstModel;
+import de.peeeq.wurstscript.gui.WurstGui;
+import de.peeeq.wurstscript.gui.WurstGuiCliImpl;
+import de.peeeq.wurstscript.translation.imoptimizer.CallProfile;
+import de.peeeq.wurstscript.utils.Utils;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * tests for recording call profiles with -callProfile and using them with -inlineProfile
+ */
+public class CallProfileTests extends WurstScriptTest {
+
+    @Test
+    public void testCallProfile() throws IOException {
+        WurstModel model = testScript("callProfile", false, String.join(System.lineSeparator(),
+                "package Test",
+                "function foo(int x) returns int",
+                "    return x + 1",
+                "function bar() returns int",
+                "    return foo(1) + foo(2)",
+                ""
+        ));
+        FunctionCall call1 = (FunctionCall) Utils.getAstElementAtPos(model.get(0), 5, 12, false).get();
+        FunctionCall call2 = (FunctionCall) Utils.getAstElementAtPos(model.get(0), 5, 21, false).get();
+        Element foo = call1.attrFuncDef();
+        Element bar = model.get(0).getPackages().get(0).getElements().get(1);
+
+        CallProfile profile = new CallProfile();
+        profile.recordCall(call1, foo);
+        profile.recordCall(call1, foo);
+        profile.recordCall(call1, foo);
+        profile.recordCall(call2, foo);
+        // calls translated from the same expression are counted separately for each called function:
+        profile.recordCall(call2, bar);
+
+        File file = new File("test-output/CallProfileTests_callProfile.txt");
+        file.getParentFile().mkdirs();
+        profile.writeTo(file);
+        CallProfile read = CallProfile.readFrom(file);
+        assertEquals(read.getCount(call1, foo), 3);
+        assertEquals(read.getCount(call2, foo), 1);
+        assertEquals(read.getCount(call2, bar), 1);
+        assertEquals(read.getCount(call1, bar), 0);
+        assertEquals(read.getCount(model.get(0).getPackages().get(0), foo), 0);
+        assertEquals(read.getMaxCount(), 3);
+    }
+
+    @Test
+    public void callProfileFromTests() throws IOException {
+        File folder = new File("test-output/CallProfileTests/");
+        folder.mkdirs();
+        File wurstFile = new File(folder, "CallProfile.wurst");
+        Files.write(String.join("\n",
+                "package Test",
+                "int g = 0",
+                "function foo(int x)",
+                "    g += x",
+                "@test function callsFoo()",
+                "    for i = 1 to 3",
+                "        foo(i)",
+                "    foo(4)",
+                ""), wurstFile, Charsets.UTF_8);
+        File profileFile = new File(folder, "callProfile.txt");
+        profileFile.delete();
+
+        WurstGui gui = new WurstGuiCliImpl();
+        RunArgs runArgs = new RunArgs("-runtests", "-noPJass",
+                "-callProfile", profileFile.getPath(),
+                "-out", new File(folder, "output.j").getPath(),
+                resourceFile("common.j").getPath(), resourceFile("blizzard.j").getPath(), wurstFile.getPath());
+        new CompilationProcess(gui, runArgs).doCompilation(null);
+        assertEquals(gui.getErrorCount(), 0, gui.getErrorList().toString());
+
+        // each line has the count, then line, column and file of the call and of the called function:
+        Map<String, String> fooCallCounts = new HashMap<>();
+        List<String> lines = Files.readLines(profileFile, Charsets.UTF_8);
+        for (String line : lines) {
+            String[] parts = line.split("\t");
+            assertEquals(parts.length, 7, line);
+            if (parts[4].equals("3") && parts[6].endsWith("CallProfile.wurst")) {
+                fooCallCounts.put(parts[1], parts[0]);
+            }
+        }
+        Map<String, String> expected = new HashMap<>();
+        expected.put("7", "3");
+        expected.put("8", "1");
+        assertEquals(fooCallCounts, expected, lines.toString());
+    }
+
+    private static File resourceFile(String name) {
+        return new File(CallProfileTests.class.getClassLoader().getResource(name).getFile());
+    }
+
+    @Test
+    public void testInlineProfile() throws IOException {
+        String prog = String.join(System.lineSeparator(),
+                "package Test",
+                "int g = 0",
+                "function a(int x)",
+                "    g = g + x * 2",
+                "function b(int x)",
+                "    g = g * x + 1",
+                "function c(int x)",
+                "    g = g - x * 3",
+                "function heavy(int x)",
+                "    a(x)",
+                "    b(x)",
+                "    c(x)",
+                "    a(x)",
+                "function medium(int x)",
+                "    a(x)",
+                "    b(x)",
+                "function hot(int x)",
+                "    heavy(x)",
+                "    if x > 100",
+                "        medium(x)",
+                "init",
+                "    hot(g)",
+                ""
+        );
+        File output = new File("test-output/CallProfileTests_testInlineProfile_inl.j");
+
+        // without a profile heavy is too big to be inlined and medium is inlined
+        WurstModel model = test().lines(prog).getModel();
+        String inlined = Files.toString(output, Charsets.UTF_8);
+        assertTrue(inlined.contains("function heavy"));
+        assertFalse(inlined.contains("function medium"));
+
+        // the call of heavy is hot, the call of medium is never executed
+        FunctionCall heavyCall = (FunctionCall) Utils.getAstElementAtPos(model.get(0), 18, 6, false).get();
+        CallProfile profile = new CallProfile();
+        for (int i = 0; i < 100; i++) {
+            profile.recordCall(heavyCall, heavyCall.attrFuncDef());
+        }
+        File profileFile = new File("test-output/CallProfileTests_inlineProfile.txt");
+        profileFile.getParentFile().mkdirs();
+        profile.writeTo(profileFile);
+
+        test().inlineProfile(profileFile).lines(prog);
+        inlined = Files.toString(output, Charsets.UTF_8);
+        assertFalse(inlined.contains("function heavy"));
+        assertTrue(inlined.contains("function medium"));
+    }
+}
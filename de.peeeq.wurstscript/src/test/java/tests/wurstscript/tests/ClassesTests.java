@@ -1309,7 +1309,26 @@ public class ClassesTests extends WurstScriptTest {
         );
     }
 
-
-
+    @Test
+    public void fieldsAndRecycledIds() {
+        testAssertOkLines(true,
+            "package test",
+            "native testSuccess()",
+            "class A",
+            "    int x = 1",
+            "    int array[3] ys",
+            "class B extends A",
+            "    string s = \"b\"",
+            "init",
+            "    let a = new A()",
+            "    let id = a castTo int",
+            "    destroy a",
+            "    let b = new B()",
+            "    b.x = 5",
+            "    b.ys[2] = 7",
+            "    if (b castTo int) == id and b.x + b.ys[2] == 12 and b.ys[1] == 0 and b.s == \"b\"",
+            "        testSuccess()"
+        );
+    }
 
 }
@@ -1,7 +1,29 @@
 package tests.wurstscript.tests;
 
+import de.peeeq.wurstio.WurstCompilerJassImpl;
+import de.peeeq.wurstio.utils.FileUtils;
+import de.peeeq.wurstscript.RunArgs;
+import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.WPackage;
+import de.peeeq.wurstscript.ast.WurstModel;
+import de.peeeq.wurstscript.attributes.CompileError;
+import de.peeeq.wurstscript.attributes.CompileError.ErrorType;
+import de.peeeq.wurstscript.attributes.ErrorHandler;
+import de.peeeq.wurstscript.gui.WurstGui;
+import de.peeeq.wurstscript.gui.WurstGuiLogger;
+import de.peeeq.wurstscript.parser.WPos;
+import de.peeeq.wurstscript.utils.Utils;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
 /**
  * Tests using using more than one compilation unit
  */
@@ -38,4 +60,86 @@ public class CompilationUnitTests extends WurstScriptTest {
                 ));
     }
 
+    @Test
+    public void parallelParsing() throws IOException {
+        File folder = new File("./temp/parallelParsing/");
+        File lib = new File(folder, "lib");
+        FileUtils.deleteRecursively(folder);
+        Files.createDirectories(lib.toPath());
+        writeFile(new File(lib, "Lib1.wurst"), "package Lib1", "import Lib2", "import Lib3", "function l1()", "    skip");
+        writeFile(new File(lib, "Lib2.wurst"), "package Lib2", "import Lib4", "function l2()", "    skip");
+        writeFile(new File(lib, "Lib3.wurst"), "package Lib3", "import Lib4", "function l3()", "    skip");
+        writeFile(new File(lib, "Lib4.wurst"), "package Lib4", "function l4()", "    skip");
+        writeFile(new File(lib, "LibErr.wurst"), "package LibErr", "import Lib4", "function e(");
+        writeFile(new File(folder, "A.wurst"), "package A", "import Lib1", "function a()", "    skip");
+        writeFile(new File(folder, "B.wurst"), "package B", "import Lib3", "import Lib4", "function b()", "    skip");
+        writeFile(new File(folder, "C.wurst"), "package C", "import LibErr", "function c(");
+        writeFile(new File(folder, "D.wurst"), "package D", "import Lib2", "function d() returns");
+
+        // the compilation units and errors must not depend on the order in which the worker threads finish:
+        String expectedModel = parseWithThreads(folder, 1, "A.wurst", "B.wurst");
+        assertTrue(expectedModel.contains("Lib4.wurst: Lib4"), expectedModel);
+        String expectedErrors = parseWithThreads(folder, 1, "A.wurst", "C.wurst", "B.wurst", "D.wurst");
+        assertTrue(expectedErrors.contains("LibErr.wurst"), expectedErrors);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(parseWithThreads(folder, 4, "A.wurst", "B.wurst"), expectedModel);
+            assertEquals(parseWithThreads(folder, 4, "A.wurst", "C.wurst", "B.wurst", "D.wurst"), expectedErrors);
+        }
+    }
+
+    @Test
+    public void errorHandlerReturnsCopies() {
+        ErrorHandler handler = new ErrorHandler(new WurstGuiLogger());
+        handler.sendErrorAtSmallestPosition(new CompileError(new WPos("A.wurst", null, 10, 30), "big", ErrorType.ERROR));
+        List<CompileError> errors = handler.getErrors();
+        // a smaller error replaces the bigger one, an error containing it is ignored:
+        handler.sendErrorAtSmallestPosition(new CompileError(new WPos("A.wurst", null, 15, 20), "small", ErrorType.ERROR));
+        handler.sendErrorAtSmallestPosition(new CompileError(new WPos("A.wurst", null, 12, 25), "medium", ErrorType.ERROR));
+        handler.sendErrorAtSmallestPosition(new CompileError(new WPos("B.wurst", null, 12, 25), "other file", ErrorType.WARNING));
+
+        assertEquals(errors.size(), 1);
+        assertEquals(errors.get(0).getMessage(), "big");
+        assertEquals(handler.getErrors().size(), 1);
+        assertEquals(handler.getErrors().get(0).getMessage(), "small");
+        assertEquals(handler.getWarnings().size(), 1);
+        assertEquals(handler.getErrorCount(), 1);
+        try {
+            handler.getErrors().clear();
+            fail("the errors should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    /**
+     * returns the parsed compilation units with their packages and the errors, in the order in which they were added
+     */
+    private String parseWithThreads(File folder, int threads, String... inputs) {
+        WurstGui gui = new WurstGuiLogger();
+        RunArgs runArgs = new RunArgs().with("-lib", new File(folder, "lib").getPath(), "-parseThreads", String.valueOf(threads));
+        WurstCompilerJassImpl compiler = new WurstCompilerJassImpl(null, gui, null, runArgs);
+        for (String input : inputs) {
+            compiler.loadFiles(new File(folder, input));
+        }
+        WurstModel model = compiler.parseFiles();
+        StringBuilder sb = new StringBuilder();
+        if (model != null) {
+            for (CompilationUnit cu : model) {
+                sb.append(new File(cu.getCuInfo().getFile()).getName()).append(":");
+                for (WPackage p : cu.getPackages()) {
+                    sb.append(" ").append(p.getName()).append(" (").append(p.getElements().size()).append(")");
+                }
+                sb.append("\n");
+            }
+        }
+        for (CompileError e : gui.getErrorsAndWarnings()) {
+            sb.append(e).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private void writeFile(File f, String... lines) throws IOException {
+        FileUtils.write(Utils.join(lines, "\n"), f);
+    }
+
 }
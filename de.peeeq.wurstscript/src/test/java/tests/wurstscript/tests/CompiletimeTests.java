@@ -24,6 +24,26 @@ public class CompiletimeTests extends WurstScriptTest {
                         "        testSuccess()");
     }
 
+    @Test
+    public void testSimpleCompiletimeBytecode() {
+        test().executeProg(true)
+                .runCompiletimeFunctions(true)
+                .bytecodeInterpreter(true)
+                .lines("package Test",
+                        "native testSuccess()",
+                        "function compiletime(int i) returns int",
+                        "    return i",
+                        "int i = 0",
+                        "function next() returns int",
+                        "    i++",
+                        "    return i",
+                        "constant a = compiletime(next())",
+                        "constant b = compiletime(next())",
+                        "init",
+                        "    if a == 1 and b == 2",
+                        "        testSuccess()");
+    }
+
     @Test
     public void testSimpleCompiletimeReal() {
         test().executeProg(true)
@@ -1,11 +1,17 @@
 package tests.wurstscript.tests;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
 import com.google.common.io.Files;
+import de.peeeq.wurstio.WurstCompilerJassImpl;
+import de.peeeq.wurstscript.RunArgs;
+import de.peeeq.wurstscript.gui.WurstGuiCliImpl;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.testng.Assert.assertEquals;
 
@@ -30,6 +36,69 @@ public class DeterministicChecks extends WurstScriptTest {
         assertEquals(script1, script2);
     }
 
+    @Test
+    public void parallelOptimizations() throws IOException {
+        File optimizedFile = new File("test-output/DeterministicChecks_optimizedCode_inlopt.j");
+        optimizedCode(1);
+        String serial = Files.toString(optimizedFile, Charsets.UTF_8);
+        optimizedCode(4);
+        String parallel = Files.toString(optimizedFile, Charsets.UTF_8);
+        assertEquals(parallel, serial);
+
+        // the whole standard library gives the passes a realistic amount of functions
+        File optimizedStdLib = new File("test-output/DeterministicChecks_optimizedStdLib_inlopt.j");
+        optimizedStdLib(1);
+        String serialStdLib = Files.toString(optimizedStdLib, Charsets.UTF_8);
+        optimizedStdLib(4);
+        String parallelStdLib = Files.toString(optimizedStdLib, Charsets.UTF_8);
+        assertEquals(parallelStdLib, serialStdLib);
+    }
+
+    private void optimizedStdLib(int optimizeThreads) {
+        RunArgs runArgs = RunArgs.defaults();
+        runArgs.addLibs(Sets.newHashSet(StdLib.getLib()));
+        WurstCompilerJassImpl comp = new WurstCompilerJassImpl(null, new WurstGuiCliImpl(), null, runArgs);
+        List<File> inputs = new ArrayList<>(comp.getLibs().values());
+        new TestConfig("DeterministicChecks_optimizedStdLib")
+                .withStdLib(true)
+                .executeTests(false)
+                .executeProg(false)
+                .optimizeThreads(optimizeThreads)
+                .withInputFiles(inputs)
+                .run();
+    }
+
+    private void optimizedCode(int optimizeThreads) {
+        test().executeProg(true).optimizeThreads(optimizeThreads).lines(
+                "package test",
+                "	native testSuccess()",
+                "	int g = 0",
+                "	function a(int x) returns int",
+                "		int y = x",
+                "		int z = y * 2",
+                "		if x > 3",
+                "			g = z",
+                "			return z + 1",
+                "		else",
+                "			g = z",
+                "			return z - 1",
+                "	function b(int x) returns int",
+                "		int s = 0",
+                "		for i = 1 to x",
+                "			int t = i",
+                "			s += t",
+                "		return s",
+                "	function c() returns int",
+                "		int k = 7",
+                "		int l = k",
+                "		return a(l) + b(k)",
+                "	init",
+                "		if c() == 43 and g == 14",
+                "			testSuccess()",
+                "endpackage"
+        );
+    }
+
     private void exampleCode() {
         testAssertOkLines(false,
                 "package test",
@@ -1,8 +1,16 @@
 package tests.wurstscript.tests;
 
 import de.peeeq.wurstio.jassinterpreter.InterpreterException;
+import de.peeeq.wurstio.jassinterpreter.JassInterpreter;
+import de.peeeq.wurstio.jassinterpreter.NativeJassFunction;
+import de.peeeq.wurstio.jassinterpreter.ReflectionNativeProvider;
+import de.peeeq.wurstscript.intermediatelang.*;
+import de.peeeq.wurstscript.intermediatelang.interpreter.NativeFunction;
+import de.peeeq.wurstscript.intermediatelang.interpreter.NoSuchNativeException;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.*;
+
 public class InterpreterTests extends WurstScriptTest {
 
 
@@ -38,6 +46,48 @@ public class InterpreterTests extends WurstScriptTest {
         );
     }
 
+    @Test(expectedExceptions = {InterpreterException.class})
+    public void uninitializedLocal() {
+        test().executeProg(true).testLua(false).lines(
+            "function foo takes boolean b returns integer",
+            "    local integer x",
+            "    if b then",
+            "        set x = 1",
+            "    endif",
+            "    return x", // only a warning in Jass code
+            "endfunction",
+            "package Test",
+            "native testSuccess()",
+            "init",
+            "    if foo(false) == 0",
+            "        testSuccess()"
+        );
+    }
+
+    @Test
+    public void initializedLocal() {
+        test().executeProg(true).testLua(false).lines(
+            "function foo takes boolean b returns integer",
+            "    local integer x",
+            "    if b then",
+            "        set x = 1",
+            "    else",
+            "        set x = 2",
+            "    endif",
+            "    loop",
+            "        set x = x + 1",
+            "        exitwhen x > 5",
+            "    endloop",
+            "    return x",
+            "endfunction",
+            "package Test",
+            "native testSuccess()",
+            "init",
+            "    if foo(false) == 6",
+            "        testSuccess()"
+        );
+    }
+
     @Test
     public void arrayDefault() {
         test().executeProg(true).testLua(false).lines(
@@ -51,4 +101,174 @@ public class InterpreterTests extends WurstScriptTest {
         );
     }
 
+    @Test
+    public void parallelTestsAreIsolated() {
+        test().executeTests(true).parallelTests(true).lines(
+            "type rect extends handle",
+            "package Test",
+            "native testFail(string msg)",
+            "@extern native Rect(real minx, real miny, real maxx, real maxy) returns rect",
+            "@extern native SetRect(rect whichRect, real minx, real miny, real maxx, real maxy)",
+            "@extern native GetRectMaxX(rect whichRect) returns real",
+            "class Counter",
+            "    int count = 0",
+            "int total = 0",
+            "int array values",
+            "Counter counter",
+            "rect area",
+            "@compiletime function setup()",
+            "    total = 10",
+            "    values[3] = 7",
+            "    counter = new Counter",
+            "    area = Rect(0., 0., 10., 10.)",
+            "function change(string name)",
+            "    total += 1",
+            "    values[3] += 1",
+            "    counter.count += 1",
+            "    SetRect(area, 0., 0., GetRectMaxX(area) + 1., 10.)",
+            "    if total != 11 or values[3] != 8 or counter.count != 1 or GetRectMaxX(area) != 11.",
+            "        testFail(name)",
+            "@test function a()",
+            "    change(\"a\")",
+            "@test function b()",
+            "    change(\"b\")",
+            "@test function c()",
+            "    change(\"c\")"
+        );
+    }
+
+    @Test
+    public void bytecodeInterpreter() {
+        test().executeProg(true).bytecodeInterpreter(true).lines(
+            "package Test",
+            "native testSuccess()",
+            "native testFail(string msg)",
+            "function fib(int n) returns int",
+            "    if n < 2",
+            "        return n",
+            "    return fib(n - 1) + fib(n - 2)",
+            "function sum(int n) returns int",
+            "    var s = 0",
+            "    for i = 1 to n",
+            "        if i mod 3 == 0 or i mod 5 == 0",
+            "            s += i",
+            "    return s",
+            "init",
+            "    real r = 1.5 * 2",
+            "    if fib(15) != 610",
+            "        testFail(\"fib\")",
+            "    if sum(999) != 233168",
+            "        testFail(\"sum\")",
+            "    if r != 3.",
+            "        testFail(\"real\")",
+            "    if 17 mod 5 != 2 or 17 div 5 != 3",
+            "        testFail(\"div\")",
+            "    if \"a\" + \"b\" != \"ab\"",
+            "        testFail(\"string\")",
+            "    testSuccess()"
+        );
+    }
+
+    @Test
+    public void bytecodeInterpreterClasses() {
+        test().executeProg(true).bytecodeInterpreter(true).lines(
+            "package Test",
+            "native testSuccess()",
+            "class A",
+            "    int x = 1",
+            "    function f() returns int",
+            "        return x",
+            "class B extends A",
+            "    override function f() returns int",
+            "        return x + 10",
+            "init",
+            "    A a = new B()",
+            "    a.x = 5",
+            "    int total = 0",
+            "    for i = 1 to 3",
+            "        total += a.f()",
+            "    destroy a",
+            "    if total == 45",
+            "        testSuccess()"
+        );
+    }
+
+    @Test
+    public void recursionWithManyLocals() {
+        // more than 8 locals use the hashed frame layout, the helper uses the linear one
+        test().executeProg(true).lines(
+            "package Test",
+            "native testSuccess()",
+            "function add(int a, int b) returns int",
+            "    return a + b",
+            "function rec(int n) returns int",
+            "    if n == 0",
+            "        return 0",
+            "    int a = n",
+            "    int b = a + 1",
+            "    int c = b + 1",
+            "    int d = c + 1",
+            "    int e = d + 1",
+            "    int f = e + 1",
+            "    int g = f + 1",
+            "    int h = g + 1",
+            "    let r = rec(n - 1)",
+            "    return add(r, h - a - 6)",
+            "init",
+            "    if rec(100) == 100",
+            "        testSuccess()"
+        );
+    }
+
+    @Test
+    public void boundNatives() throws NoSuchNativeException {
+        ReflectionNativeProvider natives = new ReflectionNativeProvider(new JassInterpreter());
+        assertBoundNative(natives, "I2S", ILconstInt.create(42));
+        assertBoundNative(natives, "S2I", new ILconstString("123"));
+        assertBoundNative(natives, "R2I", new ILconstReal(3.7));
+        assertBoundNative(natives, "StringLength", new ILconstString("hello"));
+        assertBoundNative(natives, "SubString", new ILconstString("hello world"), ILconstInt.create(2), ILconstInt.create(7));
+        assertBoundNative(natives, "StringCase", new ILconstString("Hello"), ILconstBool.TRUE);
+        assertBoundNative(natives, "ModuloInteger", ILconstInt.create(-7), ILconstInt.create(3));
+        assertBoundNative(natives, "Pow", new ILconstReal(2.0), new ILconstReal(10.0));
+        // natives are only resolved once:
+        assertSame(natives.bind("I2S"), natives.bind("I2S"));
+    }
+
+    /**
+     * checks that the bound native returns the same as calling the method via reflection
+     */
+    private void assertBoundNative(ReflectionNativeProvider natives, String name, ILconst... args) throws NoSuchNativeException {
+        NativeJassFunction reflective = natives.getFunctionPair(name);
+        NativeFunction bound = natives.bind(name);
+        assertNotNull(reflective, name);
+        assertNotNull(bound, name);
+        ILconst expected = reflective.execute(null, args.clone());
+        assertEquals(bound.invoke(args.clone()), expected, name);
+        assertEquals(natives.invoke(name, args.clone()), expected, name);
+    }
+
+    @Test
+    public void missingNative() {
+        ReflectionNativeProvider natives = new ReflectionNativeProvider(new JassInterpreter());
+        assertNull(natives.bind("NoSuchNative"));
+        try {
+            natives.invoke("NoSuchNative", new ILconst[0]);
+            fail("NoSuchNative should not be found");
+        } catch (NoSuchNativeException e) {
+            // expected
+        }
+
+        test().executeProg(true).testLua(false)
+            .expectError("function NoSuchNative cannot be used from the Wurst interpreter")
+            .lines(
+                "package Test",
+                "native testSuccess()",
+                "native NoSuchNative()",
+                "init",
+                "    NoSuchNative()",
+                "    testSuccess()"
+            );
+    }
+
 }
@@ -1,16 +1,26 @@
 package tests.wurstscript.tests;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import de.peeeq.wurstio.TypecheckCancellation;
 import de.peeeq.wurstio.languageserver.BufferManager;
+import de.peeeq.wurstio.languageserver.ModelManager;
 import de.peeeq.wurstio.languageserver.ModelManagerImpl;
+import de.peeeq.wurstio.languageserver.SnapshotOutdatedException;
 import de.peeeq.wurstio.languageserver.WFile;
 import de.peeeq.wurstio.utils.FileUtils;
 import de.peeeq.wurstscript.ast.CompilationUnit;
+import de.peeeq.wurstscript.ast.FuncDef;
 import de.peeeq.wurstscript.ast.FunctionCall;
 import de.peeeq.wurstscript.ast.FunctionDefinition;
+import de.peeeq.wurstscript.ast.WEntities;
+import de.peeeq.wurstscript.ast.WEntity;
 import de.peeeq.wurstscript.utils.Utils;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.SymbolInformation;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.core.IsNot;
 import org.jetbrains.annotations.NotNull;
@@ -20,13 +30,21 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class ModelManagerTests {
 
@@ -235,6 +253,348 @@ public class ModelManagerTests {
 
     }
 
+    @Test
+    public void syncSeveralFiles() throws IOException {
+        File projectFolder = new File("./temp/testProject3/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        String packageA_v1 = string(
+                "package A",
+                "import B",
+                "import C",
+                "init",
+                "    b()",
+                "    c()"
+        );
+
+        String packageA_v2 = string(
+                "package A",
+                "import B",
+                "init",
+                "    b()"
+        );
+
+        String packageB_v1 = string(
+                "package B",
+                "public function b_old()"
+        );
+
+        String packageB_v2 = string(
+                "package B",
+                "public function b()"
+        );
+
+        String packageC = string(
+                "package C",
+                "public function c()"
+        );
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileB = WFile.create(new File(wurstFolder, "B.wurst"));
+        WFile fileC = WFile.create(new File(wurstFolder, "C.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+
+        writeFile(fileA, packageA_v1);
+        writeFile(fileB, packageB_v1);
+        writeFile(fileC, packageC);
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        Map<WFile, String> errors = keepErrorsInMap(manager);
+        Map<WFile, Integer> reports = new HashMap<>();
+        manager.onCompilationResult(res -> reports.merge(WFile.create(res.getUri()), 1, Integer::sum));
+
+        manager.buildProject();
+        assertThat(errors.get(fileA), containsString("b"));
+
+        // change B on disk, A in the editor and delete C in one batch:
+        writeFile(fileB, packageB_v2);
+        fileC.getFile().delete();
+        reports.clear();
+        manager.syncCompilationUnits(ImmutableSet.of(fileB), ImmutableMap.of(fileA, packageA_v2), ImmutableSet.of(fileC));
+
+        assertEquals(errors.get(fileA), "");
+        assertEquals(errors.get(fileB), "");
+        assertEquals(reports.get(fileA), Integer.valueOf(1));
+        assertEquals(reports.get(fileB), Integer.valueOf(1));
+        assertNull(manager.getCompilationUnit(fileC));
+    }
+
+    @Test
+    public void cancelledTypecheck() throws IOException {
+        File projectFolder = new File("./temp/testProject4/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        String packageA_v1 = string(
+                "package A",
+                "init",
+                "    foo()"
+        );
+
+        String packageA_v2 = string(
+                "package A",
+                "init",
+                "    bar()"
+        );
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, packageA_v1);
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        Map<WFile, String> errors = keepErrorsInMap(manager);
+        manager.buildProject();
+        assertThat(errors.get(fileA), containsString("foo"));
+
+        // the cancelled check does not report the type errors:
+        TypecheckCancellation.runCancellable(() -> true, () -> manager.syncCompilationUnitContent(fileA, packageA_v2));
+        assertThat(errors.get(fileA), IsNot.not(containsString("foo")));
+        assertThat(errors.get(fileA), IsNot.not(containsString("bar")));
+
+        // checking again reports the errors for the new content:
+        manager.syncCompilationUnitContent(fileA, packageA_v2);
+        assertThat(errors.get(fileA), containsString("bar"));
+    }
+
+    @Test
+    public void typecheckAfterCancelledTypecheck() throws IOException {
+        File projectFolder = new File("./temp/testProject6/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        String packageB = string(
+                "package B",
+                "public class Vec",
+                "    int x",
+                "    int y",
+                "    function plus(Vec o) returns Vec",
+                "        let r = new Vec",
+                "        r.x = x + o.x",
+                "        r.y = y + o.y",
+                "        return r",
+                "public function len(Vec v) returns int",
+                "    return v.x * v.x + v.y * v.y"
+        );
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileB = WFile.create(new File(wurstFolder, "B.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, packageA(0));
+        writeFile(fileB, packageB);
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        Map<WFile, String> errors = keepErrorsInMap(manager);
+        manager.buildProject();
+        assertEquals(errors.get(fileA), "");
+
+        // cancel checks at different points, each following check must succeed:
+        for (int cancelAfter = 0; cancelAfter < 20; cancelAfter++) {
+            AtomicInteger checkpoints = new AtomicInteger();
+            int limit = cancelAfter;
+            TypecheckCancellation.runCancellable(() -> checkpoints.incrementAndGet() > limit,
+                    () -> manager.syncCompilationUnitContent(fileA, packageA(limit)));
+
+            manager.syncCompilationUnitContent(fileA, packageA(limit + 1));
+            assertEquals(errors.get(fileA), "", "after cancelling at checkpoint " + cancelAfter);
+            assertEquals(errors.get(fileB), "", "after cancelling at checkpoint " + cancelAfter);
+        }
+    }
+
+    private String packageA(int i) {
+        return string(
+                "package A",
+                "import B",
+                "init",
+                "    let v = new Vec",
+                "    v.x = " + i,
+                "    let w = v.plus(v)",
+                "    if len(w) > " + i,
+                "        destroy w"
+        );
+    }
+
+    @Test
+    public void snapshotIsIndependent() throws IOException {
+        File projectFolder = new File("./temp/testProject5/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, string("package A", "public function foo()"));
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        Map<WFile, String> errors = keepErrorsInMap(manager);
+        manager.buildProject();
+
+        ModelManager snapshot = manager.snapshot();
+        CompilationUnit cu = snapshot.getCompilationUnit(fileA);
+        assertNotNull(cu);
+        assertNotSame(cu, manager.getCompilationUnit(fileA));
+
+        // changes to the model are not visible in the snapshot:
+        manager.syncCompilationUnitContent(fileA, string("package A", "public function bar()"));
+        assertEquals(functionNames(snapshot.getCompilationUnit(fileA)), ImmutableSet.of("foo"));
+
+        // the snapshot only returns unchanged compilation units:
+        assertSame(snapshot.replaceCompilationUnitContent(fileA, string("package A", "public function foo()"), true), cu);
+        errors.clear();
+        try {
+            snapshot.replaceCompilationUnitContent(fileA, string("package A", "init", "    baz()"), true);
+            fail("changing the snapshot should not be possible");
+        } catch (SnapshotOutdatedException e) {
+            // expected
+        }
+        assertTrue(errors.isEmpty());
+        assertSame(snapshot.getCompilationUnit(fileA), cu);
+        assertEquals(functionNames(manager.getCompilationUnit(fileA)), ImmutableSet.of("bar"));
+    }
+
+    private Set<String> functionNames(@Nullable CompilationUnit cu) {
+        assertNotNull(cu);
+        return cu.getPackages().get(0).getElements().stream()
+                .filter(e -> e instanceof FuncDef)
+                .map(e -> ((FuncDef) e).getName())
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void referencesAreUpdated() throws IOException {
+        File projectFolder = new File("./temp/testProject9/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileTest = WFile.create(new File(wurstFolder, "Test.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, string("package A", "import Test", "init", "    foo()"));
+        writeFile(fileTest, string("package Test", "public function foo()"));
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        keepErrorsInMap(manager);
+        manager.buildProject();
+
+        CompilationUnit cu = manager.getCompilationUnit(fileA);
+        FunctionCall call = (FunctionCall) Utils.getAstElementAtPos(cu, 4, 5, false).get();
+        FunctionDefinition def = call.attrFuncDef();
+        assertNotNull(def);
+        // the definition and the call:
+        assertEquals(manager.findReferences(def).size(), 2);
+        assertTrue(manager.findReferences(def).contains(call));
+
+        // the index is updated when a file changes:
+        manager.syncCompilationUnitContent(fileA, string("package A", "import Test", "init", "    foo()", "    foo()"));
+        assertEquals(manager.findReferences(def).size(), 3);
+        assertTrue(manager.findReferences(def).stream().noneMatch(e -> e == call));
+    }
+
+    @Test
+    public void symbolSearch() throws IOException {
+        File projectFolder = new File("./temp/testProject7/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, string(
+                "package A",
+                "function xqWidgetZone()",
+                "function xqaWaltzBz()",
+                "function xqwz()"));
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        keepErrorsInMap(manager);
+        manager.buildProject();
+
+        // exact matches first, then camel case matches, then subsequences:
+        assertEquals(symbolNames(manager.searchSymbols("xqwz", 10)), ImmutableList.of("xqwz", "xqWidgetZone", "xqaWaltzBz"));
+        assertEquals(symbolNames(manager.searchSymbols("XQWZ", 1)), ImmutableList.of("xqwz"));
+        assertEquals(symbolNames(manager.searchSymbols("xqwz", 0)), ImmutableList.of());
+        // qualified names:
+        assertEquals(symbolNames(manager.searchSymbols("a.xqa", 10)), ImmutableList.of("xqaWaltzBz"));
+
+        // the index is updated when a file changes:
+        manager.syncCompilationUnitContent(fileA, string("package A", "function xqWidget()"));
+        assertEquals(symbolNames(manager.searchSymbols("xqwz", 10)), ImmutableList.of());
+        assertEquals(symbolNames(manager.searchSymbols("xqw", 10)), ImmutableList.of("xqWidget"));
+    }
+
+    @Test
+    public void reparseChangedEntity() throws IOException {
+        File projectFolder = new File("./temp/testProject8/");
+        File wurstFolder = new File(projectFolder, "wurst");
+        newCleanFolder(wurstFolder);
+
+        WFile fileA = WFile.create(new File(wurstFolder, "A.wurst"));
+        WFile fileWurst = WFile.create(new File(wurstFolder, "Wurst.wurst"));
+        writeFile(fileA, string(
+                "package A",
+                "function a()",
+                "    b()",
+                "function b()",
+                "    skip",
+                "function c()",
+                "    a()"));
+        writeFile(fileWurst, "package Wurst\n");
+
+        ModelManagerImpl manager = new ModelManagerImpl(projectFolder, new BufferManager());
+        Map<WFile, String> errors = keepErrorsInMap(manager);
+        manager.buildProject();
+
+        CompilationUnit cu = manager.getCompilationUnit(fileA);
+        assertNotNull(cu);
+        WEntities entities = cu.getPackages().get(0).getElements();
+        WEntity a = entities.get(0);
+        WEntity b = entities.get(1);
+        WEntity c = entities.get(2);
+
+        // only the changed function is parsed again, the following functions are moved:
+        errors.clear();
+        manager.syncCompilationUnitContent(fileA, string(
+                "package A",
+                "function a()",
+                "    b()",
+                "function b()",
+                "    skip",
+                "    skip",
+                "function c()",
+                "    a()"));
+        assertSame(manager.getCompilationUnit(fileA), cu);
+        assertEquals(entities.size(), 3);
+        assertSame(entities.get(0), a);
+        assertNotSame(entities.get(1), b);
+        assertSame(entities.get(2), c);
+        assertEquals(entities.get(1).getSource().getLine(), 4);
+        assertEquals(c.getSource().getLine(), 7);
+        FunctionCall call = (FunctionCall) Utils.getAstElementAtPos(cu, 8, 5, false).get();
+        assertSame(call.attrFuncDef(), a);
+        assertEquals(errors.get(fileA), "");
+
+        // syntax errors are reported after parsing the whole file:
+        manager.syncCompilationUnitContent(fileA, string(
+                "package A",
+                "function a()",
+                "    b(",
+                "function b()",
+                "    skip",
+                "    skip",
+                "function c()",
+                "    a()"));
+        assertNotSame(manager.getCompilationUnit(fileA), cu);
+        assertTrue(!errors.get(fileA).isEmpty());
+    }
+
+    private List<String> symbolNames(List<SymbolInformation> symbols) {
+        return symbols.stream().map(SymbolInformation::getName).collect(Collectors.toList());
+    }
+
     @NotNull
     private Map<WFile, String> keepErrorsInMap(ModelManagerImpl manager) {
         // keep error messages in a map:
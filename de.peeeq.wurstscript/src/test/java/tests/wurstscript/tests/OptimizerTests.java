@@ -481,6 +481,26 @@ public class OptimizerTests extends WurstScriptTest {
         assertFalse(output.contains("blablub"));
     }
 
+    @Test
+    public void test_removeUnusedFunctionsAndGlobals() throws IOException {
+        test().lines(
+                "package test",
+                "	native println(string s)",
+                "	string unusedGlobal = \"unused\"",
+                "	function unusedA()",
+                "		println(unusedGlobal)",
+                "		unusedB()",
+                "	function unusedB()",
+                "		unusedA()",
+                "	init",
+                "		println(\"used\")",
+                "endpackage");
+        String output = Files.toString(new File("./test-output/OptimizerTests_test_removeUnusedFunctionsAndGlobals_inlopt.j"), Charsets.UTF_8);
+        assertFalse(output.contains("unusedA"));
+        assertFalse(output.contains("unusedB"));
+        assertFalse(output.contains("unusedGlobal"));
+    }
+
     @Test
     public void test_localVarMerger() {
         test().executeProg().lines(
@@ -782,6 +802,106 @@ public class OptimizerTests extends WurstScriptTest {
         assertEquals(compiledAndOptimized.indexOf("u = null"), compiledAndOptimized.lastIndexOf("u = null"));
     }
 
+    @Test
+    public void loopInvariantCodeMotion() throws IOException {
+        test().executeProg().lines(
+                "package test",
+                "	native testSuccess()",
+                "	int array a",
+                "	function foo(int n) returns int",
+                "		var sum = 0",
+                "		var i = 0",
+                "		while i < n",
+                "			let v = a[n] * 7",
+                "			sum += v + i",
+                "			i++",
+                "		return sum",
+                "	init",
+                "		a[3] = 1",
+                "		if foo(3) == 24",
+                "			testSuccess()",
+                "endpackage");
+        String output = Files.toString(new File("test-output/OptimizerTests_loopInvariantCodeMotion_opt.j"), Charsets.UTF_8);
+        String foo = output.substring(output.indexOf("function foo"));
+        // the multiplication is moved in front of the loop
+        assertTrue(foo.indexOf("* 7") < foo.indexOf("loop"));
+    }
+
+    @Test
+    public void loopInvariantCodeMotionCallback() throws IOException {
+        test().executeProg().lines(
+                "type force extends handle",
+                "package test",
+                "	native testSuccess()",
+                "	@extern native ForForce(force whichForce, code callback)",
+                "	int g = 0",
+                "	function inc()",
+                "		g++",
+                "	function foo(int n) returns int",
+                "		var sum = 0",
+                "		var i = 0",
+                "		while i < n",
+                "			ForForce(null, function inc)",
+                "			let v = g * 7",
+                "			sum += v",
+                "			i++",
+                "		return sum",
+                "	init",
+                "		if foo(3) == 42",
+                "			testSuccess()",
+                "endpackage");
+        String output = Files.toString(new File("test-output/OptimizerTests_loopInvariantCodeMotionCallback_opt.j"), Charsets.UTF_8);
+        String foo = output.substring(output.indexOf("function foo"));
+        // the callback changes g, so the multiplication stays in the loop
+        assertTrue(foo.indexOf("* 7") > foo.indexOf("loop"));
+    }
+
+    @Test
+    public void commonSubexpressionElimination() throws IOException {
+        test().executeProg().lines(
+                "package test",
+                "	native testSuccess()",
+                "	int array a",
+                "	function foo(int i) returns int",
+                "		let x = a[i] * 3",
+                "		let y = a[i] * 3 + i",
+                "		return x + y",
+                "	init",
+                "		a[2] = 4",
+                "		if foo(2) == 26",
+                "			testSuccess()",
+                "endpackage");
+        String output = Files.toString(new File("test-output/OptimizerTests_commonSubexpressionElimination_opt.j"), Charsets.UTF_8);
+        assertTrue(output.contains("* 3"));
+        assertEquals(output.indexOf("* 3"), output.lastIndexOf("* 3"));
+    }
+
+    @Test
+    public void deadStoreElimination() throws IOException {
+        test().executeProg().lines(
+                "package test",
+                "	native testSuccess()",
+                "	int array a",
+                "	int g",
+                "	function foo(int i)",
+                "		g = 333",
+                "		a[i] = 888",
+                "		a[5] = 555",
+                "		a[6] = 666",
+                "		a[i] = 999",
+                "		a[5] = 777",
+                "		g = 444",
+                "	init",
+                "		foo(2)",
+                "		if a[2] == 999 and a[5] == 777 and a[6] == 666 and g == 444",
+                "			testSuccess()",
+                "endpackage");
+        String output = Files.toString(new File("test-output/OptimizerTests_deadStoreElimination_opt.j"), Charsets.UTF_8);
+        assertFalse(output.contains("333"));
+        assertFalse(output.contains("888"));
+        assertFalse(output.contains("555"));
+    }
+
     @Test
     public void testInlineAnnotation() throws IOException {
         testAssertOkLinesWithStdLib(false,
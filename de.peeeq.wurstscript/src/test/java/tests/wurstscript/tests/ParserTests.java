@@ -1,17 +1,22 @@
 package tests.wurstscript.tests;
 
+import de.peeeq.wurstio.ParseCache;
 import de.peeeq.wurstio.WurstCompilerJassImpl;
+import de.peeeq.wurstio.utils.FileUtils;
 import de.peeeq.wurstscript.RunArgs;
 import de.peeeq.wurstscript.ast.*;
 import de.peeeq.wurstscript.gui.WurstGui;
 import de.peeeq.wurstscript.gui.WurstGuiCliImpl;
+import de.peeeq.wurstscript.parser.AstSerializer;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
-import java.io.StringReader;
+import java.io.*;
 import java.util.Collections;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 public class ParserTests extends WurstScriptTest {
 
@@ -255,6 +260,78 @@ public class ParserTests extends WurstScriptTest {
 
     }
 
+    @Test
+    public void astSerializationRoundtrip() throws IOException {
+        String input = "package test\n"
+                + "import NoWurst\n"
+                + "class A\n"
+                + "    int x = -5\n"
+                + "    function foo(int y) returns int\n"
+                + "        return x * y + 'abcd'\n"
+                + "init\n"
+                + "    let s = \"hello\" + I2S(new A.foo(3))\n";
+        CompilationUnit cu = parse(input);
+        CompilationUnit cu2 = serializationRoundtrip(cu);
+
+        Assert.assertTrue(cu.structuralEquals(cu2));
+        WPackage p = cu2.getPackages().get(0);
+        assertEquals(p.getSource().getLine(), 1);
+        assertEquals(p.getElements().get(1).attrSource().getLine(), 7);
+    }
+
+    @Test
+    public void astSerializationOfValues() throws IOException {
+        String input = "package test\n"
+                + "import initlater B\n"
+                + "/** some doc */\n"
+                + "class A\n"
+                + "    construct(int y)\n"
+                + "class C extends A\n"
+                + "    construct()\n"
+                + "        super(3)\n"
+                + "function foo() returns bool\n"
+                + "    return not true and 1.5 > -2\n"
+                + "init\n"
+                + "    let s = \"hello\"\n"
+                + "    let f = (int x) -> x\n"
+                + "    let c = function foo\n";
+        CompilationUnit cu = parse(input);
+        CompilationUnit cu2 = serializationRoundtrip(cu);
+
+        Assert.assertTrue(cu.structuralEquals(cu2));
+        // positions are ignored by structuralEquals:
+        ClassDef c = (ClassDef) cu2.getPackages().get(0).getElements().get(1);
+        SomeSuperConstructorCall superCall = (SomeSuperConstructorCall) c.getConstructors().get(0).getSuperConstructorCall();
+        assertEquals(superCall.getKeywordSource().getLine(), 8);
+        Assert.assertTrue(cu2.getPackages().get(0).getImports().get(0).getIsInitLater());
+    }
+
+    @Test
+    public void parseCache() throws IOException {
+        File cacheDir = new File("./temp/parseCache/");
+        FileUtils.deleteRecursively(cacheDir);
+        ParseCache cache = new ParseCache(cacheDir);
+        String input = "package test\n"
+                + "init\n"
+                + "    let s = \"hello\"\n";
+        CompilationUnit cu = parse(input);
+        String key = ParseCache.key("test", input, false);
+
+        assertNull(cache.get(key, cu.getCuInfo().getCuErrorHandler()));
+        cache.put(key, cu);
+        // the serialization must work in every build, otherwise the cache is useless:
+        CompilationUnit cu2 = new ParseCache(cacheDir).get(key, cu.getCuInfo().getCuErrorHandler());
+        assertNotNull(cu2);
+        Assert.assertTrue(cu.structuralEquals(cu2));
+        assertEquals(cache.getMisses(), 1);
+    }
+
+    private CompilationUnit serializationRoundtrip(CompilationUnit cu) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AstSerializer.write(cu, new DataOutputStream(bytes));
+        return AstSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), cu.getCuInfo().getCuErrorHandler());
+    }
+
     private CompilationUnit parse(String input) {
         WurstGui gui = new WurstGuiCliImpl();
         WurstCompilerJassImpl compiler = new WurstCompilerJassImpl(null, gui, null, new RunArgs());
@@ -1,11 +1,14 @@
 package tests.wurstscript.tests;
 
-import de.peeeq.wurstscript.ast.FunctionCall;
-import de.peeeq.wurstscript.ast.WurstModel;
+import de.peeeq.wurstscript.ast.*;
 import de.peeeq.wurstscript.parser.WPos;
+import de.peeeq.wurstscript.utils.LineOffsets;
 import de.peeeq.wurstscript.utils.Utils;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
 public class PositionTests extends WurstScriptTest {
 
     @Test
@@ -25,4 +28,39 @@ public class PositionTests extends WurstScriptTest {
         System.out.println("pos = " + pos.getEndColumn());
 
     }
+
+    @Test
+    public void testElementAtPos() {
+        WurstModel model = testScript("blub", false, String.join(System.lineSeparator(),
+                "package Test",
+                "function foo(int x) returns int",
+                "    int y = x + 1",
+                "    return foo(y)",
+                ""
+        ));
+        CompilationUnit cu = model.get(0);
+
+        assertTrue(Utils.getAstElementAtPos(cu, 4, 12, false).get() instanceof FunctionCall);
+        assertTrue(Utils.getAstElementAtPos(cu, 4, 16, false).get() instanceof ExprVarAccess);
+        assertTrue(Utils.getAstElementAtPos(cu, 4, 6, false).get() instanceof StmtReturn);
+        assertTrue(Utils.getAstElementAtPos(cu, 3, 15, false).get() instanceof ExprBinary);
+        // identifiers are mapped to their parent:
+        assertTrue(Utils.getAstElementAtPos(cu, 2, 11, false).get() instanceof FuncDef);
+    }
+
+    @Test
+    public void testLineOffsets() {
+        LineOffsets lineOffsets = new LineOffsets();
+        lineOffsets.set(1, 10);
+        lineOffsets.set(2, 25);
+        // line 3 is not set
+        lineOffsets.set(4, 40);
+
+        assertEquals(lineOffsets.get(3), 25);
+        assertEquals(lineOffsets.getLine(5), 1);
+        assertEquals(lineOffsets.getLine(10), 1);
+        assertEquals(lineOffsets.getLine(11), 2);
+        assertEquals(lineOffsets.getLine(30), 4);
+        assertEquals(lineOffsets.getColumn(12), 2);
+    }
 }
@@ -26,6 +26,8 @@ import de.peeeq.wurstscript.luaAst.LuaCompilationUnit;
 import de.peeeq.wurstscript.translation.imtranslation.ImTranslator;
 import de.peeeq.wurstscript.utils.Utils;
 import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Parameters;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -47,6 +49,18 @@ public class WurstScriptTest {
         return false;
     }
 
+    private boolean useBytecodeInterpreter = false;
+
+    /**
+     * when a test suite sets the parameter bytecodeInterpreter to true,
+     * all programs and tests of the test class are run with the bytecode interpreter
+     */
+    @BeforeClass
+    @Parameters("bytecodeInterpreter")
+    public void setUseBytecodeInterpreter(@org.testng.annotations.Optional("false") boolean useBytecodeInterpreter) {
+        this.useBytecodeInterpreter = useBytecodeInterpreter;
+    }
+
     class TestConfig {
         private String name;
         private boolean withStdLib;
@@ -59,6 +73,10 @@ public class WurstScriptTest {
         private boolean stopOnFirstError = true;
         private boolean runCompiletimeFunctions;
         private boolean testLua = false;
+        private boolean bytecodeInterpreter = useBytecodeInterpreter;
+        private boolean parallelTests = false;
+        private int optimizeThreads = 0;
+        private File inlineProfile = null;
 
         TestConfig(String name) {
             this.name = name;
@@ -160,6 +178,18 @@ public class WurstScriptTest {
             if (runCompiletimeFunctions) {
                 runArgs = runArgs.with("-runcompiletimefunctions");
             }
+            if (bytecodeInterpreter) {
+                runArgs = runArgs.with("-bytecodeInterpreter");
+            }
+            if (parallelTests) {
+                runArgs = runArgs.with("-parallelTests");
+            }
+            if (optimizeThreads > 0) {
+                runArgs = runArgs.with("-optimizeThreads", String.valueOf(optimizeThreads));
+            }
+            if (inlineProfile != null) {
+                runArgs = runArgs.with("-inlineProfile", inlineProfile.getPath());
+            }
 
             WurstGui gui = new WurstGuiCliImpl();
             WurstCompilerJassImpl compiler = new WurstCompilerJassImpl(null, gui, null, runArgs);
@@ -257,6 +287,26 @@ public class WurstScriptTest {
             return this;
         }
 
+        public TestConfig bytecodeInterpreter(boolean b) {
+            this.bytecodeInterpreter = b;
+            return this;
+        }
+
+        public TestConfig parallelTests(boolean b) {
+            this.parallelTests = b;
+            return this;
+        }
+
+        public TestConfig optimizeThreads(int threads) {
+            this.optimizeThreads = threads;
+            return this;
+        }
+
+        public TestConfig inlineProfile(File profile) {
+            this.inlineProfile = profile;
+            return this;
+        }
+
         public TestConfig testLua(boolean b) {
             this.testLua = b;
             return this;
@@ -469,10 +519,10 @@ public class WurstScriptTest {
         if (!executeProgOnlyAfterTransforms) {
             // we want to test that the interpreter works correctly before transforming the program in the translation step
             if (executeTests) {
-                executeTests(gui, compiler.getImTranslator(), imProg);
+                executeTests(gui, compiler.getImTranslator(), imProg, compiler.getRunArgs());
             }
             if (executeProg) {
-                executeImProg(gui, imProg);
+                executeImProg(gui, imProg, compiler.getRunArgs().isBytecodeInterpreter());
             }
         }
 
@@ -484,10 +534,10 @@ public class WurstScriptTest {
         }
 
         if (executeTests) {
-            executeTests(gui, compiler.getImTranslator(), imProg);
+            executeTests(gui, compiler.getImTranslator(), imProg, compiler.getRunArgs());
         }
         if (executeProg) {
-            executeImProg(gui, imProg);
+            executeImProg(gui, imProg, compiler.getRunArgs().isBytecodeInterpreter());
         }
 
 
@@ -550,10 +600,11 @@ public class WurstScriptTest {
         }
     }
 
-    private void executeImProg(WurstGui gui, ImProg imProg) throws TestFailException {
+    private void executeImProg(WurstGui gui, ImProg imProg, boolean bytecodeInterpreter) throws TestFailException {
         try {
             // run the interpreter on the intermediate language
             ILInterpreter interpreter = new ILInterpreter(imProg, gui, Optional.empty(), false);
+            interpreter.getGlobalState().setUseBytecodeInterpreter(bytecodeInterpreter);
             interpreter.addNativeProvider(new ReflectionNativeProvider(interpreter));
             interpreter.executeFunction("main", null);
         } catch (TestSuccessException e) {
@@ -576,8 +627,10 @@ public class WurstScriptTest {
         throw new Error("Succeed function not called");
     }
 
-    private void executeTests(WurstGui gui, ImTranslator translator, ImProg imProg) {
+    private void executeTests(WurstGui gui, ImTranslator translator, ImProg imProg, RunArgs runArgs) {
         RunTests runTests = new RunTests(Optional.empty(), 0, 0, Optional.empty());
+        runTests.setUseBytecodeInterpreter(runArgs.isBytecodeInterpreter());
+        runTests.setParallel(runArgs.isParallelTests());
         RunTests.TestResult res = runTests.runTests(translator, imProg, Optional.empty(), Optional.empty());
         if (res.getPassedTests() < res.getTotalTests()) {
             throw new Error("tests failed: " + res.getPassedTests() + " / " + res.getTotalTests() + "\n" +
@@ -48,6 +48,17 @@ public class UtilsTest {
     }
 
 
+    @Test
+    public void testCharMask() {
+        Assert.assertEquals(Utils.charMask(""), 0L);
+        Assert.assertEquals(Utils.charMask("abc"), Utils.charMask("cba"));
+        Assert.assertEquals(Utils.charMask("a.b c"), Utils.charMask("abc"));
+        long mask = Utils.charMask("orderid2string_bj");
+        Assert.assertEquals(mask & Utils.charMask("id_2"), Utils.charMask("id_2"));
+        Assert.assertNotEquals(mask & Utils.charMask("idx"), Utils.charMask("idx"));
+        Assert.assertNotEquals(Utils.charMask("0"), Utils.charMask("_"));
+    }
+
     @Test
     public void testSubseqLen() {
 